@@ -33,7 +33,7 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
                 String username = jwtUtils.getUserNameFromJwtToken(jwt);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = userDetailsService.loadTokenUserByUsername(username);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -54,7 +54,18 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             return headerAuth.substring(7, headerAuth.length());
         }
 
+//        Browsers' EventSource cannot send headers, so event streams may pass the token as a parameter
+        String tokenParam = request.getParameter("access_token");
+        if (StringUtils.hasText(tokenParam) && isEventStream(request)) {
+            return tokenParam;
+        }
+
         return null;
     }
 
+    private boolean isEventStream(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/events") || uri.endsWith("/live");
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.thanhtam.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    //    Without this bean every @Scheduled job shares one thread, so a long warm-up would hold back autosave flushes and expiry
+    @Bean
+    public TaskScheduler taskScheduler(@Value("${isc.scheduler.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("isc-scheduler-");
+        return scheduler;
+    }
+}
@@ -8,12 +8,15 @@ import com.thanhtam.backend.dto.*;
 import com.thanhtam.backend.entity.*;
 import com.thanhtam.backend.service.*;
 import com.thanhtam.backend.ultilities.ERole;
+import com.thanhtam.backend.ultilities.EResultSort;
+import com.thanhtam.backend.ultilities.EResultStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,6 +25,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.xml.transform.Result;
 import java.io.IOException;
@@ -44,16 +48,42 @@ public class ExamController {
     private IntakeService intakeService;
     private PartService partService;
     private ExamUserService examUserService;
+    private ExamPaperService examPaperService;
+    private AnswerSheetService answerSheetService;
+    private ExamAdmissionService examAdmissionService;
+    private ExamPrewarmService examPrewarmService;
+    private ExamEventService examEventService;
+    private GradingService gradingService;
+    private BulkGradingService bulkGradingService;
+    private ExamResultExportService examResultExportService;
+    private QuestionStatsService questionStatsService;
+    private ItemAnalysisService itemAnalysisService;
+    private ExamResultService examResultService;
+    private LeaderboardService leaderboardService;
+    private CourseChartService courseChartService;
     private ObjectMapper mapper;
 
     @Autowired
-    public ExamController(ExamService examService, QuestionService questionService, UserService userService, IntakeService intakeService, PartService partService, ExamUserService examUserService, ObjectMapper mapper) {
+    public ExamController(ExamService examService, QuestionService questionService, UserService userService, IntakeService intakeService, PartService partService, ExamUserService examUserService, ExamPaperService examPaperService, AnswerSheetService answerSheetService, ExamAdmissionService examAdmissionService, ExamPrewarmService examPrewarmService, ExamEventService examEventService, GradingService gradingService, BulkGradingService bulkGradingService, ExamResultExportService examResultExportService, QuestionStatsService questionStatsService, ItemAnalysisService itemAnalysisService, ExamResultService examResultService, LeaderboardService leaderboardService, CourseChartService courseChartService, ObjectMapper mapper) {
         this.examService = examService;
         this.questionService = questionService;
         this.userService = userService;
         this.intakeService = intakeService;
         this.partService = partService;
         this.examUserService = examUserService;
+        this.examPaperService = examPaperService;
+        this.answerSheetService = answerSheetService;
+        this.examAdmissionService = examAdmissionService;
+        this.examPrewarmService = examPrewarmService;
+        this.examEventService = examEventService;
+        this.gradingService = gradingService;
+        this.bulkGradingService = bulkGradingService;
+        this.examResultExportService = examResultExportService;
+        this.questionStatsService = questionStatsService;
+        this.itemAnalysisService = itemAnalysisService;
+        this.examResultService = examResultService;
+        this.leaderboardService = leaderboardService;
+        this.courseChartService = courseChartService;
         this.mapper = mapper;
     }
 
@@ -117,11 +147,19 @@ public class ExamController {
 //            examUser.get().setIsFinished(true);
 //            examUser.get().setTimeFinish(timeExam);
 //        }
+        examUser.get().setRemainingTime(examUserService.getRemainingTime(examUser.get()));
         return ResponseEntity.ok(examUser.get());
     }
 
     @GetMapping(value = "/exams/{examId}/questions")
     public ResponseEntity<ExamQuestionList> getAllQuestions(@PathVariable Long examId) throws IOException {
+//        Candidates all arrive at beginExam, only a bounded number per exam run at once
+        try (ExamAdmission admission = examAdmissionService.admit(examId)) {
+            return startExam(examId);
+        }
+    }
+
+    private ResponseEntity<ExamQuestionList> startExam(Long examId) throws IOException {
         String username = userService.getUserName();
         ExamQuestionList examQuestionList = new ExamQuestionList();
         Optional<Exam> exam = examService.getExamById(examId);
@@ -133,80 +171,32 @@ public class ExamController {
             return new ResponseEntity("Bài thi đang bị khoá hoặc chưa tới thời gian phù hợp", HttpStatus.BAD_REQUEST);
         }
         ExamUser examUser = examUserService.findByExamAndUser(examId, username);
-        examQuestionList.setRemainingTime(examUser.getRemainingTime());
+        ExamPaper examPaper = examPaperService.getPaper(exam.get());
         if (examUser.getIsStarted().equals(true)) {
 //            Get answersheet
             //            Convert question data json to array object
 
-            List<AnswerSheet> choiceUsers = convertAnswerJsonToObject(examUser);
-
-            List<Question> questions1 = new ArrayList<>();
-            choiceUsers.forEach(answerSheet1 -> {
-                Question question = questionService.getQuestionById(answerSheet1.getQuestionId()).get();
-                question.setChoices(answerSheet1.getChoices());
-                question.setPoint(answerSheet1.getPoint());
-                questions1.add(question);
-            });
-
-            examQuestionList.setQuestions(questions1);
+            List<AnswerSheet> choiceUsers = convertAnswerJsonToObject(examUser, examPaper);
+            examQuestionList.setQuestions(examPaperService.toQuestions(examPaper, choiceUsers));
             examQuestionList.setExam(exam.get());
             logger.error("case 1");
-        } else if (exam.get().isShuffle() == true) {
-            ObjectMapper mapper = new ObjectMapper();
-            String answerSheet = exam.get().getQuestionData();
-            List<ExamQuestionPoint> examQuestionPoints = mapper.readValue(answerSheet, new TypeReference<List<ExamQuestionPoint>>() {
-            });
-            Collections.shuffle(examQuestionPoints);
-//            save to answer sheet
-            List<Question> questions = questionService.getQuestionPointList(examQuestionPoints);
-            List<AnswerSheet> answerSheets = questionService.convertFromQuestionList(questions);
-            //            Convert answer sheet to json
-            String answerSheetConvertToJson = mapper.writeValueAsString(answerSheets);
-            examUser.setAnswerSheet(answerSheetConvertToJson);
-            examQuestionList.setExam(exam.get());
-            examUser.setIsStarted(true);
-            examUserService.update(examUser);
-
-            List<Question> questions1 = new ArrayList<>();
-            answerSheets.forEach(answerSheet1 -> {
-                Question question = questionService.getQuestionById(answerSheet1.getQuestionId()).get();
-                question.setChoices(answerSheet1.getChoices());
-                question.setPoint(answerSheet1.getPoint());
-                questions1.add(question);
-            });
-            examQuestionList.setQuestions(questions1);
-            examUser.setTimeStart(new Date());
-            examUserService.update(examUser);
-            logger.error("case 2");
-
         } else {
-            //            save to answer sheet
-//            convert question json to object list
-            ObjectMapper mapper = new ObjectMapper();
-            String answerSheet = exam.get().getQuestionData();
-            List<ExamQuestionPoint> examQuestionPoints = mapper.readValue(answerSheet, new TypeReference<List<ExamQuestionPoint>>() {
-            });
-
-            List<Question> questions = questionService.getQuestionPointList(examQuestionPoints);
-            List<AnswerSheet> answerSheets = questionService.convertFromQuestionList(questions);
-//            Convert answer sheet to json
-            String answerSheetConvertToJson = mapper.writeValueAsString(answerSheets);
-            examUser.setAnswerSheet(answerSheetConvertToJson);
+//            Only the seed is stored, the candidate's order is rebuilt from it and the shared paper
+            examUser.setShuffleSeed(answerSheetService.createSeed(exam.get().isShuffle()));
+            examUser.setAnswerSheet(null);
+            examUser.setAnswerData(null);
             examUser.setIsStarted(true);
             examUser.setTimeStart(new Date());
-            examUserService.update(examUser);
-            List<Question> questions1 = new ArrayList<>();
-            answerSheets.forEach(answerSheet1 -> {
-                Question question = questionService.getQuestionById(answerSheet1.getQuestionId()).get();
-                question.setChoices(answerSheet1.getChoices());
-                question.setPoint(answerSheet1.getPoint());
-                questions1.add(question);
-            });
-            examQuestionList.setQuestions(questions1);
+            examUser.setDeadline(examUserService.computeDeadline(exam.get(), examUser.getTimeStart()));
+            examUser.setRemainingTime(examUserService.getRemainingTime(examUser));
+            examUserService.start(examUser);
+            examEventService.publishStarted(examUser);
+            List<AnswerSheet> answerSheets = convertAnswerJsonToObject(examUser, examPaper);
+            examQuestionList.setQuestions(examPaperService.toQuestions(examPaper, answerSheets));
             examQuestionList.setExam(exam.get());
-            logger.error("case 3");
-
+            logger.error("case 2");
         }
+        examQuestionList.setRemainingTime(examUserService.getRemainingTime(examUser));
         return new ResponseEntity(examQuestionList, HttpStatus.OK);
 
     }
@@ -257,65 +247,115 @@ public class ExamController {
     }
 
     @PutMapping(value = "/exams/{examId}/questions-by-user")
-    public void saveUserExamAnswer(@RequestBody List<AnswerSheet> answerSheets, @PathVariable Long examId, @RequestParam boolean isFinish, @RequestParam int remainingTime) throws JsonProcessingException {
+    public void saveUserExamAnswer(@RequestBody List<AnswerSheet> answerSheets, @PathVariable Long examId, @RequestParam boolean isFinish, @RequestParam(required = false) Integer remainingTime) throws JsonProcessingException {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String username = auth.getName();
         Optional<ExamUser> examUser = Optional.ofNullable(examUserService.findByExamAndUser(examId, username));
         if (!examUser.isPresent()) {
             throw new EntityNotFoundException("Not found this exam");
         } else {
-            if (examUser.get().getIsFinished()) {
+            if (examUser.get().getIsFinished() || examUserService.isExpired(examUser.get())) {
 
                 throw new ExceptionInInitializerError("This exam was end");
             }
-            ObjectMapper mapper = new ObjectMapper();
-            String answerSheetConvertToJson = mapper.writeValueAsString(answerSheets);
-            examUser.get().setAnswerSheet(answerSheetConvertToJson);
+            ExamPaper examPaper = examPaperService.getPaper(examUser.get().getExam());
+            answerSheetService.setAnswerSheets(examUser.get(), examPaper, answerSheets);
             examUser.get().setIsFinished(isFinish);
             if (isFinish == true) {
                 examUser.get().setTimeFinish(new Date());
+//                Graded once here, the result pages read the stored outcome
+                gradingService.recordGrade(examUser.get(), examPaper);
+            }
+//            The client's remainingTime is ignored, the server clock decides
+            examUser.get().setRemainingTime(examUserService.getRemainingTime(examUser.get()));
+            if (isFinish) {
+                if (!examUserService.finish(examUser.get())) {
+                    throw new ExceptionInInitializerError("This exam was end");
+                }
+                questionStatsService.recordSheets(examPaper, Collections.singletonList(examUser.get()));
+                leaderboardService.record(examUser.get());
+                courseChartService.evict(username);
+                examEventService.publishSubmitted(examUser.get());
+            } else {
+                examUserService.autosave(examUser.get());
             }
-            examUser.get().setRemainingTime(remainingTime);
-            examUserService.update(examUser.get());
         }
 
     }
 
 
+    @PatchMapping(value = "/exams/{examId}/questions-by-user")
+    public ResponseEntity<?> saveUserExamAnswerDelta(@RequestBody AnswerSheetDelta answerSheetDelta, @PathVariable Long examId) {
+        String username = userService.getUserName();
+        ExamUser examUser = examUserService.findByExamAndUser(examId, username);
+        if (examUser == null) {
+            throw new EntityNotFoundException("Not found this exam");
+        }
+        if (examUser.getIsFinished() || examUserService.isExpired(examUser)) {
+            return ResponseEntity.badRequest().body(new ServiceResult(HttpStatus.BAD_REQUEST.value(), "This exam was end", null));
+        }
+//        Stale or replayed deltas are rejected before touching the stored sheet
+        if (answerSheetDelta.getSequence() <= examUser.getAnswerSequence()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ServiceResult(HttpStatus.CONFLICT.value(), "Stale answer sequence", examUser.getAnswerSequence()));
+        }
+//        The delta is written only over the sheet it was applied to, a concurrent delta makes one of them conflict
+        long expected = examUser.getAnswerSequence();
+        if (answerSheetDelta.getAnswers() != null && !answerSheetDelta.getAnswers().isEmpty()) {
+            answerSheetService.applyAnswerSheets(examUser, examPaperService.getPaper(examUser.getExam()), answerSheetDelta.getAnswers());
+        }
+        examUser.setRemainingTime(examUserService.getRemainingTime(examUser));
+        if (!examUserService.updateAnswerSheet(examUser, expected, answerSheetDelta.getSequence())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ServiceResult(HttpStatus.CONFLICT.value(), "Stale answer sequence", null));
+        }
+        return ResponseEntity.ok(new ServiceResult(HttpStatus.OK.value(), "Saved answer sequence", answerSheetDelta.getSequence()));
+    }
+
+    @GetMapping(value = "/exams/autosave/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public AutosaveBufferStats getAutosaveStats() {
+        return examUserService.getAutosaveStats();
+    }
+
+    @GetMapping(value = "/exams/admission/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public AdmissionStats getAdmissionStats() {
+        return examAdmissionService.getStats();
+    }
+
+    @GetMapping(value = "/exams/prewarm/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public PrewarmStats getPrewarmStats() {
+        return examPrewarmService.getStats();
+    }
+
     @GetMapping(value = "/exams/{examId}/result/all")
-    public ResponseEntity getResultExamAll(@PathVariable Long examId) throws IOException {
+    public ResponseEntity getResultExamAll(@PathVariable Long examId, @RequestParam(defaultValue = "false") boolean withChoices, @RequestParam(defaultValue = "false") boolean waitForGrading) throws IOException {
         List<ExamResult> examResults = new ArrayList<>();
         Optional<Exam> exam = examService.getExamById(examId);
         if (!exam.isPresent()) {
             return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
         }
         List<ExamUser> examUserList = examUserService.findAllByExam_Id(exam.get().getId());
-        List<ExamQuestionPoint> examQuestionPoints = convertQuestionJsonToObject(exam);
+        ExamPaper examPaper = examPaperService.getPaper(exam.get());
+//        Stored totals are served while a regrade of out of date sheets runs in the background, unless asked to wait for it
+        Map<Long, Double> totals = bulkGradingService.getTotals(exam.get(), waitForGrading);
         Date now = new Date();
         for (ExamUser examUser :
                 examUserList) {
             ExamResult examResult = new ExamResult();
             examResult.setExam(exam.get());
-            List<AnswerSheet> userChoices = convertAnswerJsonToObject(examUser);
-            if (userChoices.isEmpty()) {
+            if (!examUser.getIsStarted()) {
                 examResult.setTotalPoint(null);
                 examResult.setUser(examUser.getUser());
                 examResult.setExamStatus(0);
 
             } else {
-                List<ChoiceList> choiceLists = examService.getChoiceList(userChoices, examQuestionPoints);
-                examResult.setChoiceList(choiceLists);
-                Double totalPoint = 0.0;
-                for (ChoiceList choice : choiceLists) {
-                    if (choice.getIsSelectedCorrected().equals(true)) {
-                        totalPoint += choice.getPoint();
-                    }
-                }
-                examResult.setTotalPoint(totalPoint);
-                if (examUser.getTotalPoint() == -1) {
-                    examUser.setTotalPoint(totalPoint);
-                    examUserService.update(examUser);
+//                The list only needs totals, question details are built on request
+                if (withChoices) {
+                    examResult.setChoiceList(gradingService.getChoiceList(examUser, examPaper));
                 }
+                Double totalPoint = examUser.getIsFinished() ? totals.get(examUser.getId()) : null;
+                examResult.setTotalPoint(totalPoint != null ? totalPoint : gradingService.getTotalPoint(examUser, examPaper));
             }
 
             examResult.setUser(examUser.getUser());
@@ -335,6 +375,88 @@ public class ExamController {
         return new ResponseEntity(examResults, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/exams/{examId}/results")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<?> getResultPage(@PathVariable Long examId,
+                                           @RequestParam(defaultValue = "USERNAME") EResultSort sort,
+                                           @RequestParam(defaultValue = "true") boolean asc,
+                                           @RequestParam(required = false) EResultStatus status,
+                                           @RequestParam(required = false) String after,
+                                           @RequestParam(defaultValue = "20") int size) {
+        Optional<Exam> exam = examService.getExamById(examId);
+        if (!exam.isPresent()) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
+        }
+        try {
+            return ResponseEntity.ok(examResultService.getResultPage(exam.get(), sort, asc, status, after, size));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping(value = "/exams/{examId}/leaderboard")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<?> getLeaderboard(@PathVariable Long examId, @RequestParam(defaultValue = "10") int top, @RequestParam(defaultValue = "1") int bucketSize) {
+        Optional<Exam> exam = examService.getExamById(examId);
+        if (!exam.isPresent()) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(leaderboardService.getLeaderboard(exam.get(), Math.max(0, Math.min(top, 100)), bucketSize));
+    }
+
+    @GetMapping(value = "/exams/{examId}/rank")
+    public ResponseEntity<?> getUserRank(@PathVariable Long examId) {
+        String username = userService.getUserName();
+        ExamUser examUser = examUserService.findByExamAndUser(examId, username);
+        if (examUser == null) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
+        }
+        CandidateRank rank = leaderboardService.getRank(examUser.getExam(), examUser);
+        if (rank == null) {
+            return new ResponseEntity("Bạn chưa hoàn thành bài kiểm tra", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(rank);
+    }
+
+    @PostMapping(value = "/exams/{examId}/regrade")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<?> regradeExam(@PathVariable Long examId) {
+        Optional<Exam> exam = examService.getExamById(examId);
+        if (!exam.isPresent()) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.accepted().body(bulkGradingService.regrade(exam.get()));
+    }
+
+    @GetMapping(value = "/exams/{examId}/regrade")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<?> getRegradeProgress(@PathVariable Long examId) {
+        GradingProgress progress = bulkGradingService.getProgress(examId);
+        if (progress == null) {
+            return new ResponseEntity("Chưa chấm lại bài kiểm tra này", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    @GetMapping(value = "/exams/{examId}/result/export.csv")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public void exportResultToCSV(@PathVariable Long examId, HttpServletResponse response) throws IOException {
+        Exam exam = examService.getExamById(examId).orElseThrow(() -> new EntityNotFoundException("Not found this exam"));
+        response.setContentType("text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"exam-" + examId + "-result.csv\"");
+        examResultExportService.writeCsv(exam, response.getWriter());
+    }
+
+    @GetMapping(value = "/exams/{examId}/result/export.xlsx")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public void exportResultToXLSX(@PathVariable Long examId, HttpServletResponse response) throws IOException {
+        Exam exam = examService.getExamById(examId).orElseThrow(() -> new EntityNotFoundException("Not found this exam"));
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"exam-" + examId + "-result.xlsx\"");
+        examResultExportService.writeXlsx(exam, response.getOutputStream());
+    }
+
     @GetMapping(value = "/exams/{examId}/result/all/question-report")
     public ResponseEntity getResultExamQuestionsReport(@PathVariable Long examId) throws IOException {
 
@@ -343,47 +465,22 @@ public class ExamController {
             logger.error("NOT found");
             return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
         }
-        List<ExamUser> finishedExamUser = examUserService.findExamUsersByIsFinishedIsTrueAndExam_Id(examId);
-        if (finishedExamUser.size() == 0) {
+//        Counters are kept up to date as sheets are graded, so the report is one read
+        List<QuestionExamReport> questionExamReports = questionStatsService.getReport(examPaperService.getPaper(exam.get()));
+        if (questionExamReports.stream().allMatch(report -> report.getAttemptedTotal() == 0 && report.getCorrectTotal() == 0)) {
             return new ResponseEntity("Chưa có người dùng thực hiện bài kiểm tra", HttpStatus.OK);
         }
-        ExamUser firstExamUser = finishedExamUser.get(0);
-        List<QuestionExamReport> questionExamReports = new ArrayList<>();
-        List<ExamQuestionPoint> examQuestionPoints = convertQuestionJsonToObject(exam);
-//        convert answer sheet of first user
-        List<AnswerSheet> userChoicesFirstExam = convertAnswerJsonToObject(firstExamUser);
-//        get exam result of first user
-        List<ChoiceList> firstChoiceList = examService.getChoiceList(userChoicesFirstExam, examQuestionPoints);
-        for (ChoiceList choice : firstChoiceList) {
-            QuestionExamReport questionExamReport = new QuestionExamReport();
-            questionExamReport.setQuestion(choice.getQuestion());
-
-            if (choice.getIsSelectedCorrected().equals(true)) {
-                questionExamReport.setCorrectTotal(1);
-            } else {
-                questionExamReport.setCorrectTotal(0);
-            }
-            questionExamReports.add(questionExamReport);
-        }
+        return new ResponseEntity(questionExamReports, HttpStatus.OK);
+    }
 
-//        done for first user
-        if (questionExamReports.size() == 0) {
-            return new ResponseEntity(questionExamReports, HttpStatus.OK);
-        }
-        for (int i = 1; i < finishedExamUser.size(); i++) {
-            List<AnswerSheet> userChoices = convertAnswerJsonToObject(firstExamUser);
-//        get exam result of first user
-            List<ChoiceList> choiceList = examService.getChoiceList(userChoices, examQuestionPoints);
-            for (ChoiceList choice : firstChoiceList) {
-
-                List<QuestionExamReport> questionExamReportsList = questionExamReports.stream().filter(item -> item.getQuestion().getId() == choice.getQuestion().getId()).collect(Collectors.toList());
-                QuestionExamReport questionExamReport = questionExamReportsList.get(0);
-                if (choice.getIsSelectedCorrected().equals(true)) {
-                    questionExamReport.setCorrectTotal(questionExamReport.getCorrectTotal() + 1);
-                }
-            }
+    @GetMapping(value = "/exams/{examId}/item-analysis")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<?> getItemAnalysis(@PathVariable Long examId) {
+        Optional<Exam> exam = examService.getExamById(examId);
+        if (!exam.isPresent()) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity(questionExamReports, HttpStatus.OK);
+        return ResponseEntity.ok(itemAnalysisService.getItemAnalysis(exam.get()));
     }
 
     @GetMapping(value = "/exams/{examId}/result")
@@ -399,22 +496,10 @@ public class ExamController {
         examResult.setExam(exam.get());
 
 //        Set list question user's choice for examResult
-        List<ExamQuestionPoint> examQuestionPoints = convertQuestionJsonToObject(exam);
         ExamUser examUser = examUserService.findByExamAndUser(examId, username);
-        List<AnswerSheet> userChoices = convertAnswerJsonToObject(examUser);
-        List<ChoiceList> choiceLists = examService.getChoiceList(userChoices, examQuestionPoints);
-        examResult.setChoiceList(choiceLists);
-        Double totalPoint = 0.0;
-        for (ChoiceList choice : choiceLists) {
-            if (choice.getIsSelectedCorrected().equals(true)) {
-                totalPoint += choice.getPoint();
-            }
-        }
-        examResult.setTotalPoint(totalPoint);
-        if (examUser.getTotalPoint() == -1) {
-            examUser.setTotalPoint(totalPoint);
-            examUserService.update(examUser);
-        }
+        ExamPaper examPaper = examPaperService.getPaper(exam.get());
+        examResult.setChoiceList(gradingService.getChoiceList(examUser, examPaper));
+        examResult.setTotalPoint(gradingService.getTotalPoint(examUser, examPaper));
         return new ResponseEntity(examResult, HttpStatus.OK);
     }
 
@@ -431,39 +516,18 @@ public class ExamController {
         examResult.setUser(user);
 
 //        Set list question user's choice for examResult
-        List<ExamQuestionPoint> examQuestionPoints = convertQuestionJsonToObject(exam);
         ExamUser examUser = examUserService.findByExamAndUser(examId, username);
-        List<AnswerSheet> userChoices = convertAnswerJsonToObject(examUser);
-        List<ChoiceList> choiceLists = examService.getChoiceList(userChoices, examQuestionPoints);
-        examResult.setChoiceList(choiceLists);
-        Double totalPoint = 0.0;
-        for (ChoiceList choice : choiceLists) {
-            if (choice.getIsSelectedCorrected().equals(true)) {
-                totalPoint += choice.getPoint();
-            }
-        }
-        examResult.setTotalPoint(totalPoint);
-        if (examUser.getTotalPoint() == -1) {
-            examUser.setTotalPoint(totalPoint);
-            examUserService.update(examUser);
-        }
+        ExamPaper examPaper = examPaperService.getPaper(exam.get());
+        examResult.setChoiceList(gradingService.getChoiceList(examUser, examPaper));
+        examResult.setTotalPoint(gradingService.getTotalPoint(examUser, examPaper));
         examResult.setUserTimeFinish(examUser.getTimeFinish());
         examResult.setUserTimeBegin(examUser.getTimeStart());
         examResult.setRemainingTime(exam.get().getDurationExam() * 60 - examUser.getRemainingTime());
         return new ResponseEntity(examResult, HttpStatus.OK);
     }
 
-    public List<AnswerSheet> convertAnswerJsonToObject(ExamUser examUser) throws IOException {
-
-//        ObjectMapper mapper = new ObjectMapper();
-        if (Strings.isNullOrEmpty(examUser.getAnswerSheet())) {
-            return Collections.emptyList();
-        }
-
-        String answerSheet = examUser.getAnswerSheet();
-        List<AnswerSheet> choiceUsers = mapper.readValue(answerSheet, new TypeReference<List<AnswerSheet>>() {
-        });
-        return choiceUsers;
+    public List<AnswerSheet> convertAnswerJsonToObject(ExamUser examUser, ExamPaper examPaper) {
+        return answerSheetService.getAnswerSheets(examUser, examPaper);
     }
 
     @GetMapping(value = "/exam/{id}/question-text")
@@ -471,9 +535,11 @@ public class ExamController {
         Optional<Exam> exam = examService.getExamById(id);
         List<ExamQuestionPoint> examQuestionPoints = convertQuestionJsonToObject(exam);
         List<ExamDetail> questions = new ArrayList<>();
+        Map<Long, Question> questionMap = new HashMap<>();
+        questionService.getQuestionPointList(examQuestionPoints).forEach(question -> questionMap.put(question.getId(), question));
         examQuestionPoints.forEach(examQuestionPoint -> {
             ExamDetail examDetail = new ExamDetail();
-            Question question = questionService.getQuestionById(examQuestionPoint.getQuestionId()).get();
+            Question question = questionMap.get(examQuestionPoint.getQuestionId());
             examDetail.setQuestionText(question.getQuestionText());
             examDetail.setPoint(examQuestionPoint.getPoint());
             examDetail.setDifficultyLevel(question.getDifficultyLevel().toString());
@@ -0,0 +1,60 @@
+package com.thanhtam.backend.controller;
+
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.service.ExamEventService;
+import com.thanhtam.backend.service.ExamService;
+import com.thanhtam.backend.service.ExamUserService;
+import com.thanhtam.backend.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.Optional;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RequestMapping(value = "/api")
+@RestController
+@Slf4j
+public class ExamEventController {
+    private ExamEventService examEventService;
+    private ExamUserService examUserService;
+    private ExamService examService;
+    private UserService userService;
+
+    @Autowired
+    public ExamEventController(ExamEventService examEventService, ExamUserService examUserService, ExamService examService, UserService userService) {
+        this.examEventService = examEventService;
+        this.examUserService = examUserService;
+        this.examService = examService;
+        this.userService = userService;
+    }
+
+    @GetMapping(value = "/exams/{examId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeExamSession(@PathVariable Long examId) {
+        ExamUser examUser = examUserService.findByExamAndUser(examId, userService.getUserName());
+        if (examUser == null) {
+            throw new EntityNotFoundException("Not found this exam");
+        }
+        if (!examUser.getIsStarted() || examUser.getIsFinished()) {
+            return new ResponseEntity("Bài thi chưa bắt đầu hoặc đã kết thúc", HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(examEventService.subscribeCandidate(examUser));
+    }
+
+    @GetMapping(value = "/exams/{examId}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('LECTURER')")
+    public ResponseEntity<SseEmitter> subscribeExamLiveFeed(@PathVariable Long examId) {
+        Optional<Exam> exam = examService.getExamById(examId);
+        if (!exam.isPresent()) {
+            return new ResponseEntity("Không tìm thấy exam", HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(examEventService.subscribeLecturer(examId));
+    }
+}
@@ -1,7 +1,7 @@
 package com.thanhtam.backend.controller;
 
 import com.thanhtam.backend.dto.StatisticsDashboard;
-import com.thanhtam.backend.service.StatisticsService;
+import com.thanhtam.backend.service.StatisticsDashboardService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -14,25 +14,15 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 @Slf4j
 public class StatisticsController {
-    private StatisticsService statisticsService;
+    private StatisticsDashboardService statisticsDashboardService;
 
     @Autowired
-    public StatisticsController(StatisticsService statisticsService) {
-        this.statisticsService = statisticsService;
+    public StatisticsController(StatisticsDashboardService statisticsDashboardService) {
+        this.statisticsDashboardService = statisticsDashboardService;
     }
 
     @GetMapping(value = "/statistics")
     public StatisticsDashboard getStatistics() {
-        StatisticsDashboard statisticsDashboard = new StatisticsDashboard();
-        statisticsDashboard.setAccountTotal(statisticsService.countAccountTotal());
-        statisticsDashboard.setExamTotal(statisticsService.countExamTotal());
-        statisticsDashboard.setExamUserTotal(statisticsService.countExamUserTotal());
-        statisticsDashboard.setQuestionTotal(statisticsService.countQuestionTotal());
-        statisticsDashboard.setChangeQuestion(statisticsService.getChangeQuestion());
-        statisticsDashboard.setChangeExam(statisticsService.getChangeExam());
-        statisticsDashboard.setChangeAccount(statisticsService.getChangeAccount());
-        statisticsDashboard.setChangeExamUser(statisticsService.getChangeExamUser());
-        statisticsDashboard.setExamUserLastedSevenDaysTotal(statisticsService.countExamUserLastedSevenDaysTotal());
-        return statisticsDashboard;
+        return statisticsDashboardService.getDashboard();
     }
 }
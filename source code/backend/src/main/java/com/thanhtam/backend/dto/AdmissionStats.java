@@ -0,0 +1,21 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionStats {
+    private int permitsPerExam;
+    private int queueSizePerExam;
+    private int activeExams;
+    private int inFlight;
+    private int waiting;
+    private long admitted;
+    private long rejected;
+    private long averageWaitMillis;
+    private long maxWaitMillis;
+    private long averageHoldMillis;
+}
@@ -0,0 +1,83 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.entity.Choice;
+
+import java.util.*;
+
+/**
+ * Correct answers of a set of choices, kept in arrays sorted by choice id and searched with binary search.
+ */
+public class AnswerKey {
+    private final long[] choiceIds;
+    private final boolean[] corrected;
+    private final String[] choiceTexts;
+
+    private AnswerKey(long[] choiceIds, boolean[] corrected, String[] choiceTexts) {
+        this.choiceIds = choiceIds;
+        this.corrected = corrected;
+        this.choiceTexts = choiceTexts;
+    }
+
+    public static AnswerKey of(List<Choice> choices) {
+        List<Choice> sorted = new ArrayList<>(choices);
+        sorted.sort(Comparator.comparing(Choice::getId));
+        long[] ids = new long[sorted.size()];
+        boolean[] corrected = new boolean[sorted.size()];
+        String[] texts = new String[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            ids[i] = sorted.get(i).getId();
+            corrected[i] = sorted.get(i).getIsCorrected() == 1;
+            texts[i] = sorted.get(i).getChoiceText();
+        }
+        return new AnswerKey(ids, corrected, texts);
+    }
+
+    public static AnswerKey merge(Collection<AnswerKey> keys) {
+        int size = keys.stream().mapToInt(AnswerKey::size).sum();
+        long[] ids = new long[size];
+        boolean[] allCorrected = new boolean[size];
+        String[] allTexts = new String[size];
+        int position = 0;
+        for (AnswerKey key : keys) {
+            System.arraycopy(key.choiceIds, 0, ids, position, key.size());
+            System.arraycopy(key.corrected, 0, allCorrected, position, key.size());
+            System.arraycopy(key.choiceTexts, 0, allTexts, position, key.size());
+            position += key.size();
+        }
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingLong(i -> ids[i]));
+        long[] sortedIds = new long[size];
+        boolean[] corrected = new boolean[size];
+        String[] texts = new String[size];
+        for (int i = 0; i < size; i++) {
+            sortedIds[i] = ids[indexes[i]];
+            corrected[i] = allCorrected[indexes[i]];
+            texts[i] = allTexts[indexes[i]];
+        }
+        return new AnswerKey(sortedIds, corrected, texts);
+    }
+
+    public int size() {
+        return choiceIds.length;
+    }
+
+    public boolean contains(long choiceId) {
+        return Arrays.binarySearch(choiceIds, choiceId) >= 0;
+    }
+
+    /**
+     * 1 when the choice is correct, 0 when it is not, null for a choice outside this key.
+     */
+    public Integer isCorrected(long choiceId) {
+        int index = Arrays.binarySearch(choiceIds, choiceId);
+        return index < 0 ? null : (corrected[index] ? 1 : 0);
+    }
+
+    public String getChoiceText(long choiceId) {
+        int index = Arrays.binarySearch(choiceIds, choiceId);
+        return index < 0 ? null : choiceTexts[index];
+    }
+}
@@ -0,0 +1,17 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerSelection {
+    private Long questionId;
+    private List<Long> choiceIds;
+    //    Only used by TF questions, holds "True" or "False"
+    private String answerText;
+}
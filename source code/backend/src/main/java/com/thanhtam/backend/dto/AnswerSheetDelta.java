@@ -0,0 +1,16 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerSheetDelta {
+    private long sequence;
+    //    Only the questions whose selection changed since the last accepted delta
+    private List<AnswerSheet> answers;
+}
@@ -0,0 +1,18 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AutosaveBufferStats {
+    private boolean enabled;
+    private int bufferDepth;
+    private long flushCount;
+    private long flushedRows;
+    private long lastFlushMillis;
+    private long maxFlushMillis;
+    private long totalFlushMillis;
+}
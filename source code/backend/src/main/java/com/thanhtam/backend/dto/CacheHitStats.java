@@ -0,0 +1,15 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheHitStats {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+}
@@ -0,0 +1,16 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandidateRank {
+    private String username;
+    private Double totalPoint;
+    private int rank;
+    private int candidates;
+    private double percentile;
+}
@@ -0,0 +1,15 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChoiceRate {
+    private Long choiceId;
+    private String choiceText;
+    private boolean corrected;
+    private double selectionRate;
+}
@@ -0,0 +1,234 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.ultilities.EQTypeCode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An exam's answer key compiled against its paper: per question index, the bitmask of correct choices
+ * and whether every correct choice must be selected (MS) or any one is enough (TF, MC).
+ * Choice bits follow the paper's choice order, TF questions use bit 0 for "True" and bit 1 for "False",
+ * the same layout as the stored answer data.
+ */
+public final class CompiledExamKey {
+    public static final long TF_TRUE = 1L;
+    public static final long TF_FALSE = 1L << 1;
+
+    private final Long examId;
+    private final long keyVersion;
+    private final long[] questionIds;
+    private final long[] correctMasks;
+    private final boolean[] requireAll;
+    private final int[] points;
+    //    Identifies the grading rules themselves, stored with each graded sheet and stable across restarts
+    private final long fingerprint;
+    //    The last different key this one replaced, and which question indexes differ from it (null when unknown)
+    private final long previousFingerprint;
+    private final int[] changedQuestions;
+
+    private CompiledExamKey(Long examId, long keyVersion, long[] questionIds, long[] correctMasks, boolean[] requireAll, int[] points) {
+        this(examId, keyVersion, questionIds, correctMasks, requireAll, points, fingerprint(questionIds, correctMasks, requireAll, points), null);
+    }
+
+    private CompiledExamKey(Long examId, long keyVersion, long[] questionIds, long[] correctMasks, boolean[] requireAll, int[] points, long previousFingerprint, int[] changedQuestions) {
+        this.examId = examId;
+        this.keyVersion = keyVersion;
+        this.questionIds = questionIds;
+        this.correctMasks = correctMasks;
+        this.requireAll = requireAll;
+        this.points = points;
+        this.fingerprint = fingerprint(questionIds, correctMasks, requireAll, points);
+        this.previousFingerprint = previousFingerprint;
+        this.changedQuestions = changedQuestions;
+    }
+
+    public static CompiledExamKey compile(ExamPaper paper, AnswerKey answerKey, long keyVersion) {
+        List<PaperQuestion> questions = paper.getQuestions();
+        int size = questions.size();
+        long[] questionIds = new long[size];
+        long[] correctMasks = new long[size];
+        boolean[] requireAll = new boolean[size];
+        int[] points = new int[size];
+        for (int i = 0; i < size; i++) {
+            PaperQuestion question = questions.get(i);
+            questionIds[i] = question.getQuestionId();
+            points[i] = question.getPoint() == null ? 0 : question.getPoint();
+            List<PaperChoice> choices = question.getChoices();
+            if (question.getTypeCode() == EQTypeCode.TF) {
+                String text = choices.isEmpty() ? null : answerKey.getChoiceText(choices.get(0).getId());
+                if ("True".equalsIgnoreCase(text)) {
+                    correctMasks[i] = TF_TRUE;
+                } else if ("False".equalsIgnoreCase(text)) {
+                    correctMasks[i] = TF_FALSE;
+                }
+                continue;
+            }
+            requireAll[i] = question.getTypeCode() == EQTypeCode.MS;
+            for (int c = 0; c < choices.size() && c < 64; c++) {
+                Integer corrected = answerKey.isCorrected(choices.get(c).getId());
+                if (corrected != null && corrected == 1) {
+                    correctMasks[i] |= 1L << c;
+                }
+            }
+        }
+        return new CompiledExamKey(paper.getExamId(), keyVersion, questionIds, correctMasks, requireAll, points);
+    }
+
+    /**
+     * This key remembering what it replaced, so sheets graded with the previous key can be regraded
+     * on the changed questions only.
+     */
+    public CompiledExamKey since(CompiledExamKey previous) {
+        if (previous == null) {
+            return this;
+        }
+        if (previous.fingerprint == fingerprint) {
+            return new CompiledExamKey(examId, keyVersion, questionIds, correctMasks, requireAll, points, previous.previousFingerprint, previous.changedQuestions);
+        }
+        int[] changed = null;
+        if (Arrays.equals(previous.questionIds, questionIds)) {
+            changed = IntStream.range(0, questionIds.length)
+                    .filter(i -> previous.correctMasks[i] != correctMasks[i] || previous.requireAll[i] != requireAll[i] || previous.points[i] != points[i])
+                    .toArray();
+        }
+        return new CompiledExamKey(examId, keyVersion, questionIds, correctMasks, requireAll, points, previous.fingerprint, changed);
+    }
+
+    /**
+     * Grades one sheet given as a selected-choice mask per question index.
+     *
+     * @param selected mask per question index, 0 when the question was not answered
+     * @param outcome  optional bitset, bit i is set when question i is answered correctly
+     * @return the total point
+     */
+    public int grade(long[] selected, long[] outcome) {
+        int total = 0;
+        for (int i = 0; i < correctMasks.length; i++) {
+            if (isCorrect(i, selected[i])) {
+                total += points[i];
+                if (outcome != null) {
+                    outcome[i >>> 6] |= 1L << i;
+                }
+            } else if (outcome != null) {
+                outcome[i >>> 6] &= ~(1L << i);
+            }
+        }
+        return total;
+    }
+
+    public boolean isCorrect(int index, long selected) {
+        long correct = correctMasks[index];
+        return requireAll[index] ? (correct & ~selected) == 0 : (correct & selected) != 0;
+    }
+
+    /**
+     * The total point of a stored outcome, summed over its correct questions.
+     */
+    public int getTotal(byte[] outcome) {
+        int total = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (isCorrect(outcome, i)) {
+                total += points[i];
+            }
+        }
+        return total;
+    }
+
+    public static int outcomeWords(int questionCount) {
+        return (questionCount + 63) >>> 6;
+    }
+
+    /**
+     * Packs an outcome bitset into bytes for exam_user.grade_data, bit i of the sheet in byte i / 8.
+     */
+    public static byte[] toOutcomeBytes(long[] outcome, int questionCount) {
+        byte[] data = new byte[(questionCount + 7) >>> 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (outcome[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return data;
+    }
+
+    public static boolean isCorrect(byte[] outcome, int index) {
+        return index >= 0 && (index >>> 3) < outcome.length && (outcome[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    public static void setCorrect(byte[] outcome, int index, boolean correct) {
+        if (correct) {
+            outcome[index >>> 3] |= 1 << (index & 7);
+        } else {
+            outcome[index >>> 3] &= ~(1 << (index & 7));
+        }
+    }
+
+    public boolean matches(ExamPaper paper, long version) {
+        if (version != keyVersion || paper.getQuestions().size() != questionIds.length) {
+            return false;
+        }
+        for (int i = 0; i < questionIds.length; i++) {
+            if (paper.getQuestions().get(i).getQuestionId() != questionIds[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long fingerprint(long[] questionIds, long[] correctMasks, boolean[] requireAll, int[] points) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < questionIds.length; i++) {
+            hash = mix(hash, questionIds[i]);
+            hash = mix(hash, correctMasks[i]);
+            hash = mix(hash, requireAll[i] ? 1 : 0);
+            hash = mix(hash, points[i]);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+
+    public Long getExamId() {
+        return examId;
+    }
+
+    public long getKeyVersion() {
+        return keyVersion;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public long getPreviousFingerprint() {
+        return previousFingerprint;
+    }
+
+    public int[] getChangedQuestions() {
+        return changedQuestions;
+    }
+
+    public int getQuestionCount() {
+        return questionIds.length;
+    }
+
+    public int getPoint(int index) {
+        return points[index];
+    }
+
+    public long getCorrectMask(int index) {
+        return correctMasks[index];
+    }
+
+    public int getMaxScore() {
+        int maxScore = 0;
+        for (int point : points) {
+            maxScore += point;
+        }
+        return maxScore;
+    }
+}
@@ -0,0 +1,18 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamEvent {
+    //    tick, started, submitted, forced-submit or canceled
+    private String type;
+    private Long examId;
+    private String username;
+    private long serverTime;
+    private Integer remainingTime;
+    private Double totalPoint;
+}
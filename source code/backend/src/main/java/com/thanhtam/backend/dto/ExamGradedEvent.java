@@ -0,0 +1,13 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published when graded sheets of an exam were stored, so results derived from all its sheets can be dropped.
+ */
+@Data
+@AllArgsConstructor
+public class ExamGradedEvent {
+    private Long examId;
+}
@@ -0,0 +1,17 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamLeaderboard {
+    private Long examId;
+    private int candidates;
+    private List<LeaderboardEntry> top;
+    private List<ScoreBucket> histogram;
+}
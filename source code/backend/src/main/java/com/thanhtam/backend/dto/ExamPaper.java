@@ -0,0 +1,64 @@
+package com.thanhtam.backend.dto;
+
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Read-only copy of an exam's questions, shared by every candidate of the exam.
+ * Choices carry no correctness information. The fingerprint covers the question and choice ids in paper order,
+ * which is all that positions in version 2 answer data refer to.
+ */
+@Getter
+public class ExamPaper {
+    private final Long examId;
+    private final Date finishExam;
+    private final List<PaperQuestion> questions;
+    private final Map<Long, PaperQuestion> questionMap;
+    private final Map<Long, Integer> indexMap;
+    private final long fingerprint;
+
+    public ExamPaper(Long examId, Date finishExam, List<PaperQuestion> questions) {
+        this.examId = examId;
+        this.finishExam = finishExam;
+        this.questions = Collections.unmodifiableList(new ArrayList<>(questions));
+        Map<Long, PaperQuestion> map = new HashMap<>();
+        Map<Long, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < questions.size(); i++) {
+            map.put(questions.get(i).getQuestionId(), questions.get(i));
+            indexes.put(questions.get(i).getQuestionId(), i);
+        }
+        this.questionMap = Collections.unmodifiableMap(map);
+        this.indexMap = Collections.unmodifiableMap(indexes);
+        this.fingerprint = fingerprint(questions);
+    }
+
+    public PaperQuestion getQuestion(Long questionId) {
+        return questionMap.get(questionId);
+    }
+
+    /**
+     * Position of the question on the paper, or -1 when it is not on it.
+     */
+    public int getQuestionIndex(Long questionId) {
+        return indexMap.getOrDefault(questionId, -1);
+    }
+
+    private static long fingerprint(List<PaperQuestion> questions) {
+        long hash = 0xcbf29ce484222325L;
+        for (PaperQuestion question : questions) {
+            hash = mix(hash, question.getQuestionId());
+            hash = mix(hash, question.getChoices().size());
+            for (PaperChoice choice : question.getChoices()) {
+                hash = mix(hash, choice.getId() == null ? 0 : choice.getId());
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+}
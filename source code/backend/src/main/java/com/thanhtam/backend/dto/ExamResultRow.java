@@ -0,0 +1,24 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * One candidate's line of an exam result export. The outcome holds a bit per paper question, null when not started.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamResultRow {
+    private String username;
+    private String firstName;
+    private String lastName;
+    private String status;
+    private Date timeStart;
+    private Date timeFinish;
+    private Double totalPoint;
+    private byte[] outcome;
+}
@@ -0,0 +1,22 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.ultilities.EResultStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamResultSummary {
+    private String username;
+    private String firstName;
+    private String lastName;
+    private EResultStatus status;
+    private Date timeStart;
+    private Date timeFinish;
+    //    Only set once the sheet is finished and graded
+    private Double totalPoint;
+}
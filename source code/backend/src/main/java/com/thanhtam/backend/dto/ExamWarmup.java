@@ -0,0 +1,22 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamWarmup {
+    private Long examId;
+    private String title;
+    private Date beginExam;
+    //    WARMING, DONE or FAILED
+    private String status;
+    private int participants;
+    private int warmedParticipants;
+    private Date startedAt;
+    private Date finishedAt;
+}
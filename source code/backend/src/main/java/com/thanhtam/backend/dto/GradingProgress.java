@@ -0,0 +1,20 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradingProgress {
+    private Long examId;
+    private boolean running;
+    private int total;
+    private int graded;
+    private int updated;
+    private Date startedAt;
+    private Date finishedAt;
+}
@@ -0,0 +1,23 @@
+package com.thanhtam.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemAnalysis {
+    private Long examId;
+    private long sheetCount;
+    private double meanPoint;
+    private double pointStdDev;
+    private List<ItemStatistics> items;
+    private Date computedAt;
+    @JsonIgnore
+    private long keyFingerprint;
+}
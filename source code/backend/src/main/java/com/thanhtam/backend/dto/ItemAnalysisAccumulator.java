@@ -0,0 +1,185 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.ultilities.EQTypeCode;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Sums over graded sheets for item analysis. Memory depends on the paper only: per question the correct count,
+ * the point sum of those answering correctly, choice selections and correct counts by total point.
+ * Accumulators of the same paper merge, so partitions of an exam's sheets can be summed in parallel.
+ */
+public final class ItemAnalysisAccumulator {
+    private static final double GROUP_SHARE = 0.27;
+
+    private final int questionCount;
+    private final int maxScore;
+    private final int[] choiceOffsets;
+    private long sheets;
+    private double pointSum;
+    private double pointSquareSum;
+    private final long[] correct;
+    private final double[] correctPointSum;
+    private final long[] selected;
+    private final long[] sheetsByPoint;
+    //    Correct count of question i among sheets with total point s at i * (maxScore + 1) + s
+    private final long[] correctByPoint;
+
+    public ItemAnalysisAccumulator(ExamPaper paper, CompiledExamKey key) {
+        List<PaperQuestion> questions = paper.getQuestions();
+        questionCount = questions.size();
+        maxScore = key.getMaxScore();
+        choiceOffsets = new int[questionCount + 1];
+        for (int i = 0; i < questionCount; i++) {
+            PaperQuestion question = questions.get(i);
+            int choices = question.getTypeCode() == EQTypeCode.TF ? 2 : Math.min(question.getChoices().size(), 64);
+            choiceOffsets[i + 1] = choiceOffsets[i] + choices;
+        }
+        correct = new long[questionCount];
+        correctPointSum = new double[questionCount];
+        selected = new long[choiceOffsets[questionCount]];
+        sheetsByPoint = new long[maxScore + 1];
+        correctByPoint = new long[questionCount * (maxScore + 1)];
+    }
+
+    /**
+     * @param masks   selected-choice mask per question index
+     * @param outcome correctness bitset as filled by CompiledExamKey.grade
+     * @param point   the sheet's total point
+     */
+    public void add(long[] masks, long[] outcome, int point) {
+        int bucket = Math.min(Math.max(point, 0), maxScore);
+        sheets++;
+        pointSum += point;
+        pointSquareSum += (double) point * point;
+        sheetsByPoint[bucket]++;
+        for (int i = 0; i < questionCount; i++) {
+            if ((outcome[i >>> 6] & (1L << i)) != 0) {
+                correct[i]++;
+                correctPointSum[i] += point;
+                correctByPoint[i * (maxScore + 1) + bucket]++;
+            }
+            long mask = masks[i];
+            for (int c = choiceOffsets[i]; mask != 0 && c < choiceOffsets[i + 1]; c++) {
+                if ((mask & (1L << (c - choiceOffsets[i]))) != 0) {
+                    selected[c]++;
+                }
+            }
+        }
+    }
+
+    public ItemAnalysisAccumulator merge(ItemAnalysisAccumulator other) {
+        sheets += other.sheets;
+        pointSum += other.pointSum;
+        pointSquareSum += other.pointSquareSum;
+        for (int i = 0; i < questionCount; i++) {
+            correct[i] += other.correct[i];
+            correctPointSum[i] += other.correctPointSum[i];
+        }
+        for (int c = 0; c < selected.length; c++) {
+            selected[c] += other.selected[c];
+        }
+        for (int s = 0; s < sheetsByPoint.length; s++) {
+            sheetsByPoint[s] += other.sheetsByPoint[s];
+        }
+        for (int k = 0; k < correctByPoint.length; k++) {
+            correctByPoint[k] += other.correctByPoint[k];
+        }
+        return this;
+    }
+
+    public long getSheets() {
+        return sheets;
+    }
+
+    public double getMeanPoint() {
+        return sheets == 0 ? 0 : pointSum / sheets;
+    }
+
+    public double getPointStdDev() {
+        if (sheets == 0) {
+            return 0;
+        }
+        double mean = pointSum / sheets;
+        return Math.sqrt(Math.max(0, pointSquareSum / sheets - mean * mean));
+    }
+
+    public double getDifficulty(int index) {
+        return sheets == 0 ? 0 : (double) correct[index] / sheets;
+    }
+
+    /**
+     * (M1 - M0) / s * sqrt(p * q), M1 and M0 the mean total point of candidates answering right and wrong.
+     */
+    public double getPointBiserial(int index) {
+        double deviation = getPointStdDev();
+        long right = correct[index];
+        long wrong = sheets - right;
+        if (deviation == 0 || right == 0 || wrong == 0) {
+            return 0;
+        }
+        double rightMean = correctPointSum[index] / right;
+        double wrongMean = (pointSum - correctPointSum[index]) / wrong;
+        double p = (double) right / sheets;
+        return (rightMean - wrongMean) / deviation * Math.sqrt(p * (1 - p));
+    }
+
+    /**
+     * Upper minus lower 27% group correct share. Candidates tied on the group boundary count in proportion.
+     */
+    public double getDiscrimination(int index) {
+        double groupSize = sheets * GROUP_SHARE;
+        if (groupSize == 0) {
+            return 0;
+        }
+        return (groupCorrect(index, groupSize, true) - groupCorrect(index, groupSize, false)) / groupSize;
+    }
+
+    public double getSelectionRate(int index, int choice) {
+        return sheets == 0 ? 0 : (double) selected[choiceOffsets[index] + choice] / sheets;
+    }
+
+    public int getChoiceCount(int index) {
+        return choiceOffsets[index + 1] - choiceOffsets[index];
+    }
+
+    public ItemAnalysis toItemAnalysis(ExamPaper paper, CompiledExamKey key) {
+        List<ItemStatistics> items = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            PaperQuestion question = paper.getQuestions().get(i);
+            List<ChoiceRate> choices = new ArrayList<>();
+            long correctMask = key.getCorrectMask(i);
+            for (int c = 0; c < getChoiceCount(i); c++) {
+                boolean corrected = (correctMask & (1L << c)) != 0;
+                if (question.getTypeCode() == EQTypeCode.TF) {
+                    Long choiceId = question.getChoices().isEmpty() ? null : question.getChoices().get(0).getId();
+                    choices.add(new ChoiceRate(choiceId, c == 0 ? "True" : "False", corrected, getSelectionRate(i, c)));
+                } else {
+                    PaperChoice choice = question.getChoices().get(c);
+                    choices.add(new ChoiceRate(choice.getId(), choice.getChoiceText(), corrected, getSelectionRate(i, c)));
+                }
+            }
+            items.add(new ItemStatistics(question.getQuestionId(), getDifficulty(i), getPointBiserial(i), getDiscrimination(i), choices));
+        }
+        return new ItemAnalysis(paper.getExamId(), sheets, getMeanPoint(), getPointStdDev(), items, new Date(), key.getFingerprint());
+    }
+
+    private double groupCorrect(int index, double groupSize, boolean upper) {
+        double taken = 0;
+        double groupCorrect = 0;
+        int row = index * (maxScore + 1);
+        for (int k = 0; k <= maxScore && taken < groupSize; k++) {
+            int point = upper ? maxScore - k : k;
+            long count = sheetsByPoint[point];
+            if (count == 0) {
+                continue;
+            }
+            double share = Math.min(1, (groupSize - taken) / count);
+            taken += count * share;
+            groupCorrect += correctByPoint[row + point] * share;
+        }
+        return groupCorrect;
+    }
+}
@@ -0,0 +1,20 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemStatistics {
+    private Long questionId;
+    //    Share of candidates answering correctly (p-value)
+    private double difficulty;
+    private double pointBiserial;
+    //    Correct share of the top 27% by total point minus that of the bottom 27%
+    private double discrimination;
+    private List<ChoiceRate> choices;
+}
@@ -0,0 +1,11 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PaperChoice {
+    private final Long id;
+    private final String choiceText;
+}
@@ -0,0 +1,21 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PaperQuestion {
+    private final Long questionId;
+    private final String questionText;
+    private final DifficultyLevel difficultyLevel;
+    private final Long questionTypeId;
+    private final EQTypeCode typeCode;
+    private final String typeDescription;
+    private final Integer point;
+    private final List<PaperChoice> choices;
+}
@@ -0,0 +1,17 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrewarmStats {
+    private List<ExamWarmup> exams;
+    private CacheHitStats paperCache;
+    private CacheHitStats answerKeyCache;
+    private CacheHitStats userDetailsCache;
+}
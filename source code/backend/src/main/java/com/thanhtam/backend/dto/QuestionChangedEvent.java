@@ -0,0 +1,13 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published after a question was saved, its answer key or point may differ from what graded sheets used.
+ */
+@Data
+@AllArgsConstructor
+public class QuestionChangedEvent {
+    private Long questionId;
+}
@@ -5,11 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class QuestionExamReport {
     private Question question;
     private int correctTotal;
+    private int attemptedTotal;
+    private List<ChoiceCount> choiceCounts;
 
 }
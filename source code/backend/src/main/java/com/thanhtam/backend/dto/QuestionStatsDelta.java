@@ -0,0 +1,103 @@
+package com.thanhtam.backend.dto;
+
+import com.thanhtam.backend.ultilities.EQTypeCode;
+
+import java.util.List;
+
+/**
+ * Counter increments of one exam's questions, summed over a batch of graded sheets and written in one go.
+ * Partial deltas of the same paper can be merged, so parallel grading keeps one per task.
+ */
+public final class QuestionStatsDelta {
+    private final long[] attempted;
+    private final long[] correct;
+    //    Selected counts of question i start at choiceOffsets[i], one slot per choice bit
+    private final int[] choiceOffsets;
+    private final long[] selected;
+
+    public QuestionStatsDelta(ExamPaper paper) {
+        List<PaperQuestion> questions = paper.getQuestions();
+        attempted = new long[questions.size()];
+        correct = new long[questions.size()];
+        choiceOffsets = new int[questions.size() + 1];
+        for (int i = 0; i < questions.size(); i++) {
+            PaperQuestion question = questions.get(i);
+            int choices = question.getTypeCode() == EQTypeCode.TF ? 2 : Math.min(question.getChoices().size(), 64);
+            choiceOffsets[i + 1] = choiceOffsets[i] + choices;
+        }
+        selected = new long[choiceOffsets[questions.size()]];
+    }
+
+    /**
+     * Counts a sheet graded for the first time.
+     */
+    public void addSheet(long[] masks, byte[] outcome) {
+        for (int i = 0; i < attempted.length; i++) {
+            long mask = masks[i];
+            if (mask != 0) {
+                attempted[i]++;
+                for (int c = choiceOffsets[i]; c < choiceOffsets[i + 1]; c++) {
+                    if ((mask & (1L << (c - choiceOffsets[i]))) != 0) {
+                        selected[c]++;
+                    }
+                }
+            }
+            if (CompiledExamKey.isCorrect(outcome, i)) {
+                correct[i]++;
+            }
+        }
+    }
+
+    /**
+     * Counts a sheet graded again, only correctness can change.
+     */
+    public void addRegrade(byte[] previous, byte[] outcome) {
+        for (int i = 0; i < correct.length; i++) {
+            boolean was = CompiledExamKey.isCorrect(previous, i);
+            boolean is = CompiledExamKey.isCorrect(outcome, i);
+            if (was != is) {
+                correct[i] += is ? 1 : -1;
+            }
+        }
+    }
+
+    public QuestionStatsDelta merge(QuestionStatsDelta other) {
+        for (int i = 0; i < attempted.length; i++) {
+            attempted[i] += other.attempted[i];
+            correct[i] += other.correct[i];
+        }
+        for (int c = 0; c < selected.length; c++) {
+            selected[c] += other.selected[c];
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < attempted.length; i++) {
+            if (attempted[i] != 0 || correct[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getQuestionCount() {
+        return attempted.length;
+    }
+
+    public long getAttempted(int index) {
+        return attempted[index];
+    }
+
+    public long getCorrect(int index) {
+        return correct[index];
+    }
+
+    public int getChoiceCount(int index) {
+        return choiceOffsets[index + 1] - choiceOffsets[index];
+    }
+
+    public long getSelected(int index, int choice) {
+        return selected[choiceOffsets[index] + choice];
+    }
+}
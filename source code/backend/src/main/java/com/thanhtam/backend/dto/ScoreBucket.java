@@ -0,0 +1,17 @@
+package com.thanhtam.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Candidates whose total is between from and to, both inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreBucket {
+    private int from;
+    private int to;
+    private long count;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
 import java.util.List;
 
 @Data
@@ -19,4 +20,7 @@ public class StatisticsDashboard {
     private Double changeQuestion;
     private Double changeExamUser;
     private List<Long> examUserLastedSevenDaysTotal;
+    //    When the snapshot was computed, and how old it was when served
+    private Date generatedAt;
+    private long ageMillis;
 }
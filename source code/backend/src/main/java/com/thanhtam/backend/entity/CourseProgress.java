@@ -0,0 +1,74 @@
+package com.thanhtam.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * A student's graded attempts in one course, updated as each attempt is graded.
+ * Attempts are also counted per week, for the latest week with an attempt and the week before it.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "course_progress", uniqueConstraints = @UniqueConstraint(name = "uk_course_progress_user_course", columnNames = {"user_id", "course_id"}))
+public class CourseProgress {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "completed_exams", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long completedExams;
+
+    @Column(name = "score_total", columnDefinition = "DOUBLE NOT NULL DEFAULT 0")
+    private double scoreTotal;
+
+    @Column(name = "best_score")
+    private Double bestScore;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "last_activity")
+    private Date lastActivity;
+
+    //    Monday of the week week_count belongs to, previous_week_count is the week before it
+    @Temporal(TemporalType.DATE)
+    @Column(name = "week_start")
+    private Date weekStart;
+
+    @Column(name = "week_count", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long weekCount;
+
+    @Column(name = "previous_week_count", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long previousWeekCount;
+
+    public Double getAverageScore() {
+        return completedExams == 0 ? null : scoreTotal / completedExams;
+    }
+
+    /**
+     * Attempts graded in the week starting on the given Monday, only the two latest weeks are known.
+     */
+    public long countInWeek(LocalDate monday) {
+        if (weekStart == null) {
+            return 0;
+        }
+        LocalDate start = weekStart instanceof java.sql.Date ? ((java.sql.Date) weekStart).toLocalDate() : weekStart.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        if (monday.equals(start)) {
+            return weekCount;
+        }
+        return monday.equals(start.minusWeeks(1)) ? previousWeekCount : 0;
+    }
+}
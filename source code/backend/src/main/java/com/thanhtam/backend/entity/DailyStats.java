@@ -0,0 +1,53 @@
+package com.thanhtam.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Platform counters of one day, incremented as the counted rows are written.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "daily_stats", uniqueConstraints = @UniqueConstraint(name = "uk_daily_stats_day", columnNames = "day"))
+public class DailyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Temporal(TemporalType.DATE)
+    @Column(name = "day", nullable = false)
+    private Date day;
+
+    @Column(name = "exams_created", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long examsCreated;
+
+    //    Counted on the day the exam was created, like the dashboard's exam change
+    @Column(name = "exams_canceled", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long examsCanceled;
+
+    @Column(name = "questions_created", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long questionsCreated;
+
+    @Column(name = "accounts_created", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long accountsCreated;
+
+    @Column(name = "attempts_started", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long attemptsStarted;
+
+    @Column(name = "attempts_finished", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long attemptsFinished;
+
+    @Column(name = "score_total", columnDefinition = "DOUBLE NOT NULL DEFAULT 0")
+    private double scoreTotal;
+
+    public Double getAverageScore() {
+        return attemptsFinished == 0 ? null : scoreTotal / attemptsFinished;
+    }
+}
@@ -11,7 +11,7 @@ import java.io.Serializable;
 import java.util.*;
 
 @Entity
-@Table(name = "exam")
+@Table(name = "exam", indexes = @Index(name = "idx_exam_created_date", columnList = "created_date"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
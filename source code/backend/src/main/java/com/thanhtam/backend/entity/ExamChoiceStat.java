@@ -0,0 +1,35 @@
+package com.thanhtam.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * How many sheets of an exam selected a choice. The choice index follows the paper's choice order,
+ * for TF questions index 0 is "True" and 1 is "False", the same bits as the stored answer data.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "exam_choice_stat", uniqueConstraints = @UniqueConstraint(name = "uk_exam_choice_stat", columnNames = {"exam_id", "question_id", "choice_index"}))
+public class ExamChoiceStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "choice_index", nullable = false)
+    private int choiceIndex;
+
+    @Column(name = "selected", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long selected;
+}
@@ -0,0 +1,29 @@
+package com.thanhtam.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Which exams use a question, the reverse of exam.question_data.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "exam_question", uniqueConstraints = @UniqueConstraint(name = "uk_exam_question", columnNames = {"exam_id", "question_id"}),
+        indexes = @Index(name = "idx_exam_question_question", columnList = "question_id"))
+public class ExamQuestion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+}
@@ -0,0 +1,34 @@
+package com.thanhtam.backend.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Running per-question counters of an exam, incremented as sheets are graded.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "exam_question_stat", uniqueConstraints = @UniqueConstraint(name = "uk_exam_question_stat", columnNames = {"exam_id", "question_id"}))
+public class ExamQuestionStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "question_id", nullable = false)
+    private Long questionId;
+
+    @Column(name = "attempted", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long attempted;
+
+    @Column(name = "correct", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long correct;
+}
@@ -18,7 +18,11 @@ import java.util.Objects;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "exam_user")
+@Table(name = "exam_user", indexes = {@Index(name = "idx_exam_user_open_deadline", columnList = "is_finished, deadline"),
+        @Index(name = "idx_exam_user_time_finish", columnList = "time_finish"),
+        @Index(name = "idx_exam_user_exam_point", columnList = "exam_id, total_point, id"),
+        @Index(name = "idx_exam_user_exam_finish", columnList = "exam_id, time_finish, id"),
+        @Index(name = "idx_exam_user_user_exam", columnList = "user_id, exam_id")})
 public class ExamUser{
 
     @Id
@@ -46,10 +50,29 @@ public class ExamUser{
     @Temporal(TemporalType.TIMESTAMP)
     Date timeFinish;
 
+    //    End of the session on the server clock, the earlier of start + duration and the exam's finish time
+    @JsonIgnore
+    @Column(name = "deadline")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date deadline;
+
     @JsonIgnore
     @Column(name="answer_sheet", columnDefinition = "text")
     private String answerSheet;
 
+    @JsonIgnore
+    @Lob
+    @Column(name = "answer_data", columnDefinition = "BLOB")
+    private byte[] answerData;
+
+    @JsonIgnore
+    @Column(name = "shuffle_seed")
+    private Long shuffleSeed;
+
+    @JsonIgnore
+    @Column(name = "answer_sequence", columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long answerSequence;
+
     @Column(name = "is_finished", columnDefinition = "TINYINT")
     @Type(type = "org.hibernate.type.NumericBooleanType")
     private Boolean isFinished = false;
@@ -60,5 +83,15 @@ public class ExamUser{
     @Column(name = "total_point")
     private Double totalPoint;
 
+    //    Per-question outcome bits written when the sheet is graded, read back by the result pages
+    @JsonIgnore
+    @Column(name = "grade_data", columnDefinition = "VARBINARY(1024)")
+    private byte[] gradeData;
+
+    //    Fingerprint of the answer key the sheet was graded with, a different key means a regrade
+    @JsonIgnore
+    @Column(name = "grade_key")
+    private Long gradeKey;
+
 }
 
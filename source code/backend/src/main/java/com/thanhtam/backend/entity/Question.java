@@ -16,7 +16,7 @@ import java.util.Set;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "question")
+@Table(name = "question", indexes = @Index(name = "idx_question_created_date", columnList = "created_date"))
 public class Question extends Auditable<Long> implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -39,8 +39,10 @@ public class Question extends Auditable<Long> implements Serializable {
     @JoinColumn(name = "question_type_id")
     private QuestionType questionType;
 
+//    Grading masks and outcomes follow the choice order, it must not depend on the database
     @OneToMany(fetch = FetchType.EAGER,cascade = CascadeType.ALL)
     @JoinColumn(name = "question_id")
+    @OrderBy("id")
     private List<Choice> choices;
 
 //    @JsonIgnore
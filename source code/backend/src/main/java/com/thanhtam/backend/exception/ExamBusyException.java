@@ -0,0 +1,13 @@
+package com.thanhtam.backend.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ExamBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ExamBusyException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
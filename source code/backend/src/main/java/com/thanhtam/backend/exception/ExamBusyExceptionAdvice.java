@@ -0,0 +1,18 @@
+package com.thanhtam.backend.exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class ExamBusyExceptionAdvice {
+
+    @ExceptionHandler(ExamBusyException.class)
+    public ResponseEntity<ErrorMessage> handleExamBusyException(ExamBusyException exc) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exc.getRetryAfterSeconds()))
+                .body(new ErrorMessage(HttpStatus.SERVICE_UNAVAILABLE.value(), exc.getMessage()));
+    }
+}
@@ -5,6 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ChoiceRepository extends JpaRepository<Choice, Long> {
     @Query(value="select c.corrected from choice c where c.id = :id", nativeQuery=true)
@@ -12,4 +15,7 @@ public interface ChoiceRepository extends JpaRepository<Choice, Long> {
 
     @Query(value="select c.choice_text from choice c where c.id=:id", nativeQuery=true)
     String findChoiceTextById(Long id);
+
+    @Query(value="select c.question_id, c.id, c.corrected, c.choice_text from choice c where c.question_id in :questionIds", nativeQuery=true)
+    List<Object[]> findAnswerKeyRowsByQuestionIdIn(Collection<Long> questionIds);
 }
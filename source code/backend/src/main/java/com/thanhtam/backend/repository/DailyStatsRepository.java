@@ -0,0 +1,13 @@
+package com.thanhtam.backend.repository;
+
+import com.thanhtam.backend.entity.DailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface DailyStatsRepository extends JpaRepository<DailyStats, Long> {
+    List<DailyStats> findAllByDayGreaterThanEqualAndDayLessThanOrderByDay(Date from, Date to);
+}
@@ -0,0 +1,21 @@
+package com.thanhtam.backend.repository;
+
+import com.thanhtam.backend.entity.ExamQuestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.util.List;
+
+@Repository
+public interface ExamQuestionRepository extends JpaRepository<ExamQuestion, Long> {
+    @Query(value = "SELECT exam_id FROM exam_question WHERE question_id = :questionId", nativeQuery = true)
+    List<Long> findExamIdsByQuestionId(Long questionId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM exam_question WHERE exam_id = :examId", nativeQuery = true)
+    int deleteAllByExamId(Long examId);
+}
@@ -0,0 +1,17 @@
+package com.thanhtam.backend.repository;
+
+import com.thanhtam.backend.entity.ExamQuestionStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+
+@Repository
+public interface ExamQuestionStatRepository extends JpaRepository<ExamQuestionStat, Long> {
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM exam_question_stat WHERE exam_id = :examId", nativeQuery = true)
+    int deleteAllByExamId(Long examId);
+}
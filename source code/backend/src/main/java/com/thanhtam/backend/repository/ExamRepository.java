@@ -10,12 +10,14 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import javax.transaction.Transactional;
+import java.util.Date;
 import java.util.List;
 
 @Repository
 public interface ExamRepository extends JpaRepository<Exam, Long> {
 
     List<Exam> findAllByPart_Course_Id(Long courseId);
+    List<Exam> findAllByCanceledIsFalseAndBeginExamBetween(Date from, Date to);
 List<Exam> findByCanceledIsTrueOrderByCreatedDateDesc();
     public Page<Exam> findAll(Pageable pageable);
     public Page<Exam> findAllByCreatedBy_Username(Pageable pageable, String username);
@@ -4,9 +4,12 @@ import com.thanhtam.backend.entity.Exam;
 import com.thanhtam.backend.entity.ExamUser;
 import com.thanhtam.backend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import javax.transaction.Transactional;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -18,4 +21,28 @@ public interface ExamUserRepository extends JpaRepository<ExamUser, Long> {
     List<ExamUser> findAllByExam_Id(Long examId);
     List<ExamUser> findExamUsersByOrderByTimeFinish();
     List<ExamUser> findExamUsersByIsFinishedIsTrueAndExam_Id(Long examId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE exam_user SET answer_sheet = :answerSheet, answer_data = :answerData, remaining_time = :remainingTime, answer_sequence = :sequence WHERE id = :id AND is_finished = 0 AND answer_sequence = :expected", nativeQuery = true)
+    int updateAnswerSheet(Long id, String answerSheet, byte[] answerData, int remainingTime, long expected, long sequence);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE exam_user SET total_point = :totalPoint, grade_data = :gradeData, grade_key = :gradeKey WHERE id = :id AND is_finished = 1 AND grade_key <=> :expectedKey", nativeQuery = true)
+    int updateGrade(Long id, Double totalPoint, byte[] gradeData, Long gradeKey, Long expectedKey);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE exam_user SET is_finished = 1, time_finish = :timeFinish, remaining_time = :remainingTime, total_point = :totalPoint, grade_data = :gradeData, grade_key = :gradeKey, " +
+            "answer_sheet = :answerSheet, answer_data = :answerData, answer_sequence = :sequence WHERE id = :id AND is_finished = 0", nativeQuery = true)
+    int finish(Long id, Date timeFinish, int remainingTime, Double totalPoint, byte[] gradeData, Long gradeKey, String answerSheet, byte[] answerData, long sequence);
+
+    @Query(value = "SELECT id FROM exam_user WHERE is_finished = 0 AND deadline < :now ORDER BY deadline LIMIT :limit", nativeQuery = true)
+    List<Long> findExpiredIds(Date now, int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE exam_user eu JOIN exam e ON e.id = eu.exam_id SET eu.deadline = LEAST(DATE_ADD(eu.time_start, INTERVAL e.duration_exam MINUTE), e.finish_exam) WHERE eu.deadline IS NULL AND eu.is_started = 1 AND eu.is_finished = 0", nativeQuery = true)
+    int backfillDeadlines();
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,4 +35,7 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
 
     @Query(value = "select q.id from question q where q.id =:questionId", nativeQuery = true)
     String findQuestionTextById(Long questionId);
+
+    @Query(value = "select distinct q from Question q left join fetch q.choices left join fetch q.questionType left join fetch q.part where q.id in :ids")
+    List<Question> findAllWithChoicesByIdIn(Collection<Long> ids);
 }
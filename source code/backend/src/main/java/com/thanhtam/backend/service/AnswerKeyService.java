@@ -0,0 +1,16 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerKey;
+import com.thanhtam.backend.dto.CacheHitStats;
+
+import java.util.Collection;
+
+public interface AnswerKeyService {
+    AnswerKey getAnswerKey(Collection<Long> questionIds);
+
+    void invalidateQuestion(Long questionId);
+
+    long getVersion();
+
+    CacheHitStats getCacheStats();
+}
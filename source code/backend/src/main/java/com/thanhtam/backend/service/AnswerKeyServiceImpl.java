@@ -0,0 +1,105 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.thanhtam.backend.dto.AnswerKey;
+import com.thanhtam.backend.dto.CacheHitStats;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.repository.ChoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answer keys cached per question. Missing questions are loaded together in one query,
+ * after that grading never goes to the database for correctness.
+ */
+@Service
+public class AnswerKeyServiceImpl implements AnswerKeyService {
+    private ChoiceRepository choiceRepository;
+    private Cache<Long, AnswerKey> questionKeys;
+    //    Bumped on every invalidation, so a load that raced with an edit is not cached and compiled keys know they are stale
+    private AtomicLong generation = new AtomicLong();
+    private final Object lock = new Object();
+
+    @Autowired
+    public AnswerKeyServiceImpl(ChoiceRepository choiceRepository, @Value("${isc.exam.answer-key-cache-size:20000}") long cacheSize) {
+        this.choiceRepository = choiceRepository;
+        this.questionKeys = CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build();
+    }
+
+    @Override
+    public AnswerKey getAnswerKey(Collection<Long> questionIds) {
+        Set<Long> ids = new HashSet<>(questionIds);
+        Map<Long, AnswerKey> keys = new HashMap<>(questionKeys.getAllPresent(ids));
+        Set<Long> missing = new HashSet<>(ids);
+        missing.removeAll(keys.keySet());
+        if (!missing.isEmpty()) {
+            long loadedGeneration = generation.get();
+            Map<Long, List<Choice>> choices = new HashMap<>();
+            missing.forEach(id -> choices.put(id, new ArrayList<>()));
+            choiceRepository.findAnswerKeyRowsByQuestionIdIn(missing).forEach(row -> {
+                Choice choice = new Choice(((Number) row[1]).longValue(), (String) row[3], ((Number) row[2]).intValue());
+                choices.get(((Number) row[0]).longValue()).add(choice);
+            });
+            Map<Long, AnswerKey> loaded = new HashMap<>();
+            choices.forEach((questionId, questionChoices) -> loaded.put(questionId, AnswerKey.of(questionChoices)));
+//            Checked and put under the lock invalidation takes, so an edit cannot slip in between
+            synchronized (lock) {
+                if (generation.get() == loadedGeneration) {
+                    questionKeys.putAll(loaded);
+                }
+            }
+            keys.putAll(loaded);
+        }
+        return keys.size() == 1 ? keys.values().iterator().next() : AnswerKey.merge(keys.values());
+    }
+
+    /**
+     * Drops the key now and again once the surrounding transaction commits: a grading request running before the
+     * commit still reads the old choices and would otherwise cache them for good. Runs ahead of other after-commit
+     * work, so the regrade the edit triggers compiles the new key.
+     */
+    @Override
+    public void invalidateQuestion(Long questionId) {
+        invalidate(questionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    invalidate(questionId);
+                }
+            });
+        }
+    }
+
+    private void invalidate(Long questionId) {
+        synchronized (lock) {
+            generation.incrementAndGet();
+            questionKeys.invalidate(questionId);
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return generation.get();
+    }
+
+    @Override
+    public CacheHitStats getCacheStats() {
+        CacheStats stats = questionKeys.stats();
+        return new CacheHitStats(questionKeys.size(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,303 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerSelection;
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.PaperChoice;
+import com.thanhtam.backend.dto.PaperQuestion;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary form of a candidate's selections, stored in exam_user.answer_data.
+ * <p>
+ * Layout: version byte, entry count, then for each answered question its index on the paper, its id, the number
+ * of selected choices and the selected choice ids, all as unsigned varints. A TF answer has no choice ids, one mask
+ * follows instead, bit 0 meaning "True" and bit 1 "False". Selections are matched to the paper by id, so a question
+ * edited after the answer was stored keeps the choices it still has and drops the ones it lost; the index only
+ * saves the lookup while the paper is unchanged.
+ * <p>
+ * Versions 1 and 2 stored a bitmask in the paper's choice order instead. They are still read; version 2 carries
+ * the paper fingerprint and is rejected once the paper no longer matches. Both are rewritten on the next save.
+ */
+public final class AnswerSheetCodec {
+    public static final byte VERSION = 3;
+    private static final byte VERSION_POSITIONAL = 2;
+    private static final byte VERSION_UNCHECKED = 1;
+    private static final int FINGERPRINT_BYTES = 8;
+    private static final int MAX_CHOICES = 63;
+    private static final long TF_TRUE = CompiledExamKey.TF_TRUE;
+    private static final long TF_FALSE = CompiledExamKey.TF_FALSE;
+
+    private AnswerSheetCodec() {
+    }
+
+    public static byte[] encode(ExamPaper paper, Collection<AnswerSelection> selections) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(2 + selections.size() * 8);
+        out.write(VERSION);
+        ByteArrayOutputStream entries = new ByteArrayOutputStream(selections.size() * 8);
+        int count = 0;
+        for (AnswerSelection selection : selections) {
+            int index = paper.getQuestionIndex(selection.getQuestionId());
+            if (index < 0) {
+                continue;
+            }
+            PaperQuestion question = paper.getQuestions().get(index);
+            long mask = toMask(question, selection);
+            if (mask == 0) {
+                continue;
+            }
+            writeVarLong(entries, index);
+            writeVarLong(entries, question.getQuestionId());
+            if (question.getTypeCode() == EQTypeCode.TF) {
+                writeVarLong(entries, 0);
+                writeVarLong(entries, mask);
+            } else {
+                writeVarLong(entries, Long.bitCount(mask));
+                for (int i = 0; i < question.getChoices().size(); i++) {
+                    if ((mask & (1L << i)) != 0) {
+                        writeVarLong(entries, question.getChoices().get(i).getId());
+                    }
+                }
+            }
+            count++;
+        }
+        writeVarLong(out, count);
+        out.write(entries.toByteArray(), 0, entries.size());
+        return out.toByteArray();
+    }
+
+    public static List<AnswerSelection> decode(ExamPaper paper, byte[] data) {
+        if (data.length > 0 && data[0] == VERSION) {
+            int position = 1;
+            long count = readVarLongAt(data, position);
+            position = skipVarLong(data, position);
+            List<AnswerSelection> selections = new ArrayList<>((int) Math.min(count, paper.getQuestions().size()));
+            for (long i = 0; i < count; i++) {
+                int index = findQuestion(paper, data, position);
+                position = skipVarLong(data, skipVarLong(data, position));
+                long mask = index < 0 ? 0 : readMask(paper.getQuestions().get(index), data, position);
+                if (mask != 0) {
+                    selections.add(toSelection(paper.getQuestions().get(index), mask));
+                }
+                position = skipSelection(data, position);
+            }
+            return selections;
+        }
+        int[] position = {checkHeader(paper, data)};
+        long questionCount = readVarLong(data, position);
+        if (questionCount != paper.getQuestions().size()) {
+            throw new IllegalArgumentException("Answer data does not match exam paper " + paper.getExamId());
+        }
+        int count = (int) readVarLong(data, position);
+        List<AnswerSelection> selections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PaperQuestion question = paper.getQuestions().get((int) readVarLong(data, position));
+            selections.add(toSelection(question, readVarLong(data, position)));
+        }
+        return selections;
+    }
+
+    /**
+     * Decodes straight into a reusable array of selected-choice masks, one per question index, without allocating
+     * while the paper is the one the data was written for.
+     */
+    public static void decodeMasks(ExamPaper paper, byte[] data, long[] masks) {
+        Arrays.fill(masks, 0L);
+        if (data.length > 0 && data[0] == VERSION) {
+            int position = 1;
+            long count = readVarLongAt(data, position);
+            position = skipVarLong(data, position);
+            for (long i = 0; i < count; i++) {
+                int index = findQuestion(paper, data, position);
+                position = skipVarLong(data, skipVarLong(data, position));
+                if (index >= 0 && index < masks.length) {
+                    masks[index] = readMask(paper.getQuestions().get(index), data, position);
+                }
+                position = skipSelection(data, position);
+            }
+            return;
+        }
+        int position = checkHeader(paper, data);
+        if (readVarLongAt(data, position) != masks.length) {
+            throw new IllegalArgumentException("Answer data does not match exam paper");
+        }
+        position = skipVarLong(data, position);
+        long count = readVarLongAt(data, position);
+        position = skipVarLong(data, position);
+        for (long i = 0; i < count; i++) {
+            int index = (int) readVarLongAt(data, position);
+            position = skipVarLong(data, position);
+            masks[index] = readVarLongAt(data, position);
+            position = skipVarLong(data, position);
+        }
+    }
+
+    /**
+     * Index on the paper of the entry's question at position, -1 when the question is no longer on it.
+     */
+    private static int findQuestion(ExamPaper paper, byte[] data, int position) {
+        long index = readVarLongAt(data, position);
+        long questionId = readVarLongAt(data, skipVarLong(data, position));
+        if (index < paper.getQuestions().size() && paper.getQuestions().get((int) index).getQuestionId() == questionId) {
+            return (int) index;
+        }
+        return paper.getQuestionIndex(questionId);
+    }
+
+    /**
+     * The selection at position as a mask over the question's current choices, ids it no longer has are dropped.
+     */
+    private static long readMask(PaperQuestion question, byte[] data, int position) {
+        long size = readVarLongAt(data, position);
+        position = skipVarLong(data, position);
+        boolean tf = question.getTypeCode() == EQTypeCode.TF;
+        if (size == 0) {
+            return tf ? readVarLongAt(data, position) & (TF_TRUE | TF_FALSE) : 0;
+        }
+        if (tf) {
+            return 0;
+        }
+        List<PaperChoice> choices = question.getChoices();
+        int choiceCount = Math.min(choices.size(), MAX_CHOICES);
+        long mask = 0;
+        for (long i = 0; i < size; i++) {
+            long choiceId = readVarLongAt(data, position);
+            position = skipVarLong(data, position);
+            for (int c = 0; c < choiceCount; c++) {
+                Long id = choices.get(c).getId();
+                if (id != null && id == choiceId) {
+                    mask |= 1L << c;
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static int skipSelection(byte[] data, int position) {
+        long size = readVarLongAt(data, position);
+        position = skipVarLong(data, position);
+        for (long i = 0; i < Math.max(size, 1); i++) {
+            position = skipVarLong(data, position);
+        }
+        return position;
+    }
+
+    /**
+     * Checks the version and, from version 2, the paper fingerprint of positional data, returns the position after them.
+     */
+    private static int checkHeader(ExamPaper paper, byte[] data) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Unsupported answer data version");
+        }
+        if (data[0] == VERSION_UNCHECKED) {
+            return 1;
+        }
+        if (data[0] != VERSION_POSITIONAL) {
+            throw new IllegalArgumentException("Unsupported answer data version");
+        }
+        if (data.length < 1 + FINGERPRINT_BYTES) {
+            throw new IllegalArgumentException("Truncated answer data");
+        }
+        long fingerprint = 0;
+        for (int i = 1; i <= FINGERPRINT_BYTES; i++) {
+            fingerprint = (fingerprint << 8) | (data[i] & 0xFF);
+        }
+        if (fingerprint != paper.getFingerprint()) {
+            throw new IllegalArgumentException("Answer data does not match exam paper " + paper.getExamId());
+        }
+        return 1 + FINGERPRINT_BYTES;
+    }
+
+    private static long toMask(PaperQuestion question, AnswerSelection selection) {
+        if (question.getTypeCode() == EQTypeCode.TF) {
+            if ("True".equalsIgnoreCase(selection.getAnswerText())) {
+                return TF_TRUE;
+            }
+            return "False".equalsIgnoreCase(selection.getAnswerText()) ? TF_FALSE : 0;
+        }
+        if (selection.getChoiceIds() == null) {
+            return 0;
+        }
+        List<PaperChoice> choices = question.getChoices();
+        if (choices.size() > MAX_CHOICES) {
+            throw new IllegalArgumentException("Question " + question.getQuestionId() + " has too many choices");
+        }
+        long mask = 0;
+        for (int i = 0; i < choices.size(); i++) {
+            if (selection.getChoiceIds().contains(choices.get(i).getId())) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static AnswerSelection toSelection(PaperQuestion question, long mask) {
+        if (question.getTypeCode() == EQTypeCode.TF) {
+            return new AnswerSelection(question.getQuestionId(), null, (mask & TF_TRUE) != 0 ? "True" : "False");
+        }
+        List<Long> choiceIds = new ArrayList<>(Long.bitCount(mask));
+        List<PaperChoice> choices = question.getChoices();
+        for (int i = 0; i < choices.size(); i++) {
+            if ((mask & (1L << i)) != 0) {
+                choiceIds.add(choices.get(i).getId());
+            }
+        }
+        return new AnswerSelection(question.getQuestionId(), choiceIds, null);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLongAt(byte[] data, int position) {
+        long value = 0;
+        for (int shift = 0; shift <= 63; shift += 7) {
+            if (position >= data.length) {
+                break;
+            }
+            byte b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Truncated answer data");
+    }
+
+    private static int skipVarLong(byte[] data, int position) {
+        while (position < data.length && data[position] < 0) {
+            position++;
+        }
+        if (position >= data.length) {
+            throw new IllegalArgumentException("Truncated answer data");
+        }
+        return position + 1;
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= data.length || shift > 63) {
+                throw new IllegalArgumentException("Truncated answer data");
+            }
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerSheet;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.entity.ExamUser;
+
+import java.util.List;
+
+public interface AnswerSheetService {
+    Long createSeed(boolean shuffle);
+
+    List<AnswerSheet> getAnswerSheets(ExamUser examUser, ExamPaper paper);
+
+    void setAnswerSheets(ExamUser examUser, ExamPaper paper, List<AnswerSheet> answerSheets);
+
+    void applyAnswerSheets(ExamUser examUser, ExamPaper paper, List<AnswerSheet> changedAnswerSheets);
+
+    void fillSelectionMasks(ExamUser examUser, ExamPaper paper, long[] masks);
+}
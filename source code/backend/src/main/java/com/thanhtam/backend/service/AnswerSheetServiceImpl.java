@@ -0,0 +1,195 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+@Service
+public class AnswerSheetServiceImpl implements AnswerSheetService {
+    private ExamPaperService examPaperService;
+    private ObjectMapper mapper;
+    private boolean shuffleChoices;
+
+    @Autowired
+    public AnswerSheetServiceImpl(ExamPaperService examPaperService, ObjectMapper mapper, @Value("${isc.exam.shuffle-choices:false}") boolean shuffleChoices) {
+        this.examPaperService = examPaperService;
+        this.mapper = mapper;
+        this.shuffleChoices = shuffleChoices;
+    }
+
+    @Override
+    public Long createSeed(boolean shuffle) {
+        return shuffle ? ThreadLocalRandom.current().nextLong() : null;
+    }
+
+    @Override
+    public List<AnswerSheet> getAnswerSheets(ExamUser examUser, ExamPaper paper) {
+        Map<Long, AnswerSelection> selections = new HashMap<>();
+        if (examUser.getAnswerData() != null) {
+            AnswerSheetCodec.decode(paper, examUser.getAnswerData()).forEach(selection -> selections.put(selection.getQuestionId(), selection));
+        } else {
+            JsonNode stored = readStored(examUser);
+            if (stored == null && !examUser.getIsStarted()) {
+                return Collections.emptyList();
+            }
+            if (isFullSheet(stored)) {
+                return mapper.convertValue(stored, new TypeReference<List<AnswerSheet>>() {
+                });
+            }
+            readSelections(stored).forEach(selection -> selections.put(selection.getQuestionId(), selection));
+        }
+
+//        The candidate's order is rebuilt from the seed, only the selections are stored
+        List<AnswerSheet> answerSheets = examPaperService.createAnswerSheets(paper);
+        Random random = examUser.getShuffleSeed() != null ? new Random(examUser.getShuffleSeed()) : null;
+        if (random != null) {
+            Collections.shuffle(answerSheets, random);
+        }
+        answerSheets.forEach(answerSheet -> {
+            PaperQuestion question = paper.getQuestion(answerSheet.getQuestionId());
+            if (random != null && shuffleChoices && question.getTypeCode() != EQTypeCode.TF) {
+                Collections.shuffle(answerSheet.getChoices(), random);
+            }
+            AnswerSelection selection = selections.get(question.getQuestionId());
+            if (selection != null) {
+                applySelection(question, answerSheet.getChoices(), selection);
+            }
+        });
+        return answerSheets;
+    }
+
+    @Override
+    public void setAnswerSheets(ExamUser examUser, ExamPaper paper, List<AnswerSheet> answerSheets) {
+//        Sessions started before seeds existed keep their full copy, otherwise their question order would change
+        if (examUser.getAnswerData() == null && isFullSheet(readStored(examUser))) {
+            try {
+                examUser.setAnswerSheet(mapper.writeValueAsString(answerSheets));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        writeSelections(examUser, paper, toSelections(paper, answerSheets));
+    }
+
+    @Override
+    public void applyAnswerSheets(ExamUser examUser, ExamPaper paper, List<AnswerSheet> changedAnswerSheets) {
+        Map<Long, AnswerSelection> selections = new LinkedHashMap<>();
+        if (examUser.getAnswerData() != null) {
+            AnswerSheetCodec.decode(paper, examUser.getAnswerData()).forEach(selection -> selections.put(selection.getQuestionId(), selection));
+        } else {
+            JsonNode stored = readStored(examUser);
+            if (isFullSheet(stored)) {
+                Map<Long, AnswerSheet> changes = new HashMap<>();
+                changedAnswerSheets.forEach(answerSheet -> changes.put(answerSheet.getQuestionId(), answerSheet));
+                List<AnswerSheet> answerSheets = mapper.convertValue(stored, new TypeReference<List<AnswerSheet>>() {
+                });
+                answerSheets.replaceAll(answerSheet -> changes.getOrDefault(answerSheet.getQuestionId(), answerSheet));
+                try {
+                    examUser.setAnswerSheet(mapper.writeValueAsString(answerSheets));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            readSelections(stored).forEach(selection -> selections.put(selection.getQuestionId(), selection));
+        }
+//        A changed question without any selected choice clears its previous selection
+        changedAnswerSheets.forEach(answerSheet -> selections.remove(answerSheet.getQuestionId()));
+        toSelections(paper, changedAnswerSheets).forEach(selection -> selections.put(selection.getQuestionId(), selection));
+        writeSelections(examUser, paper, selections.values());
+    }
+
+    @Override
+    public void fillSelectionMasks(ExamUser examUser, ExamPaper paper, long[] masks) {
+        if (examUser.getAnswerData() != null) {
+            AnswerSheetCodec.decodeMasks(paper, examUser.getAnswerData(), masks);
+            return;
+        }
+//        Rows still holding JSON go through the binary form once
+        List<AnswerSheet> answerSheets = getAnswerSheets(examUser, paper);
+        AnswerSheetCodec.decodeMasks(paper, AnswerSheetCodec.encode(paper, toSelections(paper, answerSheets)), masks);
+    }
+
+    /**
+     * Stores the selections in the binary column, which also migrates rows still holding selection JSON.
+     */
+    private void writeSelections(ExamUser examUser, ExamPaper paper, Collection<AnswerSelection> selections) {
+        examUser.setAnswerData(AnswerSheetCodec.encode(paper, selections));
+        examUser.setAnswerSheet(null);
+    }
+
+    private List<AnswerSelection> readSelections(JsonNode stored) {
+        if (stored == null) {
+            return Collections.emptyList();
+        }
+        return mapper.convertValue(stored, new TypeReference<List<AnswerSelection>>() {
+        });
+    }
+
+    private List<AnswerSelection> toSelections(ExamPaper paper, List<AnswerSheet> answerSheets) {
+        List<AnswerSelection> selections = new ArrayList<>();
+        answerSheets.forEach(answerSheet -> {
+            PaperQuestion question = paper.getQuestion(answerSheet.getQuestionId());
+            if (question == null || answerSheet.getChoices() == null) {
+                return;
+            }
+            List<Choice> selected = answerSheet.getChoices().stream().filter(choice -> choice.getIsCorrected() == 1).collect(Collectors.toList());
+            if (selected.isEmpty()) {
+                return;
+            }
+            if (question.getTypeCode() == EQTypeCode.TF) {
+                selections.add(new AnswerSelection(question.getQuestionId(), null, selected.get(0).getChoiceText()));
+            } else {
+                selections.add(new AnswerSelection(question.getQuestionId(), selected.stream().map(Choice::getId).collect(Collectors.toList()), null));
+            }
+        });
+        return selections;
+    }
+
+    private void applySelection(PaperQuestion question, List<Choice> choices, AnswerSelection selection) {
+        if (question.getTypeCode() == EQTypeCode.TF) {
+            if (!choices.isEmpty() && selection.getAnswerText() != null) {
+                choices.get(0).setChoiceText(selection.getAnswerText());
+                choices.get(0).setIsCorrected(1);
+            }
+            return;
+        }
+        if (selection.getChoiceIds() != null) {
+            choices.forEach(choice -> {
+                if (selection.getChoiceIds().contains(choice.getId())) {
+                    choice.setIsCorrected(1);
+                }
+            });
+        }
+    }
+
+    private JsonNode readStored(ExamUser examUser) {
+        if (Strings.isNullOrEmpty(examUser.getAnswerSheet())) {
+            return null;
+        }
+        try {
+            return mapper.readTree(examUser.getAnswerSheet());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isFullSheet(JsonNode stored) {
+        return stored != null && stored.size() > 0 && stored.get(0).has("choices");
+    }
+}
@@ -0,0 +1,255 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AutosaveBufferStats;
+import com.thanhtam.backend.entity.ExamUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the latest autosaved answer sheet of each exam user in memory and writes them to the
+ * database in JDBC batches, instead of one UPDATE per autosave. An entry leaves the buffer only once the
+ * write carrying it has committed, and only if no newer autosave replaced it, so a sheet is always in one
+ * of the two places.
+ */
+@Component
+public class AutosaveBuffer {
+    private static final String FLUSH_SQL = "UPDATE exam_user SET answer_sheet = ?, answer_data = ?, remaining_time = ?, answer_sequence = ? WHERE id = ? AND is_finished = 0 AND answer_sequence <= ?";
+    private static final String SEQUENCE_SQL = "SELECT answer_sequence FROM exam_user WHERE id = ?";
+    private static final String RELOAD_SQL = "SELECT answer_sheet, answer_data, remaining_time, answer_sequence FROM exam_user WHERE id = ?";
+
+    private Logger logger = LoggerFactory.getLogger(AutosaveBuffer.class);
+
+    private JdbcTemplate jdbcTemplate;
+    private boolean enabled;
+    private int batchSize;
+    private ConcurrentMap<Long, PendingAnswerSheet> pending = new ConcurrentHashMap<>();
+    //    Bumped each time a committed entry leaves the buffer
+    private AtomicLong removals = new AtomicLong();
+
+    private AtomicLong flushCount = new AtomicLong();
+    private AtomicLong flushedRows = new AtomicLong();
+    private AtomicLong lastFlushMillis = new AtomicLong();
+    private AtomicLong maxFlushMillis = new AtomicLong();
+    private AtomicLong totalFlushMillis = new AtomicLong();
+
+    @Autowired
+    public AutosaveBuffer(JdbcTemplate jdbcTemplate, @Value("${isc.exam.autosave.write-behind:false}") boolean enabled, @Value("${isc.exam.autosave.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffers the answer sheet of an exam user. Returns false when a newer sequence is already buffered.
+     */
+    public boolean offer(ExamUser examUser, long sequence) {
+        PendingAnswerSheet next = new PendingAnswerSheet(examUser.getId(), examUser.getAnswerSheet(), examUser.getAnswerData(), examUser.getRemainingTime(), sequence);
+        PendingAnswerSheet result = pending.merge(examUser.getId(), next, (current, offered) -> offered.sequence >= current.sequence ? offered : current);
+        return result == next;
+    }
+
+    /**
+     * Buffers a sheet a delta was applied to. Returns false unless the buffered sequence, or the stored one
+     * when nothing is buffered, is still the one the delta was applied on. The stored sequence is read before
+     * the check and read again if an entry left the buffer meanwhile, since its flush may have moved it.
+     */
+    public boolean offer(ExamUser examUser, long expected, long sequence) {
+        PendingAnswerSheet next = new PendingAnswerSheet(examUser.getId(), examUser.getAnswerSheet(), examUser.getAnswerData(), examUser.getRemainingTime(), sequence);
+        while (true) {
+            long seen = removals.get();
+            boolean buffered = pending.containsKey(examUser.getId());
+            long stored = buffered ? -1 : storedSequence(examUser.getId());
+            boolean[] retry = {false};
+            PendingAnswerSheet result = pending.compute(examUser.getId(), (id, current) -> {
+                if (current != null) {
+                    return current.sequence == expected ? next : current;
+                }
+                if (buffered || removals.get() != seen) {
+                    retry[0] = true;
+                    return null;
+                }
+                return stored == expected ? next : null;
+            });
+            if (!retry[0]) {
+                return result == next;
+            }
+        }
+    }
+
+    /**
+     * Reads an exam user and applies the buffered state, if any. When nothing is buffered but an entry left
+     * the buffer during the read, the row may predate that flush, so its answer columns are read again.
+     */
+    public ExamUser read(Supplier<ExamUser> loader) {
+        long seen = removals.get();
+        ExamUser examUser = loader.get();
+        if (examUser == null || !enabled) {
+            return examUser;
+        }
+        if (!overlay(examUser) && removals.get() != seen) {
+            reload(examUser);
+        }
+        return examUser;
+    }
+
+    /**
+     * Applies the buffered state, if any, on an exam user just read from the database.
+     * Returns whether an entry was buffered.
+     */
+    public boolean overlay(ExamUser examUser) {
+        if (examUser == null) {
+            return false;
+        }
+        PendingAnswerSheet pendingAnswerSheet = pending.get(examUser.getId());
+        if (pendingAnswerSheet != null && pendingAnswerSheet.sequence >= examUser.getAnswerSequence()) {
+            pendingAnswerSheet.copyTo(examUser);
+        }
+        return pendingAnswerSheet != null;
+    }
+
+    /**
+     * Copies the buffered state of an exam user that is about to be saved synchronously onto the entity
+     * when it is newer, so the save writes it as well. The entry is removed once the current transaction
+     * commits, or right away outside one.
+     */
+    public void drain(ExamUser examUser) {
+        PendingAnswerSheet pendingAnswerSheet = pending.get(examUser.getId());
+        if (pendingAnswerSheet == null) {
+            return;
+        }
+        if (pendingAnswerSheet.sequence > examUser.getAnswerSequence()) {
+            pendingAnswerSheet.copyTo(examUser);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    remove(pendingAnswerSheet);
+                }
+            });
+        } else {
+            remove(pendingAnswerSheet);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${isc.exam.autosave.flush-interval-ms:2000}")
+    public void flushAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<PendingAnswerSheet> batch = new ArrayList<>();
+        for (PendingAnswerSheet pendingAnswerSheet : pending.values()) {
+            batch.add(pendingAnswerSheet);
+            if (batch.size() == batchSize) {
+                write(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    public AutosaveBufferStats getStats() {
+        return new AutosaveBufferStats(enabled, pending.size(), flushCount.get(), flushedRows.get(),
+                lastFlushMillis.get(), maxFlushMillis.get(), totalFlushMillis.get());
+    }
+
+    private void write(List<PendingAnswerSheet> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(), (ps, pendingAnswerSheet) -> {
+                ps.setString(1, pendingAnswerSheet.answerSheet);
+                ps.setBytes(2, pendingAnswerSheet.answerData);
+                ps.setInt(3, pendingAnswerSheet.remainingTime);
+                ps.setLong(4, pendingAnswerSheet.sequence);
+                ps.setLong(5, pendingAnswerSheet.examUserId);
+                ps.setLong(6, pendingAnswerSheet.sequence);
+            });
+        } catch (RuntimeException e) {
+//            The batch is still buffered, the next tick retries it
+            logger.error("Cannot flush {} autosaved answer sheets", batch.size(), e);
+            throw e;
+        }
+//        A newer autosave that replaced an entry meanwhile stays for the next tick
+        batch.forEach(this::remove);
+        long elapsed = System.currentTimeMillis() - start;
+        flushCount.incrementAndGet();
+        flushedRows.addAndGet(batch.size());
+        lastFlushMillis.set(elapsed);
+        totalFlushMillis.addAndGet(elapsed);
+        maxFlushMillis.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void remove(PendingAnswerSheet pendingAnswerSheet) {
+        if (pending.remove(pendingAnswerSheet.examUserId, pendingAnswerSheet)) {
+            removals.incrementAndGet();
+        }
+    }
+
+    //    -1 when the row is gone, which no delta expects
+    private long storedSequence(Long examUserId) {
+        List<Long> sequences = jdbcTemplate.queryForList(SEQUENCE_SQL, Long.class, examUserId);
+        return sequences.isEmpty() ? -1 : sequences.get(0);
+    }
+
+    private void reload(ExamUser examUser) {
+        jdbcTemplate.query(RELOAD_SQL, (RowCallbackHandler) rs -> {
+            long sequence = rs.getLong("answer_sequence");
+            if (sequence > examUser.getAnswerSequence()) {
+                examUser.setAnswerSheet(rs.getString("answer_sheet"));
+                examUser.setAnswerData(rs.getBytes("answer_data"));
+                examUser.setRemainingTime(rs.getInt("remaining_time"));
+                examUser.setAnswerSequence(sequence);
+            }
+        }, examUser.getId());
+    }
+
+    private static class PendingAnswerSheet {
+        private final Long examUserId;
+        private final String answerSheet;
+        private final byte[] answerData;
+        private final int remainingTime;
+        private final long sequence;
+
+        PendingAnswerSheet(Long examUserId, String answerSheet, byte[] answerData, int remainingTime, long sequence) {
+            this.examUserId = examUserId;
+            this.answerSheet = answerSheet;
+            this.answerData = answerData;
+            this.remainingTime = remainingTime;
+            this.sequence = sequence;
+        }
+
+        private void copyTo(ExamUser examUser) {
+            examUser.setAnswerSheet(answerSheet);
+            examUser.setAnswerData(answerData);
+            examUser.setRemainingTime(remainingTime);
+            examUser.setAnswerSequence(sequence);
+        }
+    }
+}
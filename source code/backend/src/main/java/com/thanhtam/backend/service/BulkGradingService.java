@@ -0,0 +1,27 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.GradingProgress;
+import com.thanhtam.backend.entity.Exam;
+
+import java.util.Map;
+
+public interface BulkGradingService {
+    /**
+     * Starts regrading every finished sheet of the exam, unless a run for it is already going.
+     */
+    GradingProgress regrade(Exam exam);
+
+    GradingProgress getProgress(Long examId);
+
+    /**
+     * Totals of the finished sheets by exam_user id, from the last completed run while the key is unchanged, otherwise
+     * the stored ones. When any stored grade is out of date a regrade is started in the background, unless {@code wait}
+     * asks to block until it is done and return its totals.
+     */
+    Map<Long, Double> getTotals(Exam exam, boolean wait);
+
+    /**
+     * Recounts the exam's question counters from its finished sheets, batch by batch, storing any missing grade on the way.
+     */
+    int rebuildQuestionStats(Exam exam);
+}
@@ -0,0 +1,239 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.GradingProgress;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Regrades all finished sheets of an exam on a fork-join pool against one compiled key,
+ * then writes the changed grades in a single batch. Each row is written only if its grade_key is still the one read,
+ * so a sheet a result page regraded meanwhile is counted once. The last completed totals stay available while a new run goes.
+ */
+@Service
+public class BulkGradingServiceImpl implements BulkGradingService {
+    private static final String SHEETS_SQL = "SELECT id, is_started, shuffle_seed, answer_sheet, answer_data, total_point, grade_data, grade_key FROM exam_user WHERE exam_id = ? AND is_finished = 1";
+    private static final String SHEETS_PAGE_SQL = "SELECT id, is_started, shuffle_seed, answer_sheet, answer_data, total_point, grade_data, grade_key FROM exam_user WHERE exam_id = ? AND is_finished = 1 AND id > ? ORDER BY id LIMIT ?";
+    private static final String TOTALS_SQL = "SELECT id, total_point, grade_data IS NOT NULL AS graded, grade_key FROM exam_user WHERE exam_id = ? AND is_finished = 1";
+    private static final String UPDATE_SQL = "UPDATE exam_user SET total_point = ?, grade_data = ?, grade_key = ? WHERE id = ? AND is_finished = 1 AND grade_key <=> ?";
+    private static final int[] UPDATE_TYPES = {Types.DOUBLE, Types.VARBINARY, Types.BIGINT, Types.BIGINT, Types.BIGINT};
+
+    private Logger logger = LoggerFactory.getLogger(BulkGradingServiceImpl.class);
+
+    private ExamPaperService examPaperService;
+    private AnswerSheetService answerSheetService;
+    private GradingService gradingService;
+    private QuestionStatsService questionStatsService;
+    private LeaderboardService leaderboardService;
+    private CourseProgressService courseProgressService;
+    private JdbcTemplate jdbcTemplate;
+    private ForkJoinPool pool;
+    private int leafSize;
+    private int rebuildBatchSize;
+    private Map<Long, Run> running = new ConcurrentHashMap<>();
+    private Cache<Long, Run> completed;
+
+    @Autowired
+    public BulkGradingServiceImpl(ExamPaperService examPaperService, AnswerSheetService answerSheetService, GradingService gradingService, QuestionStatsService questionStatsService, LeaderboardService leaderboardService, CourseProgressService courseProgressService, JdbcTemplate jdbcTemplate,
+                                  @Value("${isc.exam.grading.parallelism:0}") int parallelism, @Value("${isc.exam.grading.leaf-size:64}") int leafSize,
+                                  @Value("${isc.exam.grading.rebuild-batch-size:1000}") int rebuildBatchSize,
+                                  @Value("${isc.exam.paper-cache-size:500}") long cacheSize) {
+        this.examPaperService = examPaperService;
+        this.answerSheetService = answerSheetService;
+        this.gradingService = gradingService;
+        this.questionStatsService = questionStatsService;
+        this.leaderboardService = leaderboardService;
+        this.courseProgressService = courseProgressService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.leafSize = leafSize;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.completed = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @Override
+    public GradingProgress regrade(Exam exam) {
+        return start(exam, examPaperService.getPaper(exam)).toProgress();
+    }
+
+    @Override
+    public GradingProgress getProgress(Long examId) {
+        Run run = running.get(examId);
+        if (run == null) {
+            run = completed.getIfPresent(examId);
+        }
+        return run == null ? null : run.toProgress();
+    }
+
+    @Override
+    public Map<Long, Double> getTotals(Exam exam, boolean wait) {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        long fingerprint = gradingService.getCompiledKey(paper).getFingerprint();
+        Run last = completed.getIfPresent(exam.getId());
+        if (last != null && last.fingerprint == fingerprint) {
+            return last.totals;
+        }
+        if (!wait) {
+//            Grades are stored on submit, only the sheets graded with another key wait for the background run
+            Map<Long, Double> totals = new HashMap<>();
+            boolean[] stale = {false};
+            jdbcTemplate.query(TOTALS_SQL, (RowCallbackHandler) rs -> {
+                if (rs.getObject("total_point") != null) {
+                    totals.put(rs.getLong("id"), rs.getDouble("total_point"));
+                }
+                Long gradeKey = rs.getObject("grade_key") == null ? null : rs.getLong("grade_key");
+                if (!rs.getBoolean("graded") || gradeKey == null || gradeKey != fingerprint) {
+                    stale[0] = true;
+                }
+            }, exam.getId());
+            if (stale[0]) {
+                start(exam, paper);
+            }
+            return totals;
+        }
+        Run run = start(exam, paper);
+        try {
+            run.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while grading exam: " + exam.getId(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot grade exam: " + exam.getId(), e.getCause());
+        }
+        return run.totals;
+    }
+
+    @Override
+    public int rebuildQuestionStats(Exam exam) {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        CompiledExamKey key = gradingService.getCompiledKey(paper);
+        questionStatsService.reset(exam.getId());
+        int counted = 0;
+        long lastId = 0;
+        List<ExamUser> sheets;
+        do {
+            sheets = jdbcTemplate.query(SHEETS_PAGE_SQL, (rs, rowNum) -> toSheet(rs), exam.getId(), lastId, rebuildBatchSize);
+            if (sheets.isEmpty()) {
+                break;
+            }
+            SheetGradingTask.Result result = pool.invoke(new SheetGradingTask(sheets, key, paper, answerSheetService, leafSize,
+                    new ConcurrentHashMap<>(), new AtomicInteger(), true));
+            int[] counts = result.getRows().isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(UPDATE_SQL, result.getRows(), UPDATE_TYPES);
+            questionStatsService.apply(paper, result.getStatsDelta(counts));
+            leaderboardService.evict(exam.getId());
+            counted += sheets.size();
+            lastId = sheets.get(sheets.size() - 1).getId();
+        } while (sheets.size() == rebuildBatchSize);
+        if (counted > 0) {
+            courseProgressService.refreshExam(exam.getId());
+        }
+        return counted;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private Run start(Exam exam, ExamPaper paper) {
+        CompiledExamKey key = gradingService.getCompiledKey(paper);
+        Run created = new Run(exam.getId(), key.getFingerprint());
+        Run run = running.putIfAbsent(exam.getId(), created);
+        if (run != null) {
+            return run;
+        }
+        pool.execute(() -> {
+            RuntimeException failure = null;
+            try {
+                grade(created, key, paper);
+                created.finishedAt = new Date();
+                completed.put(created.examId, created);
+            } catch (RuntimeException e) {
+                logger.error("Grading exam {} failed", created.examId, e);
+                created.finishedAt = new Date();
+                failure = e;
+            }
+            running.remove(created.examId, created);
+            if (failure == null) {
+                created.future.complete(null);
+            } else {
+                created.future.completeExceptionally(failure);
+            }
+        });
+        return created;
+    }
+
+    private void grade(Run run, CompiledExamKey key, ExamPaper paper) {
+        List<ExamUser> sheets = jdbcTemplate.query(SHEETS_SQL, (rs, rowNum) -> toSheet(rs), run.examId);
+        run.total = sheets.size();
+        SheetGradingTask.Result result = new SheetGradingTask(sheets, key, paper, answerSheetService, leafSize, run.totals, run.graded, false).invoke();
+        List<Object[]> rows = result.getRows();
+        int written = 0;
+        if (!rows.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, rows, UPDATE_TYPES);
+            written = SheetGradingTask.Result.written(counts);
+            questionStatsService.apply(paper, result.getStatsDelta(counts));
+        }
+        if (written > 0) {
+//            Many totals moved at once, the board is reloaded from the stored ones
+            leaderboardService.evict(run.examId);
+            courseProgressService.refreshExam(run.examId);
+        }
+        run.updated = written;
+        logger.info("Graded {} sheets of exam {}, {} changed", sheets.size(), run.examId, written);
+    }
+
+    //    Finished sheets read over JDBC carry only what grading needs
+    static ExamUser toSheet(ResultSet rs) throws SQLException {
+        ExamUser examUser = new ExamUser();
+        examUser.setId(rs.getLong("id"));
+        examUser.setIsStarted(rs.getInt("is_started") == 1);
+        examUser.setIsFinished(true);
+        examUser.setShuffleSeed(rs.getObject("shuffle_seed") == null ? null : rs.getLong("shuffle_seed"));
+        examUser.setAnswerSheet(rs.getString("answer_sheet"));
+        examUser.setAnswerData(rs.getBytes("answer_data"));
+        examUser.setTotalPoint(rs.getObject("total_point") == null ? null : rs.getDouble("total_point"));
+        examUser.setGradeData(rs.getBytes("grade_data"));
+        examUser.setGradeKey(rs.getObject("grade_key") == null ? null : rs.getLong("grade_key"));
+        return examUser;
+    }
+
+    private static class Run {
+        private final Long examId;
+        private final long fingerprint;
+        private final Date startedAt = new Date();
+        private final Map<Long, Double> totals = new ConcurrentHashMap<>();
+        private final AtomicInteger graded = new AtomicInteger();
+        private volatile int total;
+        private volatile int updated;
+        private volatile Date finishedAt;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Run(Long examId, long fingerprint) {
+            this.examId = examId;
+            this.fingerprint = fingerprint;
+        }
+
+        private GradingProgress toProgress() {
+            return new GradingProgress(examId, finishedAt == null, total, graded.get(), updated, startedAt, finishedAt);
+        }
+    }
+}
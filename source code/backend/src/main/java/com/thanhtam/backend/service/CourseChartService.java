@@ -0,0 +1,17 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CourseChart;
+
+import java.util.List;
+
+public interface CourseChartService {
+    /**
+     * One chart per course of the user's intake, from a single grouped query cached per user.
+     */
+    List<CourseChart> getCourseCharts(String username);
+
+    /**
+     * Drops the user's charts, called once a submitted sheet is stored.
+     */
+    void evict(String username);
+}
@@ -0,0 +1,102 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thanhtam.backend.dto.CourseChart;
+import com.thanhtam.backend.entity.CourseProgress;
+import org.decimal4j.util.DoubleRounder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-student course chart. Counts, average and week-over-week numbers of every course are read from the
+ * user's course_progress rows in one query, the result is kept per user until the user submits again.
+ */
+@Service
+public class CourseChartServiceImpl implements CourseChartService {
+    //    Courses of the user's intake without any graded attempt still show, with no progress row
+    private static final String CHART_SQL = "SELECT c.course_code, c.name, cp.completed_exams, cp.score_total, cp.week_start, cp.week_count, cp.previous_week_count "
+            + "FROM users u JOIN course_intake ci ON ci.intake_id = u.intake_id JOIN course c ON c.id = ci.course_id "
+            + "LEFT JOIN course_progress cp ON cp.user_id = u.id AND cp.course_id = c.id WHERE u.username = ? ORDER BY c.id";
+
+    private JdbcTemplate jdbcTemplate;
+    private Cache<String, Snapshot> charts;
+
+    @Autowired
+    public CourseChartServiceImpl(JdbcTemplate jdbcTemplate, @Value("${isc.chart.cache-size:10000}") long cacheSize,
+                                  @Value("${isc.chart.cache-ttl-seconds:300}") long cacheTtlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+//        The ttl bounds staleness from regrades, which change scores without a submit
+        this.charts = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS).build();
+    }
+
+    @Override
+    public List<CourseChart> getCourseCharts(String username) {
+        LocalDate weekStart = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        Snapshot snapshot = charts.getIfPresent(username);
+        if (snapshot != null && snapshot.weekStart.equals(weekStart)) {
+            return snapshot.charts;
+        }
+        snapshot = new Snapshot(weekStart, Collections.unmodifiableList(load(username, weekStart)));
+        charts.put(username, snapshot);
+        return snapshot.charts;
+    }
+
+    @Override
+    public void evict(String username) {
+        charts.invalidate(username);
+    }
+
+    private List<CourseChart> load(String username, LocalDate weekStart) {
+        return jdbcTemplate.query(CHART_SQL, (rs, rowNum) -> {
+            CourseProgress progress = new CourseProgress();
+            progress.setCompletedExams(rs.getLong("completed_exams"));
+            progress.setScoreTotal(rs.getDouble("score_total"));
+            progress.setWeekStart(rs.getDate("week_start"));
+            progress.setWeekCount(rs.getLong("week_count"));
+            progress.setPreviousWeekCount(rs.getLong("previous_week_count"));
+            Double avgPoint = progress.getAverageScore();
+            return toChart(rs.getString("course_code"), rs.getString("name"), (int) progress.getCompletedExams(), avgPoint != null ? avgPoint : 0.0,
+                    (int) progress.countInWeek(weekStart), (int) progress.countInWeek(weekStart.minusWeeks(1)));
+        }, username);
+    }
+
+    static CourseChart toChart(String courseCode, String courseName, int countExam, double avgPoint, int currentCount, int lastWeekCount) {
+        CourseChart courseChart = new CourseChart();
+        courseChart.setCourseCode(courseCode);
+        courseChart.setCourseName(courseName);
+        courseChart.setCountExam(countExam);
+        courseChart.setTotalPoint(DoubleRounder.round(avgPoint, 2));
+        if (lastWeekCount == 0) {
+            courseChart.setCompareLastWeek(currentCount == 0 ? 0 : 1);
+            courseChart.setChangeRating((double) currentCount * 100);
+        } else if (currentCount == 0) {
+            courseChart.setCompareLastWeek(-1);
+            courseChart.setChangeRating((double) lastWeekCount * 100);
+        } else {
+            double rate = (double) currentCount - lastWeekCount;
+            courseChart.setChangeRating(DoubleRounder.round(rate / lastWeekCount, 2) * 100);
+            courseChart.setCompareLastWeek(Double.compare(rate, 0));
+        }
+        return courseChart;
+    }
+
+    private static class Snapshot {
+        private final LocalDate weekStart;
+        private final List<CourseChart> charts;
+
+        private Snapshot(LocalDate weekStart, List<CourseChart> charts) {
+            this.weekStart = weekStart;
+            this.charts = charts;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.repository.CourseProgressRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills course_progress on the first start after it was added, or always with --rebuild-course-progress.
+ */
+@Component
+public class CourseProgressRebuildRunner implements ApplicationRunner {
+    private static final String OPTION = "rebuild-course-progress";
+
+    private Logger logger = LoggerFactory.getLogger(CourseProgressRebuildRunner.class);
+
+    private CourseProgressService courseProgressService;
+    private CourseProgressRepository courseProgressRepository;
+
+    @Autowired
+    public CourseProgressRebuildRunner(CourseProgressService courseProgressService, CourseProgressRepository courseProgressRepository) {
+        this.courseProgressService = courseProgressService;
+        this.courseProgressRepository = courseProgressRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION) && courseProgressRepository.count() > 0) {
+            return;
+        }
+        courseProgressService.rebuild();
+        logger.info("Rebuilt course progress, {} rows", courseProgressRepository.count());
+    }
+}
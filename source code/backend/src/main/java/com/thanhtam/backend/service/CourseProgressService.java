@@ -0,0 +1,27 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.ExamUser;
+
+import java.util.List;
+
+public interface CourseProgressService {
+    /**
+     * Adds graded attempts to their students' progress, within the caller's transaction if there is one.
+     */
+    void recordGraded(List<ExamUser> examUsers);
+
+    /**
+     * Recounts a student's progress in one course, after a stored score changed.
+     */
+    void refresh(Long userId, Long courseId);
+
+    /**
+     * Recounts the progress of every student of an exam in its course, after the exam was regraded.
+     */
+    void refreshExam(Long examId);
+
+    /**
+     * Recounts every student's progress from exam_user.
+     */
+    void rebuild();
+}
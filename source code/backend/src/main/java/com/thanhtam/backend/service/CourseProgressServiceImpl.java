@@ -0,0 +1,109 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.ExamUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The course_progress table. A graded attempt is added to its (user, course) row with an upsert, score changes
+ * of stored attempts recount the affected rows from exam_user. Like the charts before it, an attempt counts once
+ * it has a total_point.
+ */
+@Service
+public class CourseProgressServiceImpl implements CourseProgressService {
+    //    Assignments run left to right, so the week counters are moved before week_start is
+    private static final String RECORD_SQL = "INSERT INTO course_progress (user_id, course_id, completed_exams, score_total, best_score, last_activity, week_start, week_count, previous_week_count) "
+            + "VALUES (?, ?, 1, ?, ?, ?, ?, 1, 0) ON DUPLICATE KEY UPDATE "
+            + "previous_week_count = CASE WHEN VALUES(week_start) = week_start THEN previous_week_count "
+            + "WHEN VALUES(week_start) = week_start + INTERVAL 7 DAY THEN week_count WHEN VALUES(week_start) > week_start THEN 0 "
+            + "WHEN VALUES(week_start) = week_start - INTERVAL 7 DAY THEN previous_week_count + 1 ELSE previous_week_count END, "
+            + "week_count = CASE WHEN VALUES(week_start) = week_start THEN week_count + 1 WHEN VALUES(week_start) > week_start THEN 1 ELSE week_count END, "
+            + "week_start = GREATEST(week_start, VALUES(week_start)), "
+            + "completed_exams = completed_exams + 1, score_total = score_total + VALUES(score_total), "
+            + "best_score = GREATEST(COALESCE(best_score, VALUES(best_score)), VALUES(best_score)), "
+            + "last_activity = GREATEST(COALESCE(last_activity, VALUES(last_activity)), VALUES(last_activity))";
+    private static final String RECOUNT_SQL = "INSERT INTO course_progress (user_id, course_id, completed_exams, score_total, best_score, last_activity, week_start, week_count, previous_week_count) "
+            + "SELECT eu.user_id, p.course_id, COUNT(*), SUM(eu.total_point), MAX(eu.total_point), MAX(eu.time_finish), ?, "
+            + "COALESCE(SUM(eu.time_finish >= ? AND eu.time_finish < ?), 0), COALESCE(SUM(eu.time_finish >= ? AND eu.time_finish < ?), 0) "
+            + "FROM exam_user eu JOIN exam e ON e.id = eu.exam_id JOIN part p ON p.id = e.part_id WHERE eu.total_point > -1%s GROUP BY eu.user_id, p.course_id";
+    private static final String EXAM_COURSE = "(SELECT p.course_id FROM exam e JOIN part p ON p.id = e.part_id WHERE e.id = ?)";
+    private static final String EXAM_USERS = "(SELECT user_id FROM exam_user WHERE exam_id = ?)";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CourseProgressServiceImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void recordGraded(List<ExamUser> examUsers) {
+        List<Object[]> rows = new ArrayList<>();
+        for (ExamUser examUser : examUsers) {
+            if (examUser.getTotalPoint() == null || examUser.getTotalPoint() <= -1) {
+                continue;
+            }
+            Date finished = examUser.getTimeFinish() != null ? examUser.getTimeFinish() : new Date();
+            rows.add(new Object[]{examUser.getUser().getId(), examUser.getExam().getPart().getCourse().getId(), examUser.getTotalPoint(), examUser.getTotalPoint(),
+                    new Timestamp(finished.getTime()), java.sql.Date.valueOf(toMonday(finished.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()))});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(RECORD_SQL, rows);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void refresh(Long userId, Long courseId) {
+        jdbcTemplate.update("DELETE FROM course_progress WHERE user_id = ? AND course_id = ?", userId, courseId);
+        recount(" AND eu.user_id = ? AND p.course_id = ?", userId, courseId);
+    }
+
+    @Override
+    @Transactional
+    public void refreshExam(Long examId) {
+        jdbcTemplate.update("DELETE FROM course_progress WHERE course_id = " + EXAM_COURSE + " AND user_id IN " + EXAM_USERS, examId, examId);
+        recount(" AND p.course_id = " + EXAM_COURSE + " AND eu.user_id IN " + EXAM_USERS, examId, examId);
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM course_progress");
+        recount("");
+    }
+
+    //    Recounted rows start at the current week, so both week counters are relative to it
+    private void recount(String filter, Object... filterArgs) {
+        LocalDate monday = toMonday(LocalDate.now());
+        ZoneId zone = ZoneId.systemDefault();
+        Timestamp lastWeek = Timestamp.from(monday.minusWeeks(1).atStartOfDay(zone).toInstant());
+        Timestamp thisWeek = Timestamp.from(monday.atStartOfDay(zone).toInstant());
+        Timestamp nextWeek = Timestamp.from(monday.plusWeeks(1).atStartOfDay(zone).toInstant());
+        List<Object> args = new ArrayList<>();
+        args.add(java.sql.Date.valueOf(monday));
+        args.add(thisWeek);
+        args.add(nextWeek);
+        args.add(lastWeek);
+        args.add(thisWeek);
+        for (Object filterArg : filterArgs) {
+            args.add(filterArg);
+        }
+        jdbcTemplate.update(String.format(RECOUNT_SQL, filter), args.toArray());
+    }
+
+    static LocalDate toMonday(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
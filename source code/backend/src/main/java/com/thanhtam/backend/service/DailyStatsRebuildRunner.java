@@ -0,0 +1,37 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.repository.DailyStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills daily_stats on the first start after it was added, or always with --rebuild-daily-stats.
+ */
+@Component
+public class DailyStatsRebuildRunner implements ApplicationRunner {
+    private static final String OPTION = "rebuild-daily-stats";
+
+    private Logger logger = LoggerFactory.getLogger(DailyStatsRebuildRunner.class);
+
+    private DailyStatsService dailyStatsService;
+    private DailyStatsRepository dailyStatsRepository;
+
+    @Autowired
+    public DailyStatsRebuildRunner(DailyStatsService dailyStatsService, DailyStatsRepository dailyStatsRepository) {
+        this.dailyStatsService = dailyStatsService;
+        this.dailyStatsRepository = dailyStatsRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION) && dailyStatsRepository.count() > 0) {
+            return;
+        }
+        dailyStatsService.rebuild();
+        logger.info("Rebuilt daily statistics, {} days", dailyStatsRepository.count());
+    }
+}
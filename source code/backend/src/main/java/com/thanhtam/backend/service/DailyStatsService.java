@@ -0,0 +1,27 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.DailyStats;
+import com.thanhtam.backend.ultilities.EDailyCounter;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+public interface DailyStatsService {
+    /**
+     * Adds to a counter of the day of the given time, within the caller's transaction if there is one.
+     */
+    void increment(Date time, EDailyCounter counter, long delta);
+
+    void recordFinished(Date time, long attempts, double scoreTotal);
+
+    /**
+     * Days in [from, to), days without any activity are missing.
+     */
+    List<DailyStats> getDays(LocalDate from, LocalDate to);
+
+    /**
+     * Recounts every day from the underlying tables.
+     */
+    void rebuild();
+}
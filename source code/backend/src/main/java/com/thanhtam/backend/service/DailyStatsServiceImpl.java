@@ -0,0 +1,78 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.DailyStats;
+import com.thanhtam.backend.repository.DailyStatsRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The daily_stats rollup. Writers add to the row of the day with an upsert, readers get one row per day
+ * instead of scanning exam, question, users and exam_user.
+ * Scores are added as graded at finish, a later regrade is only reflected after a rebuild.
+ */
+@Service
+public class DailyStatsServiceImpl implements DailyStatsService {
+    private static final String INCREMENT_SQL = "INSERT INTO daily_stats (day, %1$s) VALUES (?, ?) ON DUPLICATE KEY UPDATE %1$s = %1$s + VALUES(%1$s)";
+    private static final String FINISHED_SQL = "INSERT INTO daily_stats (day, attempts_finished, score_total) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE attempts_finished = attempts_finished + VALUES(attempts_finished), score_total = score_total + VALUES(score_total)";
+    private static final String[] REBUILD_SQL = {
+            "DELETE FROM daily_stats",
+            "INSERT INTO daily_stats (day, exams_created) SELECT * FROM (SELECT DATE(created_date) AS d, COUNT(*) AS c FROM exam WHERE created_date IS NOT NULL GROUP BY d) t " +
+                    "ON DUPLICATE KEY UPDATE exams_created = t.c",
+            "INSERT INTO daily_stats (day, exams_canceled) SELECT * FROM (SELECT DATE(created_date) AS d, COUNT(*) AS c FROM exam WHERE canceled = 1 AND created_date IS NOT NULL GROUP BY d) t " +
+                    "ON DUPLICATE KEY UPDATE exams_canceled = t.c",
+            "INSERT INTO daily_stats (day, questions_created) SELECT * FROM (SELECT DATE(created_date) AS d, COUNT(*) AS c FROM question WHERE created_date IS NOT NULL GROUP BY d) t " +
+                    "ON DUPLICATE KEY UPDATE questions_created = t.c",
+            "INSERT INTO daily_stats (day, accounts_created) SELECT * FROM (SELECT DATE(created_date) AS d, COUNT(*) AS c FROM users GROUP BY d) t " +
+                    "ON DUPLICATE KEY UPDATE accounts_created = t.c",
+            "INSERT INTO daily_stats (day, attempts_started) SELECT * FROM (SELECT DATE(time_start) AS d, COUNT(*) AS c FROM exam_user WHERE is_started = 1 AND time_start IS NOT NULL GROUP BY d) t " +
+                    "ON DUPLICATE KEY UPDATE attempts_started = t.c",
+            "INSERT INTO daily_stats (day, attempts_finished, score_total) SELECT * FROM (SELECT DATE(time_finish) AS d, COUNT(*) AS c, COALESCE(SUM(total_point), 0) AS s FROM exam_user " +
+                    "WHERE is_finished = 1 AND time_finish IS NOT NULL GROUP BY d) t ON DUPLICATE KEY UPDATE attempts_finished = t.c, score_total = t.s"
+    };
+
+    private DailyStatsRepository dailyStatsRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DailyStatsServiceImpl(DailyStatsRepository dailyStatsRepository, JdbcTemplate jdbcTemplate) {
+        this.dailyStatsRepository = dailyStatsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void increment(Date time, EDailyCounter counter, long delta) {
+        jdbcTemplate.update(String.format(INCREMENT_SQL, counter.getColumn()), toDay(time), delta);
+    }
+
+    @Override
+    public void recordFinished(Date time, long attempts, double scoreTotal) {
+        jdbcTemplate.update(FINISHED_SQL, toDay(time), attempts, scoreTotal);
+    }
+
+    @Override
+    public List<DailyStats> getDays(LocalDate from, LocalDate to) {
+        return dailyStatsRepository.findAllByDayGreaterThanEqualAndDayLessThanOrderByDay(java.sql.Date.valueOf(from), java.sql.Date.valueOf(to));
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        for (String sql : REBUILD_SQL) {
+            jdbcTemplate.update(sql);
+        }
+    }
+
+    private static java.sql.Date toDay(Date time) {
+        Date instant = time != null ? time : new Date();
+        return java.sql.Date.valueOf(instant.toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+    }
+}
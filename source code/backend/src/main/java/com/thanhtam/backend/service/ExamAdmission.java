@@ -0,0 +1,21 @@
+package com.thanhtam.backend.service;
+
+/**
+ * A permit to run an exam start request, released when closed.
+ */
+public class ExamAdmission implements AutoCloseable {
+    private final Runnable release;
+    private boolean closed;
+
+    ExamAdmission(Runnable release) {
+        this.release = release;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AdmissionStats;
+
+public interface ExamAdmissionService {
+    ExamAdmission admit(Long examId);
+
+    AdmissionStats getStats();
+}
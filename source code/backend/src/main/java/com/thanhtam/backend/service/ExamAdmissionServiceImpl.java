@@ -0,0 +1,120 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thanhtam.backend.dto.AdmissionStats;
+import com.thanhtam.backend.exception.ExamBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many exam start requests of one exam run at once. Requests wait in a fair queue of bounded
+ * length, those that do not fit or wait too long are turned away with a retry-after hint.
+ */
+@Service
+public class ExamAdmissionServiceImpl implements ExamAdmissionService {
+    private int permits;
+    private int queueSize;
+    private long maxWaitMillis;
+    private int maxRetryAfterSeconds;
+
+    //    A gate dropped while still in use keeps working, its holders release on their own instance
+    private Cache<Long, Gate> gates = CacheBuilder.newBuilder().expireAfterAccess(30, TimeUnit.MINUTES).build();
+
+    private AtomicLong admitted = new AtomicLong();
+    private AtomicLong rejected = new AtomicLong();
+    private AtomicLong totalWaitMillis = new AtomicLong();
+    private AtomicLong longestWaitMillis = new AtomicLong();
+    private AtomicLong totalHoldMillis = new AtomicLong();
+
+    @Autowired
+    public ExamAdmissionServiceImpl(@Value("${isc.exam.admission.permits:50}") int permits, @Value("${isc.exam.admission.queue-size:100}") int queueSize,
+                                    @Value("${isc.exam.admission.max-wait-ms:3000}") long maxWaitMillis, @Value("${isc.exam.admission.max-retry-after-seconds:30}") int maxRetryAfterSeconds) {
+        this.permits = permits;
+        this.queueSize = queueSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+    }
+
+    @Override
+    public ExamAdmission admit(Long examId) {
+        Gate gate;
+        try {
+            gate = gates.get(examId, () -> new Gate(permits));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        if (gate.waiting.incrementAndGet() > queueSize) {
+            gate.waiting.decrementAndGet();
+            throw reject(gate);
+        }
+        long start = System.currentTimeMillis();
+        boolean acquired;
+        try {
+            acquired = gate.semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+        long waited = System.currentTimeMillis() - start;
+        totalWaitMillis.addAndGet(waited);
+        longestWaitMillis.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            throw reject(gate);
+        }
+        admitted.incrementAndGet();
+        long admittedAt = System.currentTimeMillis();
+        return new ExamAdmission(() -> {
+            totalHoldMillis.addAndGet(System.currentTimeMillis() - admittedAt);
+            gate.semaphore.release();
+        });
+    }
+
+    @Override
+    public AdmissionStats getStats() {
+        int inFlight = 0;
+        int waiting = 0;
+        for (Gate gate : gates.asMap().values()) {
+            inFlight += permits - gate.semaphore.availablePermits();
+            waiting += gate.waiting.get();
+        }
+        long admittedCount = admitted.get();
+        long waits = admittedCount + rejected.get();
+        return new AdmissionStats(permits, queueSize, (int) gates.size(), inFlight, waiting, admittedCount, rejected.get(),
+                waits == 0 ? 0 : totalWaitMillis.get() / waits, longestWaitMillis.get(), averageHoldMillis());
+    }
+
+    private ExamBusyException reject(Gate gate) {
+        rejected.incrementAndGet();
+//        Time to drain the current queue, with jitter so rejected clients do not all come back together
+        double rounds = Math.ceil((double) (gate.waiting.get() + permits) / permits);
+        int seconds = (int) Math.ceil(rounds * Math.max(averageHoldMillis(), 100) / 1000.0);
+        seconds = Math.min(maxRetryAfterSeconds, Math.max(1, seconds));
+        seconds += ThreadLocalRandom.current().nextInt(seconds + 1);
+        return new ExamBusyException("Có quá nhiều thí sinh đang vào thi, vui lòng thử lại sau", Math.min(maxRetryAfterSeconds, seconds));
+    }
+
+    private long averageHoldMillis() {
+        long admittedCount = admitted.get();
+        return admittedCount == 0 ? 0 : totalHoldMillis.get() / admittedCount;
+    }
+
+    private static class Gate {
+        private final Semaphore semaphore;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        Gate(int permits) {
+            this.semaphore = new Semaphore(permits, true);
+        }
+    }
+}
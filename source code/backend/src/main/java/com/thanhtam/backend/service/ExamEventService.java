@@ -0,0 +1,18 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.ExamUser;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ExamEventService {
+    SseEmitter subscribeCandidate(ExamUser examUser);
+
+    SseEmitter subscribeLecturer(Long examId);
+
+    void publishStarted(ExamUser examUser);
+
+    void publishSubmitted(ExamUser examUser);
+
+    void publishForcedSubmit(ExamUser examUser, double totalPoint);
+
+    void publishCanceled(Long examId);
+}
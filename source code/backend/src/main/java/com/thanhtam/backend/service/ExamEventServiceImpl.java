@@ -0,0 +1,166 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamEvent;
+import com.thanhtam.backend.entity.ExamUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Server-sent event channels of running exams. Connections are held by the servlet container's
+ * async support, so an idle connection costs no thread; one scheduled tick serves all of them.
+ */
+@Service
+public class ExamEventServiceImpl implements ExamEventService {
+    private Logger logger = LoggerFactory.getLogger(ExamEventServiceImpl.class);
+
+    private long timeoutMillis;
+    //    examId -> username -> candidate channel
+    private ConcurrentMap<Long, ConcurrentMap<String, CandidateChannel>> candidates = new ConcurrentHashMap<>();
+    private ConcurrentMap<Long, Set<SseEmitter>> lecturers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExamEventServiceImpl(@Value("${isc.exam.events.timeout-ms:1800000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public SseEmitter subscribeCandidate(ExamUser examUser) {
+        Long examId = examUser.getExam().getId();
+        String username = examUser.getUser().getUsername();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        CandidateChannel channel = new CandidateChannel(emitter, examUser.getDeadline());
+        ConcurrentMap<String, CandidateChannel> channels = candidates.computeIfAbsent(examId, id -> new ConcurrentHashMap<>());
+        CandidateChannel previous = channels.put(username, channel);
+        if (previous != null) {
+            previous.emitter.complete();
+        }
+        Runnable remove = () -> channels.remove(username, channel);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        send(emitter, tick(examId, username, channel.deadline));
+        return emitter;
+    }
+
+    @Override
+    public SseEmitter subscribeLecturer(Long examId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Set<SseEmitter> emitters = lecturers.computeIfAbsent(examId, id -> ConcurrentHashMap.newKeySet());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        send(emitter, new ExamEvent("tick", examId, null, System.currentTimeMillis(), null, null));
+        return emitter;
+    }
+
+    @Override
+    public void publishStarted(ExamUser examUser) {
+        publishToLecturers(event("started", examUser, null));
+    }
+
+    @Override
+    public void publishSubmitted(ExamUser examUser) {
+        publishToLecturers(event("submitted", examUser, null));
+        closeCandidate(examUser, null);
+    }
+
+    @Override
+    public void publishForcedSubmit(ExamUser examUser, double totalPoint) {
+        ExamEvent event = event("forced-submit", examUser, totalPoint);
+        publishToLecturers(event);
+        closeCandidate(examUser, event);
+    }
+
+    @Override
+    public void publishCanceled(Long examId) {
+        ExamEvent event = new ExamEvent("canceled", examId, null, System.currentTimeMillis(), null, null);
+        Map<String, CandidateChannel> channels = candidates.remove(examId);
+        if (channels != null) {
+            channels.values().forEach(channel -> {
+                send(channel.emitter, event);
+                channel.emitter.complete();
+            });
+        }
+        Set<SseEmitter> emitters = lecturers.remove(examId);
+        if (emitters != null) {
+            emitters.forEach(emitter -> {
+                send(emitter, event);
+                emitter.complete();
+            });
+        }
+    }
+
+    @Scheduled(fixedRateString = "${isc.exam.events.tick-ms:15000}")
+    public void tick() {
+        candidates.forEach((examId, channels) -> {
+            channels.forEach((username, channel) -> send(channel.emitter, tick(examId, username, channel.deadline)));
+            if (channels.isEmpty()) {
+                candidates.remove(examId, channels);
+            }
+        });
+        lecturers.forEach((examId, emitters) -> {
+            ExamEvent event = new ExamEvent("tick", examId, null, System.currentTimeMillis(), null, null);
+            emitters.forEach(emitter -> send(emitter, event));
+            if (emitters.isEmpty()) {
+                lecturers.remove(examId, emitters);
+            }
+        });
+    }
+
+    private void publishToLecturers(ExamEvent event) {
+        lecturers.getOrDefault(event.getExamId(), Collections.emptySet()).forEach(emitter -> send(emitter, event));
+    }
+
+    private void closeCandidate(ExamUser examUser, ExamEvent event) {
+        Map<String, CandidateChannel> channels = candidates.get(examUser.getExam().getId());
+        CandidateChannel channel = channels == null ? null : channels.remove(examUser.getUser().getUsername());
+        if (channel != null) {
+            if (event != null) {
+                send(channel.emitter, event);
+            }
+            channel.emitter.complete();
+        }
+    }
+
+    private ExamEvent event(String type, ExamUser examUser, Double totalPoint) {
+        return new ExamEvent(type, examUser.getExam().getId(), examUser.getUser().getUsername(), System.currentTimeMillis(), null, totalPoint);
+    }
+
+    private ExamEvent tick(Long examId, String username, Date deadline) {
+        long now = System.currentTimeMillis();
+        Integer remaining = deadline == null ? null : (int) Math.max(0, (deadline.getTime() - now) / 1000);
+        return new ExamEvent("tick", examId, username, now, remaining, null);
+    }
+
+    private void send(SseEmitter emitter, ExamEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(event.getType()).data(event));
+        } catch (IOException | IllegalStateException e) {
+//            The client went away, completing fires the removal callback
+            logger.debug("Dropping exam event channel: {}", e.getMessage());
+            emitter.complete();
+        }
+    }
+
+    private static class CandidateChannel {
+        private final SseEmitter emitter;
+        private final Date deadline;
+
+        CandidateChannel(SseEmitter emitter, Date deadline) {
+            this.emitter = emitter;
+            this.deadline = deadline;
+        }
+    }
+}
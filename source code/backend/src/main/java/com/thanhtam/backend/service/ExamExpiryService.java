@@ -0,0 +1,5 @@
+package com.thanhtam.backend.service;
+
+public interface ExamExpiryService {
+    int finishExpiredSessions();
+}
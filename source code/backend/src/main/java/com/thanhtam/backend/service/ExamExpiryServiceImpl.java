@@ -0,0 +1,176 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.repository.ExamUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Finishes and grades sessions whose deadline has passed, so abandoned exams do not stay open.
+ * Each tick reads expired ids through the (is_finished, deadline) index, batch by batch. A batch is finished and
+ * counted in one transaction; a sheet submitted meanwhile is counted by its submission only.
+ */
+@Service
+public class ExamExpiryServiceImpl implements ExamExpiryService {
+    private static final String LOCK_OPEN_SQL = "SELECT id FROM exam_user WHERE id IN (%s) AND is_finished = 0 FOR UPDATE";
+    private static final String FINISH_SQL = "UPDATE exam_user SET is_finished = 1, time_finish = ?, remaining_time = 0, total_point = ?, grade_data = ?, grade_key = ?, answer_sheet = ?, answer_data = ?, answer_sequence = ? WHERE id = ? AND is_finished = 0";
+
+    private Logger logger = LoggerFactory.getLogger(ExamExpiryServiceImpl.class);
+
+    private ExamUserRepository examUserRepository;
+    private ExamPaperService examPaperService;
+    private GradingService gradingService;
+    private AutosaveBuffer autosaveBuffer;
+    private ExamEventService examEventService;
+    private QuestionStatsService questionStatsService;
+    private LeaderboardService leaderboardService;
+    private DailyStatsService dailyStatsService;
+    private CourseChartService courseChartService;
+    private CourseProgressService courseProgressService;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private int batchSize;
+    private long deadlineGraceMillis;
+
+    @Autowired
+    public ExamExpiryServiceImpl(ExamUserRepository examUserRepository, ExamPaperService examPaperService, GradingService gradingService, AutosaveBuffer autosaveBuffer, ExamEventService examEventService, QuestionStatsService questionStatsService, LeaderboardService leaderboardService, DailyStatsService dailyStatsService, CourseChartService courseChartService, CourseProgressService courseProgressService, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 @Value("${isc.exam.sweep-batch-size:500}") int batchSize, @Value("${isc.exam.deadline-grace-seconds:15}") long deadlineGraceSeconds) {
+        this.examUserRepository = examUserRepository;
+        this.examPaperService = examPaperService;
+        this.gradingService = gradingService;
+        this.autosaveBuffer = autosaveBuffer;
+        this.examEventService = examEventService;
+        this.questionStatsService = questionStatsService;
+        this.leaderboardService = leaderboardService;
+        this.dailyStatsService = dailyStatsService;
+        this.courseChartService = courseChartService;
+        this.courseProgressService = courseProgressService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.deadlineGraceMillis = deadlineGraceSeconds * 1000;
+    }
+
+    //    Sessions started before the deadline column existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillDeadlines() {
+        int updated = examUserRepository.backfillDeadlines();
+        if (updated > 0) {
+            logger.info("Backfilled deadline of {} open exam sessions", updated);
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${isc.exam.sweep-interval-ms:5000}")
+    public int finishExpiredSessions() {
+        Date cutoff = new Date(System.currentTimeMillis() - deadlineGraceMillis);
+        int finished = 0;
+        List<Long> ids;
+        do {
+            ids = examUserRepository.findExpiredIds(cutoff, batchSize);
+            if (!ids.isEmpty()) {
+                finished += finish(examUserRepository.findAllById(ids));
+            }
+        } while (ids.size() == batchSize);
+        if (finished > 0) {
+            logger.info("Finished {} expired exam sessions", finished);
+        }
+        return finished;
+    }
+
+    private int finish(List<ExamUser> examUsers) {
+        Map<Long, ExamPaper> papers = new HashMap<>();
+        List<ExamUser> finished = transactionTemplate.execute(status -> finishLocked(examUsers, papers));
+//        Only committed finishes reach the candidates and the board
+        for (ExamUser examUser : finished) {
+            examEventService.publishForcedSubmit(examUser, examUser.getTotalPoint());
+            if (examUser.getGradeData() != null) {
+                leaderboardService.record(examUser);
+            }
+//            Charts are dropped once the progress they read is written
+            courseChartService.evict(examUser.getUser().getUsername());
+        }
+        return finished.size();
+    }
+
+    /**
+     * Locks the rows still open, so every row of the batch is finished by this sweep and a concurrent submission
+     * waits and then finds it finished; the counters are written in the same transaction.
+     */
+    private List<ExamUser> finishLocked(List<ExamUser> examUsers, Map<Long, ExamPaper> papers) {
+        String placeholders = String.join(", ", Collections.nCopies(examUsers.size(), "?"));
+        Set<Long> open = new HashSet<>(jdbcTemplate.queryForList(String.format(LOCK_OPEN_SQL, placeholders), Long.class,
+                examUsers.stream().map(ExamUser::getId).toArray()));
+        List<ExamUser> locked = new ArrayList<>();
+        Set<Long> ungraded = new HashSet<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (ExamUser examUser : examUsers) {
+            if (!open.contains(examUser.getId())) {
+                continue;
+            }
+//            The last buffered autosave is part of the final sheet
+            autosaveBuffer.drain(examUser);
+            Exam exam = examUser.getExam();
+            ExamPaper paper = papers.computeIfAbsent(exam.getId(), id -> examPaperService.getPaper(exam));
+            try {
+                gradingService.recordGrade(examUser, paper);
+            } catch (IllegalArgumentException e) {
+//                The session still ends, ungraded, so one unreadable sheet does not hold back every later sweep
+                logger.warn("Could not grade answers of exam user {}, finishing it ungraded", examUser.getId(), e);
+                examUser.setTotalPoint(-1.0);
+                ungraded.add(examUser.getId());
+            }
+            locked.add(examUser);
+            rows.add(new Object[]{new Timestamp(examUser.getDeadline().getTime()), examUser.getTotalPoint(), examUser.getGradeData(), examUser.getGradeKey(), examUser.getAnswerSheet(),
+                    examUser.getAnswerData(), examUser.getAnswerSequence(), examUser.getId()});
+        }
+        if (rows.isEmpty()) {
+            return locked;
+        }
+        int[] types = {Types.TIMESTAMP, Types.DOUBLE, Types.VARBINARY, Types.BIGINT, Types.VARCHAR, Types.BLOB, Types.BIGINT, Types.BIGINT};
+        int[] counts = jdbcTemplate.batchUpdate(FINISH_SQL, rows, types);
+        List<ExamUser> finished = new ArrayList<>();
+        Map<Long, List<ExamUser>> finishedByExam = new HashMap<>();
+        Map<LocalDate, double[]> finishedByDay = new HashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+//            The row was locked while open, so SUCCESS_NO_INFO from a driver that rewrites batches is this sweep's update
+            if (counts[i] != 1 && counts[i] != Statement.SUCCESS_NO_INFO) {
+                continue;
+            }
+            ExamUser examUser = locked.get(i);
+            examUser.setIsFinished(true);
+            examUser.setTimeFinish(examUser.getDeadline());
+            examUser.setRemainingTime(0);
+            finished.add(examUser);
+            if (ungraded.contains(examUser.getId())) {
+                continue;
+            }
+            finishedByExam.computeIfAbsent(examUser.getExam().getId(), id -> new ArrayList<>()).add(examUser);
+            double[] day = finishedByDay.computeIfAbsent(examUser.getDeadline().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(), d -> new double[2]);
+            day[0]++;
+            day[1] += examUser.getTotalPoint();
+        }
+        finishedByExam.forEach((examId, sheets) -> questionStatsService.recordSheets(papers.get(examId), sheets));
+        courseProgressService.recordGraded(finished);
+        finishedByDay.forEach((day, totals) -> dailyStatsService.recordFinished(Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()), (long) totals[0], totals[1]));
+        return finished;
+    }
+}
@@ -0,0 +1,23 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerSheet;
+import com.thanhtam.backend.dto.CacheHitStats;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.Question;
+
+import java.util.List;
+
+public interface ExamPaperService {
+    ExamPaper getPaper(Exam exam);
+
+    void rebuildPaper(Exam exam);
+
+    void evictPaper(Long examId);
+
+    List<AnswerSheet> createAnswerSheets(ExamPaper paper);
+
+    List<Question> toQuestions(ExamPaper paper, List<AnswerSheet> answerSheets);
+
+    CacheHitStats getCacheStats();
+}
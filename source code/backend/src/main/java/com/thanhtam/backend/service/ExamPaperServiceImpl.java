@@ -0,0 +1,154 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.Question;
+import com.thanhtam.backend.entity.QuestionType;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class ExamPaperServiceImpl implements ExamPaperService {
+    private Logger logger = LoggerFactory.getLogger(ExamPaperServiceImpl.class);
+
+    private QuestionService questionService;
+    private ObjectMapper mapper;
+    private Cache<Long, ExamPaper> paperCache;
+    //    Papers of finished or canceled exams, read by result pages, reports and exports for a while after the exam
+    private Cache<Long, ExamPaper> finishedPaperCache;
+
+    @Autowired
+    public ExamPaperServiceImpl(QuestionService questionService, ObjectMapper mapper, @Value("${isc.exam.paper-cache-size:500}") long paperCacheSize,
+                                @Value("${isc.exam.finished-paper-expiry-minutes:10}") long finishedPaperExpiryMinutes) {
+        this.questionService = questionService;
+        this.mapper = mapper;
+        this.paperCache = CacheBuilder.newBuilder().maximumSize(paperCacheSize).recordStats().build();
+        this.finishedPaperCache = CacheBuilder.newBuilder().maximumSize(paperCacheSize).expireAfterAccess(finishedPaperExpiryMinutes, TimeUnit.MINUTES)
+                .recordStats().build();
+    }
+
+    @Override
+    public ExamPaper getPaper(Exam exam) {
+        try {
+            return cacheOf(exam).get(exam.getId(), () -> buildPaper(exam));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot build paper for exam: " + exam.getId(), e.getCause());
+        }
+    }
+
+    @Override
+    public void rebuildPaper(Exam exam) {
+        evictPaper(exam.getId());
+        cacheOf(exam).put(exam.getId(), buildPaper(exam));
+    }
+
+    @Override
+    public void evictPaper(Long examId) {
+        paperCache.invalidate(examId);
+        finishedPaperCache.invalidate(examId);
+    }
+
+    @Override
+    public CacheHitStats getCacheStats() {
+        CacheStats stats = paperCache.stats().plus(finishedPaperCache.stats());
+        return new CacheHitStats(paperCache.size() + finishedPaperCache.size(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
+    @Override
+    public List<AnswerSheet> createAnswerSheets(ExamPaper paper) {
+        List<AnswerSheet> answerSheets = new ArrayList<>();
+        paper.getQuestions().forEach(question -> answerSheets.add(new AnswerSheet(question.getQuestionId(), copyChoices(question), question.getPoint())));
+        return answerSheets;
+    }
+
+    @Override
+    public List<Question> toQuestions(ExamPaper paper, List<AnswerSheet> answerSheets) {
+        List<Question> questions = new ArrayList<>();
+        answerSheets.forEach(answerSheet -> {
+            PaperQuestion paperQuestion = paper.getQuestion(answerSheet.getQuestionId());
+            if (paperQuestion == null) {
+                return;
+            }
+            Question question = new Question();
+            question.setId(paperQuestion.getQuestionId());
+            question.setQuestionText(paperQuestion.getQuestionText());
+            question.setDifficultyLevel(paperQuestion.getDifficultyLevel());
+            question.setQuestionType(new QuestionType(paperQuestion.getQuestionTypeId(), paperQuestion.getTypeCode(), paperQuestion.getTypeDescription()));
+            question.setChoices(answerSheet.getChoices());
+            question.setPoint(answerSheet.getPoint());
+            questions.add(question);
+        });
+        return questions;
+    }
+
+    //    Finished papers move to the expiring cache, where the reads after the exam find them
+    @Scheduled(fixedDelayString = "${isc.exam.paper-eviction-ms:60000}")
+    public void evictFinishedPapers() {
+        Date now = new Date();
+        paperCache.asMap().entrySet().removeIf(entry -> {
+            ExamPaper paper = entry.getValue();
+            if (paper.getFinishExam() == null || paper.getFinishExam().compareTo(now) >= 0) {
+                return false;
+            }
+            finishedPaperCache.asMap().putIfAbsent(entry.getKey(), paper);
+            return true;
+        });
+    }
+
+    private Cache<Long, ExamPaper> cacheOf(Exam exam) {
+        boolean active = !exam.isCanceled() && (exam.getFinishExam() == null || exam.getFinishExam().compareTo(new Date()) > 0);
+        return active ? paperCache : finishedPaperCache;
+    }
+
+    private ExamPaper buildPaper(Exam exam) {
+        List<ExamQuestionPoint> examQuestionPoints;
+        try {
+            examQuestionPoints = mapper.readValue(exam.getQuestionData(), new TypeReference<List<ExamQuestionPoint>>() {
+            });
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid question data of exam: " + exam.getId(), e);
+        }
+        List<PaperQuestion> paperQuestions = questionService.getQuestionPointList(examQuestionPoints).stream()
+                .map(this::toPaperQuestion)
+                .collect(Collectors.toList());
+        logger.info("Built paper of exam {} with {} questions", exam.getId(), paperQuestions.size());
+        return new ExamPaper(exam.getId(), exam.getFinishExam(), paperQuestions);
+    }
+
+    private PaperQuestion toPaperQuestion(Question question) {
+        QuestionType questionType = question.getQuestionType();
+        EQTypeCode typeCode = questionType != null ? questionType.getTypeCode() : null;
+        List<PaperChoice> choices = new ArrayList<>();
+        if (question.getChoices() != null) {
+//            A TF question keeps its answer in the choice text, so the text must not reach the candidate
+            question.getChoices().forEach(choice -> choices.add(new PaperChoice(choice.getId(), typeCode == EQTypeCode.TF ? "" : choice.getChoiceText())));
+        }
+        return new PaperQuestion(question.getId(), question.getQuestionText(), question.getDifficultyLevel(),
+                questionType != null ? questionType.getId() : null, typeCode,
+                questionType != null ? questionType.getDescription() : null,
+                question.getPoint(), Collections.unmodifiableList(choices));
+    }
+
+    private List<Choice> copyChoices(PaperQuestion question) {
+        List<Choice> choices = new ArrayList<>();
+        question.getChoices().forEach(choice -> choices.add(new Choice(choice.getId(), choice.getChoiceText(), 0)));
+        return choices;
+    }
+}
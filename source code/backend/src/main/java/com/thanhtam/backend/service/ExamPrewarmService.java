@@ -0,0 +1,9 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.PrewarmStats;
+
+public interface ExamPrewarmService {
+    void prewarmUpcomingExams();
+
+    PrewarmStats getStats();
+}
@@ -0,0 +1,97 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.ExamWarmup;
+import com.thanhtam.backend.dto.PaperQuestion;
+import com.thanhtam.backend.dto.PrewarmStats;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.User;
+import com.thanhtam.backend.repository.ExamRepository;
+import com.thanhtam.backend.repository.ExamUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Loads what the first requests of an exam need before the exam begins, so the first candidates
+ * do not pay for cold caches.
+ */
+@Service
+public class ExamPrewarmServiceImpl implements ExamPrewarmService {
+    private static final long KEEP_WARMUP_MILLIS = 60 * 60 * 1000L;
+
+    private Logger logger = LoggerFactory.getLogger(ExamPrewarmServiceImpl.class);
+
+    private ExamRepository examRepository;
+    private ExamUserRepository examUserRepository;
+    private ExamPaperService examPaperService;
+    private AnswerKeyService answerKeyService;
+    private UserDetailsServiceImpl userDetailsService;
+    private long leadMillis;
+    private ConcurrentMap<Long, ExamWarmup> warmups = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ExamPrewarmServiceImpl(ExamRepository examRepository, ExamUserRepository examUserRepository, ExamPaperService examPaperService, AnswerKeyService answerKeyService, UserDetailsServiceImpl userDetailsService,
+                                  @Value("${isc.exam.prewarm-lead-minutes:10}") long leadMinutes) {
+        this.examRepository = examRepository;
+        this.examUserRepository = examUserRepository;
+        this.examPaperService = examPaperService;
+        this.answerKeyService = answerKeyService;
+        this.userDetailsService = userDetailsService;
+        this.leadMillis = leadMinutes * 60 * 1000;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${isc.exam.prewarm-interval-ms:60000}")
+    public void prewarmUpcomingExams() {
+        long now = System.currentTimeMillis();
+        warmups.values().removeIf(warmup -> warmup.getBeginExam().getTime() < now - KEEP_WARMUP_MILLIS);
+        List<Exam> exams = examRepository.findAllByCanceledIsFalseAndBeginExamBetween(new Date(now), new Date(now + leadMillis));
+        for (Exam exam : exams) {
+            ExamWarmup previous = warmups.get(exam.getId());
+            if (previous != null && !"FAILED".equals(previous.getStatus())) {
+                continue;
+            }
+            warm(exam);
+        }
+    }
+
+    @Override
+    public PrewarmStats getStats() {
+        List<ExamWarmup> exams = warmups.values().stream()
+                .sorted(Comparator.comparing(ExamWarmup::getBeginExam))
+                .collect(Collectors.toList());
+        return new PrewarmStats(exams, examPaperService.getCacheStats(), answerKeyService.getCacheStats(), userDetailsService.getCacheStats());
+    }
+
+    private void warm(Exam exam) {
+        ExamWarmup warmup = new ExamWarmup(exam.getId(), exam.getTitle(), exam.getBeginExam(), "WARMING", 0, 0, new Date(), null);
+        warmups.put(exam.getId(), warmup);
+        try {
+            ExamPaper paper = examPaperService.getPaper(exam);
+            answerKeyService.getAnswerKey(paper.getQuestions().stream().map(PaperQuestion::getQuestionId).collect(Collectors.toList()));
+//            Reading the rows also pulls them into the database buffer pool; they are not cached here since every request changes them
+            List<ExamUser> examUsers = examUserRepository.findAllByExam_Id(exam.getId());
+            warmup.setParticipants(examUsers.size());
+            List<User> users = examUsers.stream().map(ExamUser::getUser).collect(Collectors.toList());
+            userDetailsService.cacheUsers(users);
+            warmup.setWarmedParticipants(users.size());
+            warmup.setStatus("DONE");
+            logger.info("Warmed exam {} for {} participants", exam.getId(), users.size());
+        } catch (RuntimeException e) {
+            warmup.setStatus("FAILED");
+            logger.error("Cannot warm exam {}", exam.getId(), e);
+        } finally {
+            warmup.setFinishedAt(new Date());
+        }
+    }
+}
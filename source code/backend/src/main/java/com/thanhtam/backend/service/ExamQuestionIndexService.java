@@ -0,0 +1,14 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.Exam;
+
+import java.util.List;
+
+public interface ExamQuestionIndexService {
+    /**
+     * Replaces the indexed questions of the exam with those of its question data.
+     */
+    void index(Exam exam);
+
+    List<Long> getExamIds(Long questionId);
+}
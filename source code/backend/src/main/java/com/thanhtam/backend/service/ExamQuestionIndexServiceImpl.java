@@ -0,0 +1,93 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thanhtam.backend.dto.ExamQuestionPoint;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.repository.ExamQuestionRepository;
+import com.thanhtam.backend.repository.ExamRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Keeps exam_question in step with exam.question_data, so the exams using a question are found
+ * through an index instead of parsing every exam's question data.
+ */
+@Service
+public class ExamQuestionIndexServiceImpl implements ExamQuestionIndexService {
+    private static final String INSERT_SQL = "INSERT IGNORE INTO exam_question (exam_id, question_id) VALUES (?, ?)";
+
+    private Logger logger = LoggerFactory.getLogger(ExamQuestionIndexServiceImpl.class);
+
+    private ExamQuestionRepository examQuestionRepository;
+    private ExamRepository examRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ObjectMapper mapper;
+
+    @Autowired
+    public ExamQuestionIndexServiceImpl(ExamQuestionRepository examQuestionRepository, ExamRepository examRepository, JdbcTemplate jdbcTemplate, ObjectMapper mapper) {
+        this.examQuestionRepository = examQuestionRepository;
+        this.examRepository = examRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void index(Exam exam) {
+        examQuestionRepository.deleteAllByExamId(exam.getId());
+        List<Object[]> rows = toRows(exam);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+
+    @Override
+    public List<Long> getExamIds(Long questionId) {
+        return examQuestionRepository.findExamIdsByQuestionId(questionId);
+    }
+
+    //    Exams created before the index existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (examQuestionRepository.count() > 0) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Exam exam : examRepository.findAll()) {
+            rows.addAll(toRows(exam));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            logger.info("Indexed {} exam questions", rows.size());
+        }
+    }
+
+    private List<Object[]> toRows(Exam exam) {
+        if (exam.getQuestionData() == null) {
+            return Collections.emptyList();
+        }
+        List<ExamQuestionPoint> examQuestionPoints;
+        try {
+            examQuestionPoints = mapper.readValue(exam.getQuestionData(), new TypeReference<List<ExamQuestionPoint>>() {
+            });
+        } catch (IOException e) {
+            logger.error("Invalid question data of exam {}", exam.getId(), e);
+            return Collections.emptyList();
+        }
+        List<Object[]> rows = new ArrayList<>(examQuestionPoints.size());
+        for (ExamQuestionPoint examQuestionPoint : examQuestionPoints) {
+            if (examQuestionPoint.getQuestionId() != null) {
+                rows.add(new Object[]{exam.getId(), examQuestionPoint.getQuestionId()});
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,187 @@
+package com.thanhtam.backend.service;
+
+import com.opencsv.CSVWriter;
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.ExamResultRow;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Writes an exam's results straight from a streaming MySQL cursor, one candidate at a time,
+ * so neither the result set nor the document is held in memory.
+ */
+@Service
+public class ExamResultExportServiceImpl implements ExamResultExportService {
+    private static final String ROWS_SQL = "SELECT u.username, p.first_name, p.last_name, eu.is_started, eu.is_finished, eu.time_start, eu.time_finish, eu.total_point, " +
+            "eu.grade_data, eu.grade_key, eu.answer_sheet, eu.answer_data, eu.shuffle_seed FROM exam_user eu JOIN users u ON u.id = eu.user_id " +
+            "LEFT JOIN profile p ON p.id = u.profile_id WHERE eu.exam_id = ? ORDER BY u.username";
+
+    private ExamPaperService examPaperService;
+    private AnswerSheetService answerSheetService;
+    private GradingService gradingService;
+    private JdbcTemplate jdbcTemplate;
+    private int rowWindow;
+
+    @Autowired
+    public ExamResultExportServiceImpl(ExamPaperService examPaperService, AnswerSheetService answerSheetService, GradingService gradingService, JdbcTemplate jdbcTemplate,
+                                       @Value("${isc.exam.export.xlsx-row-window:100}") int rowWindow) {
+        this.examPaperService = examPaperService;
+        this.answerSheetService = answerSheetService;
+        this.gradingService = gradingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowWindow = rowWindow;
+    }
+
+    @Override
+    public void writeCsv(Exam exam, Writer writer) throws IOException {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        CSVWriter csvWriter = new CSVWriter(writer);
+        csvWriter.writeNext(header(paper));
+        String[] line = new String[7 + paper.getQuestions().size()];
+        forEachRow(exam, paper, row -> {
+            line[0] = row.getUsername();
+            line[1] = row.getFirstName();
+            line[2] = row.getLastName();
+            line[3] = row.getStatus();
+            line[4] = row.getTimeStart() == null ? "" : dateFormat.format(row.getTimeStart());
+            line[5] = row.getTimeFinish() == null ? "" : dateFormat.format(row.getTimeFinish());
+            line[6] = row.getTotalPoint() == null ? "" : String.valueOf(row.getTotalPoint());
+            for (int i = 0; i < paper.getQuestions().size(); i++) {
+                line[7 + i] = row.getOutcome() == null ? "" : CompiledExamKey.isCorrect(row.getOutcome(), i) ? "1" : "0";
+            }
+            csvWriter.writeNext(line);
+        });
+        csvWriter.flush();
+    }
+
+    @Override
+    public void writeXlsx(Exam exam, OutputStream out) throws IOException {
+        ExamPaper paper = examPaperService.getPaper(exam);
+//        Only the last rowWindow rows stay in memory, older ones are flushed to a temp file
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        try {
+            Sheet sheet = workbook.createSheet("Results");
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            String[] header = header(paper);
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < header.length; i++) {
+                headerRow.createCell(i).setCellValue(header[i]);
+            }
+            int[] rowIndex = {1};
+            forEachRow(exam, paper, row -> {
+                Row sheetRow = sheet.createRow(rowIndex[0]++);
+                sheetRow.createCell(0).setCellValue(row.getUsername());
+                sheetRow.createCell(1).setCellValue(row.getFirstName());
+                sheetRow.createCell(2).setCellValue(row.getLastName());
+                sheetRow.createCell(3).setCellValue(row.getStatus());
+                setDate(sheetRow.createCell(4), row.getTimeStart(), dateStyle);
+                setDate(sheetRow.createCell(5), row.getTimeFinish(), dateStyle);
+                if (row.getTotalPoint() != null) {
+                    sheetRow.createCell(6).setCellValue(row.getTotalPoint());
+                }
+                if (row.getOutcome() != null) {
+                    for (int i = 0; i < paper.getQuestions().size(); i++) {
+                        sheetRow.createCell(7 + i).setCellValue(CompiledExamKey.isCorrect(row.getOutcome(), i) ? 1 : 0);
+                    }
+                }
+            });
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private String[] header(ExamPaper paper) {
+        String[] header = new String[7 + paper.getQuestions().size()];
+        header[0] = "Username";
+        header[1] = "First name";
+        header[2] = "Last name";
+        header[3] = "Status";
+        header[4] = "Time start";
+        header[5] = "Time finish";
+        header[6] = "Total point";
+        for (int i = 0; i < paper.getQuestions().size(); i++) {
+            header[7 + i] = "Q" + (i + 1);
+        }
+        return header;
+    }
+
+    private void setDate(Cell cell, Date date, CellStyle dateStyle) {
+        if (date != null) {
+            cell.setCellValue(date);
+            cell.setCellStyle(dateStyle);
+        }
+    }
+
+    private void forEachRow(Exam exam, ExamPaper paper, Consumer<ExamResultRow> consumer) {
+//        Resolved before the cursor opens, a streaming connection cannot run other queries until it is drained
+        CompiledExamKey key = gradingService.getCompiledKey(paper);
+        Date now = new Date();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ROWS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+//            MySQL Connector/J streams row by row only with this fetch size
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setLong(1, exam.getId());
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(toRow(rs, exam, paper, key, now)));
+    }
+
+    private ExamResultRow toRow(ResultSet rs, Exam exam, ExamPaper paper, CompiledExamKey key, Date now) throws SQLException {
+        boolean started = rs.getInt("is_started") == 1;
+        boolean finished = rs.getInt("is_finished") == 1;
+        ExamResultRow row = new ExamResultRow();
+        row.setUsername(rs.getString("username"));
+        row.setFirstName(rs.getString("first_name"));
+        row.setLastName(rs.getString("last_name"));
+        row.setTimeStart(rs.getTimestamp("time_start"));
+        row.setTimeFinish(rs.getTimestamp("time_finish"));
+        if (!started) {
+            row.setStatus(exam.getFinishExam().compareTo(now) < 0 ? "MISSED" : "NOT_STARTED");
+            return row;
+        }
+        row.setStatus(finished ? "FINISHED" : "IN_PROGRESS");
+        byte[] gradeData = rs.getBytes("grade_data");
+        long gradeKey = rs.getLong("grade_key");
+        if (finished && gradeData != null && !rs.wasNull() && gradeKey == key.getFingerprint()) {
+            row.setTotalPoint(rs.getDouble("total_point"));
+            row.setOutcome(gradeData);
+            return row;
+        }
+//        Open sheets and ones graded with an older key are graded here, the bulk regrade stores them
+        ExamUser examUser = new ExamUser();
+        examUser.setIsStarted(true);
+        examUser.setAnswerSheet(rs.getString("answer_sheet"));
+        examUser.setAnswerData(rs.getBytes("answer_data"));
+        examUser.setShuffleSeed(rs.getObject("shuffle_seed") == null ? null : rs.getLong("shuffle_seed"));
+        long[] masks = new long[key.getQuestionCount()];
+        long[] outcome = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+        answerSheetService.fillSelectionMasks(examUser, paper, masks);
+        row.setTotalPoint((double) key.grade(masks, outcome));
+        row.setOutcome(CompiledExamKey.toOutcomeBytes(outcome, key.getQuestionCount()));
+        return row;
+    }
+}
@@ -0,0 +1,17 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamResultSummary;
+import com.thanhtam.backend.dto.KeysetPage;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.ultilities.EResultSort;
+import com.thanhtam.backend.ultilities.EResultStatus;
+
+public interface ExamResultService {
+    /**
+     * One page of the exam's candidates with summary columns only.
+     *
+     * @param status optional filter
+     * @param after  cursor of the previous page, null for the first page
+     */
+    KeysetPage<ExamResultSummary> getResultPage(Exam exam, EResultSort sort, boolean ascending, EResultStatus status, String after, int size);
+}
@@ -0,0 +1,174 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamResultSummary;
+import com.thanhtam.backend.dto.KeysetPage;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.ultilities.EResultSort;
+import com.thanhtam.backend.ultilities.EResultStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Candidate listing of an exam read through a projection of exam_user, users and profile.
+ * Pages continue after the last (sort key, id) seen instead of an offset. Points and finish times are sorted on the raw
+ * exam_user columns, so the (exam_id, column, id) indexes serve both the order and the seek and a page reads only its rows.
+ * NULLs come first ascending and last descending, as MySQL orders them, and are sought with explicit predicates.
+ */
+@Service
+public class ExamResultServiceImpl implements ExamResultService {
+    private static final String SELECT_SQL = "SELECT eu.id, u.username, p.first_name, p.last_name, eu.is_started, eu.is_finished, eu.time_start, eu.time_finish, eu.total_point " +
+            "FROM exam_user eu JOIN users u ON u.id = eu.user_id LEFT JOIN profile p ON p.id = u.profile_id WHERE eu.exam_id = ?";
+
+    private JdbcTemplate jdbcTemplate;
+    private int maxPageSize;
+
+    @Autowired
+    public ExamResultServiceImpl(JdbcTemplate jdbcTemplate, @Value("${isc.exam.result-page.max-size:100}") int maxPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public KeysetPage<ExamResultSummary> getResultPage(Exam exam, EResultSort sort, boolean ascending, EResultStatus status, String after, int size) {
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        Date now = new Date();
+        boolean ended = exam.getFinishExam() != null && exam.getFinishExam().compareTo(now) < 0;
+        String sortKey = sortKey(sort);
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> params = new ArrayList<>();
+        params.add(exam.getId());
+        if (status != null) {
+            switch (status) {
+                case MISSED:
+                case NOT_STARTED:
+                    if (ended != (status == EResultStatus.MISSED)) {
+                        return new KeysetPage<>(Collections.emptyList(), null);
+                    }
+                    sql.append(" AND eu.is_started = 0");
+                    break;
+                case DOING:
+                    sql.append(" AND eu.is_started = 1 AND eu.is_finished = 0");
+                    break;
+                case COMPLETED:
+                    sql.append(" AND eu.is_finished = 1");
+                    break;
+            }
+        }
+        String comparison = ascending ? ">" : "<";
+        if (after != null && !after.isEmpty()) {
+            Cursor cursor = Cursor.decode(after, sort);
+            if (cursor.value == null) {
+//                Within the NULL group, then on to the values when they follow it
+                sql.append(" AND (").append(sortKey).append(" IS NULL AND eu.id ").append(comparison).append(" ?")
+                        .append(ascending ? " OR " + sortKey + " IS NOT NULL)" : ")");
+                params.add(cursor.id);
+            } else {
+                sql.append(" AND (").append(sortKey).append(' ').append(comparison).append(" ? OR (")
+                        .append(sortKey).append(" = ? AND eu.id ").append(comparison).append(" ?)")
+                        .append(ascending ? ")" : " OR " + sortKey + " IS NULL)");
+                params.add(cursor.value);
+                params.add(cursor.value);
+                params.add(cursor.id);
+            }
+        }
+        String direction = ascending ? "ASC" : "DESC";
+        sql.append(" ORDER BY ").append(sortKey).append(' ').append(direction).append(", eu.id ").append(direction).append(" LIMIT ?");
+//        One extra row tells whether there is a next page
+        params.add(limit + 1);
+
+        List<Cursor> cursors = new ArrayList<>();
+        List<ExamResultSummary> summaries = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            boolean started = rs.getInt("is_started") == 1;
+            boolean finished = rs.getInt("is_finished") == 1;
+            EResultStatus rowStatus = !started ? (ended ? EResultStatus.MISSED : EResultStatus.NOT_STARTED)
+                    : finished ? EResultStatus.COMPLETED : EResultStatus.DOING;
+            Double totalPoint = finished && rs.getObject("total_point") != null ? rs.getDouble("total_point") : null;
+            cursors.add(new Cursor(rs.getLong("id"), sortValue(rs, sort)));
+            return new ExamResultSummary(rs.getString("username"), rs.getString("first_name"), rs.getString("last_name"), rowStatus,
+                    rs.getTimestamp("time_start"), rs.getTimestamp("time_finish"), totalPoint);
+        }, params.toArray());
+        if (summaries.size() <= limit) {
+            return new KeysetPage<>(summaries, null);
+        }
+        return new KeysetPage<>(summaries.subList(0, limit), cursors.get(limit - 1).encode(sort));
+    }
+
+    private String sortKey(EResultSort sort) {
+        switch (sort) {
+            case POINT:
+                return "eu.total_point";
+            case FINISH:
+                return "eu.time_finish";
+            default:
+                return "u.username";
+        }
+    }
+
+    private Object sortValue(ResultSet rs, EResultSort sort) throws SQLException {
+        switch (sort) {
+            case POINT:
+                return rs.getObject("total_point") == null ? null : rs.getDouble("total_point");
+            case FINISH:
+                return rs.getTimestamp("time_finish");
+            default:
+                return rs.getString("username");
+        }
+    }
+
+    /**
+     * Position after a row: its id and sort value, as URL-safe Base64 of "id:value", or of "id" when the value is NULL.
+     */
+    static class Cursor {
+        final long id;
+        final Object value;
+
+        Cursor(long id, Object value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        String encode(EResultSort sort) {
+            String text;
+            if (value == null) {
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+            } else if (sort == EResultSort.FINISH) {
+                text = String.valueOf(((Date) value).getTime());
+            } else if (sort == EResultSort.POINT) {
+                text = String.valueOf(((Number) value).doubleValue());
+            } else {
+                text = String.valueOf(value);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString((id + ":" + text).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor, EResultSort sort) {
+            try {
+                String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = text.indexOf(':');
+                if (separator < 0) {
+                    return new Cursor(Long.parseLong(text), null);
+                }
+                long id = Long.parseLong(text.substring(0, separator));
+                String value = text.substring(separator + 1);
+                switch (sort) {
+                    case POINT:
+                        return new Cursor(id, Double.parseDouble(value));
+                    case FINISH:
+                        return new Cursor(id, new Timestamp(Long.parseLong(value)));
+                    default:
+                        return new Cursor(id, value);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+        }
+    }
+}
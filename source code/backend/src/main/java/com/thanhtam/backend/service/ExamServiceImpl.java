@@ -1,5 +1,6 @@
 package com.thanhtam.backend.service;
 
+import com.thanhtam.backend.dto.AnswerKey;
 import com.thanhtam.backend.dto.AnswerSheet;
 import com.thanhtam.backend.dto.ChoiceCorrect;
 import com.thanhtam.backend.dto.ChoiceList;
@@ -8,6 +9,7 @@ import com.thanhtam.backend.entity.Exam;
 import com.thanhtam.backend.entity.Question;
 import com.thanhtam.backend.repository.ExamRepository;
 import com.thanhtam.backend.repository.IntakeRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
 import com.thanhtam.backend.ultilities.EQTypeCode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -15,11 +17,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 
@@ -30,21 +30,39 @@ public class ExamServiceImpl implements ExamService {
     private PartService partService;
     private UserService userService;
     private QuestionService questionService;
-    private ChoiceService choiceService;
+    private ExamPaperService examPaperService;
+    private ExamEventService examEventService;
+    private AnswerKeyService answerKeyService;
+    private ExamQuestionIndexService examQuestionIndexService;
+    private DailyStatsService dailyStatsService;
 
     @Autowired
-    public ExamServiceImpl(ExamRepository examRepository, IntakeRepository intakeRepository, PartService partService, UserService userService, QuestionService questionService, ChoiceService choiceService) {
+    public ExamServiceImpl(ExamRepository examRepository, IntakeRepository intakeRepository, PartService partService, UserService userService, QuestionService questionService, ExamPaperService examPaperService, ExamEventService examEventService, AnswerKeyService answerKeyService, ExamQuestionIndexService examQuestionIndexService, DailyStatsService dailyStatsService) {
         this.examRepository = examRepository;
         this.intakeRepository = intakeRepository;
         this.partService = partService;
         this.userService = userService;
         this.questionService = questionService;
-        this.choiceService = choiceService;
+        this.examPaperService = examPaperService;
+        this.examEventService = examEventService;
+        this.answerKeyService = answerKeyService;
+        this.examQuestionIndexService = examQuestionIndexService;
+        this.dailyStatsService = dailyStatsService;
     }
 
     @Override
+    @Transactional
     public Exam saveExam(Exam exam) {
-        return examRepository.save(exam);
+        boolean created = exam.getId() == null;
+        Exam savedExam = examRepository.save(exam);
+        if (created) {
+            dailyStatsService.increment(savedExam.getCreatedDate(), EDailyCounter.EXAMS_CREATED, 1);
+        }
+        if (savedExam.getQuestionData() != null) {
+            examPaperService.rebuildPaper(savedExam);
+        }
+        examQuestionIndexService.index(savedExam);
+        return savedExam;
     }
 
     @Override
@@ -53,8 +71,15 @@ public class ExamServiceImpl implements ExamService {
     }
 
     @Override
+    @Transactional
     public void cancelExam(Long id) {
+        Optional<Exam> exam = examRepository.findById(id);
+        if (exam.isPresent() && !exam.get().isCanceled()) {
+            dailyStatsService.increment(exam.get().getCreatedDate(), EDailyCounter.EXAMS_CANCELED, 1);
+        }
         examRepository.cancelExam(id);
+        examPaperService.evictPaper(id);
+        examEventService.publishCanceled(id);
     }
 
     @Override
@@ -77,9 +102,13 @@ public class ExamServiceImpl implements ExamService {
     @Override
     public List<ChoiceList> getChoiceList(List<AnswerSheet> userChoices, List<ExamQuestionPoint> examQuestionPoints) {
         List<ChoiceList> choiceLists = new ArrayList<>();
+        Map<Long, Question> questionMap = new HashMap<>();
+        List<Long> questionIds = userChoices.stream().map(AnswerSheet::getQuestionId).collect(Collectors.toList());
+        questionService.getQuestionsByIds(questionIds).forEach(question -> questionMap.put(question.getId(), question));
+        AnswerKey answerKey = answerKeyService.getAnswerKey(questionIds);
         userChoices.forEach(userChoice -> {
             ChoiceList choiceList = new ChoiceList();
-            Question question = questionService.getQuestionById(userChoice.getQuestionId()).get();
+            Question question = questionMap.get(userChoice.getQuestionId());
             choiceList.setQuestion(question);
             choiceList.setPoint(userChoice.getPoint());
 
@@ -90,7 +119,7 @@ public class ExamServiceImpl implements ExamService {
                         ChoiceCorrect choiceCorrect = new ChoiceCorrect();
 
                         choiceCorrect.setChoice(choice);
-                        String choiceText = choiceService.findChoiceTextById(choice.getId());
+                        String choiceText = answerKey.getChoiceText(choice.getId());
                         Integer isRealCorrect;
                         if (choice.getChoiceText().equals(choiceText)) {
                             isRealCorrect = 1;
@@ -110,7 +139,7 @@ public class ExamServiceImpl implements ExamService {
                     userChoice.getChoices().forEach(choice -> {
                         ChoiceCorrect choiceCorrect = new ChoiceCorrect();
                         choiceCorrect.setChoice(choice);
-                        Integer isRealCorrect = choiceService.findIsCorrectedById(choice.getId());
+                        Integer isRealCorrect = answerKey.isCorrected(choice.getId());
                         choiceCorrect.setIsRealCorrect(isRealCorrect);
                         if (choice.getIsCorrected() == isRealCorrect && isRealCorrect == 1) {
                             choiceList.setIsSelectedCorrected(true);
@@ -124,7 +153,7 @@ public class ExamServiceImpl implements ExamService {
                     userChoice.getChoices().forEach(choice -> {
                         ChoiceCorrect choiceCorrect = new ChoiceCorrect();
                         choiceCorrect.setChoice(choice);
-                        Integer isRealCorrect = choiceService.findIsCorrectedById(choice.getId());
+                        Integer isRealCorrect = answerKey.isCorrected(choice.getId());
                         choiceCorrect.setIsRealCorrect(isRealCorrect);
                         if (choice.getIsCorrected() == 0 && isRealCorrect == 1) {
                             choiceList.setIsSelectedCorrected(false);
@@ -1,9 +1,11 @@
 package com.thanhtam.backend.service;
 
+import com.thanhtam.backend.dto.AutosaveBufferStats;
 import com.thanhtam.backend.entity.Exam;
 import com.thanhtam.backend.entity.ExamUser;
 import com.thanhtam.backend.entity.User;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -13,7 +15,28 @@ public interface ExamUserService {
     List<ExamUser> getExamListByUsername(String username);
     ExamUser findByExamAndUser(Long examId, String username);
     void update(ExamUser examUser);
+
+    /**
+     * Saves a session that was just started or finished and counts it in the daily statistics, in one transaction.
+     */
+    void start(ExamUser examUser);
+
+    /**
+     * Returns false when the session was already finished, by another submission or the expiry sweeper; nothing is counted then.
+     */
+    boolean finish(ExamUser examUser);
+    void autosave(ExamUser examUser);
+
+    /**
+     * Stores a sheet a delta was applied to, only if the stored sequence is still the one the delta was applied on.
+     */
+    boolean updateAnswerSheet(ExamUser examUser, long expected, long sequence);
     Optional<ExamUser> findExamUserById(Long id);
+    AutosaveBufferStats getAutosaveStats();
+
+    Date computeDeadline(Exam exam, Date timeStart);
+    int getRemainingTime(ExamUser examUser);
+    boolean isExpired(ExamUser examUser);
 
     List<ExamUser> getCompleteExams(Long courseId, String username);
     List<ExamUser> findAllByExam_Id(Long examId);
@@ -1,12 +1,16 @@
 package com.thanhtam.backend.service;
 
+import com.thanhtam.backend.dto.AutosaveBufferStats;
 import com.thanhtam.backend.entity.Exam;
 import com.thanhtam.backend.entity.ExamUser;
 import com.thanhtam.backend.entity.User;
 import com.thanhtam.backend.repository.ExamRepository;
 import com.thanhtam.backend.repository.ExamUserRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 
@@ -14,11 +18,19 @@ import java.util.*;
 public class ExamUserServiceImpl implements ExamUserService {
     private ExamUserRepository examUserRepository;
     private ExamRepository examRepository;
+    private AutosaveBuffer autosaveBuffer;
+    private DailyStatsService dailyStatsService;
+    private CourseProgressService courseProgressService;
+    private long deadlineGraceMillis;
 
     @Autowired
-    public ExamUserServiceImpl(ExamUserRepository examUserRepository, ExamRepository examRepository) {
+    public ExamUserServiceImpl(ExamUserRepository examUserRepository, ExamRepository examRepository, AutosaveBuffer autosaveBuffer, DailyStatsService dailyStatsService, CourseProgressService courseProgressService, @Value("${isc.exam.deadline-grace-seconds:15}") long deadlineGraceSeconds) {
         this.examUserRepository = examUserRepository;
         this.examRepository = examRepository;
+        this.autosaveBuffer = autosaveBuffer;
+        this.dailyStatsService = dailyStatsService;
+        this.courseProgressService = courseProgressService;
+        this.deadlineGraceMillis = deadlineGraceSeconds * 1000;
     }
 
     @Override
@@ -45,19 +57,78 @@ public class ExamUserServiceImpl implements ExamUserService {
 
     @Override
     public ExamUser findByExamAndUser(Long examId, String username) {
-        return examUserRepository.findByExam_IdAndUser_Username(examId, username);
+        return autosaveBuffer.read(() -> examUserRepository.findByExam_IdAndUser_Username(examId, username));
     }
 
     @Override
+    @Transactional
     public void update(ExamUser examUser) {
+//        A synchronous save carries any buffered autosave with it, the entry leaves the buffer once the save commits
+        autosaveBuffer.drain(examUser);
         examUserRepository.save(examUser);
     }
 
+    @Override
+    @Transactional
+    public void start(ExamUser examUser) {
+        update(examUser);
+        dailyStatsService.increment(examUser.getTimeStart(), EDailyCounter.ATTEMPTS_STARTED, 1);
+    }
+
+    @Override
+    @Transactional
+    public boolean finish(ExamUser examUser) {
+        autosaveBuffer.drain(examUser);
+//        Only the submission that moves is_finished from 0 to 1 counts the attempt
+        int updated = examUserRepository.finish(examUser.getId(), examUser.getTimeFinish(), examUser.getRemainingTime(), examUser.getTotalPoint(), examUser.getGradeData(),
+                examUser.getGradeKey(), examUser.getAnswerSheet(), examUser.getAnswerData(), examUser.getAnswerSequence());
+        if (updated != 1) {
+            return false;
+        }
+        dailyStatsService.recordFinished(examUser.getTimeFinish(), 1, examUser.getTotalPoint() != null ? examUser.getTotalPoint() : 0);
+        courseProgressService.recordGraded(Collections.singletonList(examUser));
+        return true;
+    }
+
+    @Override
+    public void autosave(ExamUser examUser) {
+        if (!autosaveBuffer.isEnabled()) {
+            update(examUser);
+            return;
+        }
+        long sequence = examUser.getAnswerSequence() + 1;
+        if (autosaveBuffer.offer(examUser, sequence)) {
+            examUser.setAnswerSequence(sequence);
+        }
+    }
+
+    @Override
+    public boolean updateAnswerSheet(ExamUser examUser, long expected, long sequence) {
+        if (autosaveBuffer.isEnabled()) {
+            if (!autosaveBuffer.offer(examUser, expected, sequence)) {
+                return false;
+            }
+            examUser.setAnswerSequence(sequence);
+            return true;
+        }
+        int updated = examUserRepository.updateAnswerSheet(examUser.getId(), examUser.getAnswerSheet(), examUser.getAnswerData(), examUser.getRemainingTime(), expected, sequence);
+        if (updated == 0) {
+            return false;
+        }
+        examUser.setAnswerSequence(sequence);
+        return true;
+    }
+
     @Override
     public Optional<ExamUser> findExamUserById(Long id) {
         return examUserRepository.findById(id);
     }
 
+    @Override
+    public AutosaveBufferStats getAutosaveStats() {
+        return autosaveBuffer.getStats();
+    }
+
     @Override
     public List<ExamUser> getCompleteExams(Long courseId, String username) {
         List<ExamUser> examUserList = examUserRepository.findAllByExam_Part_Course_IdAndUser_UsernameAndTotalPointIsGreaterThan(courseId, username, -1.0);
@@ -74,4 +145,39 @@ public class ExamUserServiceImpl implements ExamUserService {
     public List<ExamUser> findExamUsersByIsFinishedIsTrueAndExam_Id(Long examId) {
         return examUserRepository.findExamUsersByIsFinishedIsTrueAndExam_Id(examId);
     }
+
+    @Override
+    public Date computeDeadline(Exam exam, Date timeStart) {
+        Date deadline = new Date(timeStart.getTime() + exam.getDurationExam() * 60 * 1000L);
+        if (exam.getFinishExam() != null && exam.getFinishExam().before(deadline)) {
+            return exam.getFinishExam();
+        }
+        return deadline;
+    }
+
+    @Override
+    public int getRemainingTime(ExamUser examUser) {
+        if (examUser.getIsFinished() || !examUser.getIsStarted()) {
+            return examUser.getRemainingTime();
+        }
+        Date deadline = getDeadline(examUser);
+        long remaining = (deadline.getTime() - System.currentTimeMillis()) / 1000;
+        return (int) Math.max(0, Math.min(remaining, examUser.getExam().getDurationExam() * 60L));
+    }
+
+    @Override
+    public boolean isExpired(ExamUser examUser) {
+        if (!examUser.getIsStarted()) {
+            return false;
+        }
+//        Requests sent right at the deadline still get through while in flight
+        return System.currentTimeMillis() > getDeadline(examUser).getTime() + deadlineGraceMillis;
+    }
+
+    private Date getDeadline(ExamUser examUser) {
+        if (examUser.getDeadline() == null) {
+            examUser.setDeadline(computeDeadline(examUser.getExam(), examUser.getTimeStart()));
+        }
+        return examUser.getDeadline();
+    }
 }
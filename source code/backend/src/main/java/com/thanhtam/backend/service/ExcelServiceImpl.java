@@ -6,6 +6,7 @@ import com.thanhtam.backend.entity.Profile;
 import com.thanhtam.backend.entity.Role;
 import com.thanhtam.backend.entity.User;
 import com.thanhtam.backend.repository.UserRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
 import com.thanhtam.backend.ultilities.ERole;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
@@ -30,14 +31,16 @@ public class ExcelServiceImpl implements ExcelService {
     private UserRepository userRepository;
     private RoleService roleService;
     private IntakeService intakeService;
+    private DailyStatsService dailyStatsService;
 
     @Autowired
-    public ExcelServiceImpl(FilesStorageService filesStorageService, PasswordEncoder passwordEncoder, UserRepository userRepository, RoleService roleService, IntakeService intakeService) {
+    public ExcelServiceImpl(FilesStorageService filesStorageService, PasswordEncoder passwordEncoder, UserRepository userRepository, RoleService roleService, IntakeService intakeService, DailyStatsService dailyStatsService) {
         this.filesStorageService = filesStorageService;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
         this.roleService = roleService;
         this.intakeService = intakeService;
+        this.dailyStatsService = dailyStatsService;
     }
 
     @Override
@@ -204,7 +207,8 @@ public class ExcelServiceImpl implements ExcelService {
                     e.printStackTrace();
                 }
             } else {
-                userRepository.save(user);
+                User savedUser = userRepository.save(user);
+                dailyStatsService.increment(savedUser.getCreatedDate(), EDailyCounter.ACCOUNTS_CREATED, 1);
             }
         });
 
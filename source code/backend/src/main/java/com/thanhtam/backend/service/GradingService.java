@@ -0,0 +1,26 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ChoiceList;
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.entity.ExamUser;
+
+import java.util.List;
+
+public interface GradingService {
+    CompiledExamKey getCompiledKey(ExamPaper paper);
+
+    int grade(ExamUser examUser, ExamPaper paper, long[] outcome);
+
+    /**
+     * Grades a sheet that is being finished and records the total, the per-question outcome and the key fingerprint on it.
+     */
+    void recordGrade(ExamUser examUser, ExamPaper paper);
+
+    /**
+     * The stored total of a finished sheet, regraded only when the answer key changed since. Open sheets are graded live.
+     */
+    double getTotalPoint(ExamUser examUser, ExamPaper paper);
+
+    List<ChoiceList> getChoiceList(ExamUser examUser, ExamPaper paper);
+}
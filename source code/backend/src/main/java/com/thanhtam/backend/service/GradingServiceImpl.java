@@ -0,0 +1,139 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.Question;
+import com.thanhtam.backend.repository.ExamUserRepository;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Service
+public class GradingServiceImpl implements GradingService {
+    private AnswerKeyService answerKeyService;
+    private AnswerSheetService answerSheetService;
+    private ExamPaperService examPaperService;
+    private ExamUserRepository examUserRepository;
+    private QuestionStatsService questionStatsService;
+    private LeaderboardService leaderboardService;
+    private CourseProgressService courseProgressService;
+    private Cache<Long, CompiledExamKey> compiledKeys;
+
+    @Autowired
+    public GradingServiceImpl(AnswerKeyService answerKeyService, AnswerSheetService answerSheetService, ExamPaperService examPaperService, ExamUserRepository examUserRepository, QuestionStatsService questionStatsService, LeaderboardService leaderboardService, CourseProgressService courseProgressService, @Value("${isc.exam.paper-cache-size:500}") long cacheSize) {
+        this.answerKeyService = answerKeyService;
+        this.answerSheetService = answerSheetService;
+        this.examPaperService = examPaperService;
+        this.examUserRepository = examUserRepository;
+        this.questionStatsService = questionStatsService;
+        this.leaderboardService = leaderboardService;
+        this.courseProgressService = courseProgressService;
+        this.compiledKeys = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @Override
+    public CompiledExamKey getCompiledKey(ExamPaper paper) {
+        long version = answerKeyService.getVersion();
+        CompiledExamKey key = compiledKeys.getIfPresent(paper.getExamId());
+//        Any answer key edit or a rebuilt paper makes the compiled key stale
+        if (key == null || !key.matches(paper, version)) {
+            key = CompiledExamKey.compile(paper, answerKeyService.getAnswerKey(
+                    paper.getQuestions().stream().map(PaperQuestion::getQuestionId).collect(Collectors.toList())), version).since(key);
+            compiledKeys.put(paper.getExamId(), key);
+        }
+        return key;
+    }
+
+    @Override
+    public int grade(ExamUser examUser, ExamPaper paper, long[] outcome) {
+        CompiledExamKey key = getCompiledKey(paper);
+        long[] masks = new long[key.getQuestionCount()];
+        answerSheetService.fillSelectionMasks(examUser, paper, masks);
+        return key.grade(masks, outcome);
+    }
+
+    @Override
+    public void recordGrade(ExamUser examUser, ExamPaper paper) {
+        CompiledExamKey key = getCompiledKey(paper);
+        long[] outcome = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+        examUser.setTotalPoint((double) grade(examUser, paper, outcome));
+        examUser.setGradeData(CompiledExamKey.toOutcomeBytes(outcome, key.getQuestionCount()));
+        examUser.setGradeKey(key.getFingerprint());
+    }
+
+    @Override
+    public double getTotalPoint(ExamUser examUser, ExamPaper paper) {
+        if (!Boolean.TRUE.equals(examUser.getIsFinished())) {
+            return grade(examUser, paper, null);
+        }
+        ensureGraded(examUser, paper);
+        return examUser.getTotalPoint();
+    }
+
+    @Override
+    public List<ChoiceList> getChoiceList(ExamUser examUser, ExamPaper paper) {
+        List<AnswerSheet> answerSheets = answerSheetService.getAnswerSheets(examUser, paper);
+        byte[] outcome = getOutcome(examUser, paper);
+        AnswerKey answerKey = answerKeyService.getAnswerKey(answerSheets.stream().map(AnswerSheet::getQuestionId).collect(Collectors.toList()));
+        List<ChoiceList> choiceLists = new ArrayList<>();
+//        The paper already carries everything the result page shows, only the correctness comes from the key
+        List<Question> questions = examPaperService.toQuestions(paper, answerSheets);
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            List<ChoiceCorrect> choiceCorrects = new ArrayList<>();
+            for (Choice choice : question.getChoices()) {
+                Integer isRealCorrect;
+                if (question.getQuestionType().getTypeCode() == EQTypeCode.TF) {
+                    isRealCorrect = choice.getChoiceText() != null && choice.getChoiceText().equals(answerKey.getChoiceText(choice.getId())) ? 1 : 0;
+                } else {
+                    isRealCorrect = answerKey.isCorrected(choice.getId());
+                }
+                choiceCorrects.add(new ChoiceCorrect(choice, isRealCorrect));
+            }
+            boolean correct = CompiledExamKey.isCorrect(outcome, paper.getQuestionIndex(question.getId()));
+            choiceLists.add(new ChoiceList(question, choiceCorrects, question.getPoint(), correct));
+        }
+        return choiceLists;
+    }
+
+    private byte[] getOutcome(ExamUser examUser, ExamPaper paper) {
+        if (Boolean.TRUE.equals(examUser.getIsFinished())) {
+            ensureGraded(examUser, paper);
+            return examUser.getGradeData();
+        }
+        CompiledExamKey key = getCompiledKey(paper);
+        long[] outcome = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+        grade(examUser, paper, outcome);
+        return CompiledExamKey.toOutcomeBytes(outcome, key.getQuestionCount());
+    }
+
+    //    Sheets finished before grading was stored, or graded with an older key, are graded again once;
+    //    the write is guarded by the key read, so a sheet a bulk run regraded meanwhile is not counted twice
+    private void ensureGraded(ExamUser examUser, ExamPaper paper) {
+        CompiledExamKey key = getCompiledKey(paper);
+        if (examUser.getGradeData() != null && examUser.getGradeKey() != null && examUser.getGradeKey() == key.getFingerprint()) {
+            return;
+        }
+        byte[] previousOutcome = examUser.getGradeData();
+        Double previousTotal = examUser.getTotalPoint();
+        Long previousKey = examUser.getGradeKey();
+        recordGrade(examUser, paper);
+        if (examUserRepository.updateGrade(examUser.getId(), examUser.getTotalPoint(), examUser.getGradeData(), examUser.getGradeKey(), previousKey) != 1) {
+            return;
+        }
+        questionStatsService.recordRegrade(paper, examUser, previousOutcome);
+        leaderboardService.record(examUser);
+        if (!Objects.equals(previousTotal, examUser.getTotalPoint())) {
+            courseProgressService.refresh(examUser.getUser().getId(), examUser.getExam().getPart().getCourse().getId());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ItemAnalysis;
+import com.thanhtam.backend.entity.Exam;
+
+public interface ItemAnalysisService {
+    /**
+     * Difficulty, discrimination and choice selection rates of the exam's questions, cached until a sheet is graded.
+     */
+    ItemAnalysis getItemAnalysis(Exam exam);
+}
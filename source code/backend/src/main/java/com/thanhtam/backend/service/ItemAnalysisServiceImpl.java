@@ -0,0 +1,165 @@
+package com.thanhtam.backend.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamGradedEvent;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.ItemAnalysis;
+import com.thanhtam.backend.dto.ItemAnalysisAccumulator;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Item analysis in one pass over an exam's finished sheets. Rows come from a streaming cursor in chunks,
+ * each chunk is summed into its own accumulator on the pool and merged into the total, so memory
+ * depends on the paper and the chunks in flight, not on the number of candidates.
+ */
+@Service
+public class ItemAnalysisServiceImpl implements ItemAnalysisService {
+    private static final String SHEETS_SQL = "SELECT id, is_started, shuffle_seed, answer_sheet, answer_data, total_point, grade_data, grade_key FROM exam_user WHERE exam_id = ? AND is_finished = 1";
+
+    private ExamPaperService examPaperService;
+    private AnswerSheetService answerSheetService;
+    private GradingService gradingService;
+    private JdbcTemplate jdbcTemplate;
+    private ForkJoinPool pool;
+    private int chunkSize;
+    private int maxChunksInFlight;
+    private Cache<Long, ItemAnalysis> analyses;
+    //    Per exam, bumped once grades stored for it commit, so an analysis that raced with them is not cached
+    private ConcurrentMap<Long, Long> generations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ItemAnalysisServiceImpl(ExamPaperService examPaperService, AnswerSheetService answerSheetService, GradingService gradingService, JdbcTemplate jdbcTemplate,
+                                   @Value("${isc.exam.grading.parallelism:0}") int parallelism, @Value("${isc.exam.item-analysis.chunk-size:256}") int chunkSize,
+                                   @Value("${isc.exam.paper-cache-size:500}") long cacheSize) {
+        this.examPaperService = examPaperService;
+        this.answerSheetService = answerSheetService;
+        this.gradingService = gradingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxChunksInFlight = pool.getParallelism() * 2;
+        this.analyses = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    @Override
+    public ItemAnalysis getItemAnalysis(Exam exam) {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        CompiledExamKey key = gradingService.getCompiledKey(paper);
+        ItemAnalysis analysis = analyses.getIfPresent(exam.getId());
+        if (analysis != null && analysis.getKeyFingerprint() == key.getFingerprint()) {
+            return analysis;
+        }
+        long startGeneration = generations.getOrDefault(exam.getId(), 0L);
+        ItemAnalysis analyzed = analyze(paper, key).toItemAnalysis(paper, key);
+//        Checked and put in the same step the invalidation runs in
+        generations.compute(exam.getId(), (id, current) -> {
+            if ((current == null ? 0L : current) == startGeneration) {
+                analyses.put(id, analyzed);
+            }
+            return current;
+        });
+        return analyzed;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExamGraded(ExamGradedEvent event) {
+        generations.compute(event.getExamId(), (id, current) -> {
+            analyses.invalidate(id);
+            return current == null ? 1L : current + 1;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private ItemAnalysisAccumulator analyze(ExamPaper paper, CompiledExamKey key) {
+        Pass pass = new Pass(paper, key);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SHEETS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setLong(1, paper.getExamId());
+            return statement;
+        }, (RowCallbackHandler) rs -> pass.add(BulkGradingServiceImpl.toSheet(rs)));
+        return pass.finish();
+    }
+
+    private class Pass {
+        private final ExamPaper paper;
+        private final CompiledExamKey key;
+        private final ItemAnalysisAccumulator total;
+        private final Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private List<ExamUser> chunk = new ArrayList<>(chunkSize);
+
+        private Pass(ExamPaper paper, CompiledExamKey key) {
+            this.paper = paper;
+            this.key = key;
+            this.total = new ItemAnalysisAccumulator(paper, key);
+        }
+
+        private void add(ExamUser sheet) {
+            chunk.add(sheet);
+            if (chunk.size() == chunkSize) {
+                submit(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        private ItemAnalysisAccumulator finish() {
+            if (!chunk.isEmpty()) {
+                submit(chunk);
+            }
+//            All permits back means every chunk has been merged
+            inFlight.acquireUninterruptibly(maxChunksInFlight);
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return total;
+        }
+
+        //        Blocks the cursor while the pool is busy, so unread rows stay in the database
+        private void submit(List<ExamUser> sheets) {
+            inFlight.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    ItemAnalysisAccumulator partial = new ItemAnalysisAccumulator(paper, key);
+                    long[] masks = new long[key.getQuestionCount()];
+                    long[] outcome = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+                    for (ExamUser sheet : sheets) {
+                        answerSheetService.fillSelectionMasks(sheet, paper, masks);
+                        partial.add(masks, outcome, key.grade(masks, outcome));
+                    }
+                    synchronized (total) {
+                        total.merge(partial);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CandidateRank;
+import com.thanhtam.backend.dto.ExamLeaderboard;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+
+public interface LeaderboardService {
+    /**
+     * Puts a graded and stored sheet on its exam's board, if the board is loaded.
+     */
+    void record(ExamUser examUser);
+
+    /**
+     * Drops the board, it is loaded again from the stored totals when next needed.
+     */
+    void evict(Long examId);
+
+    ExamLeaderboard getLeaderboard(Exam exam, int top, int bucketSize);
+
+    /**
+     * Null while the candidate's sheet is not finished.
+     */
+    CandidateRank getRank(Exam exam, ExamUser examUser);
+
+    void evictClosedExams();
+}
@@ -0,0 +1,104 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CandidateRank;
+import com.thanhtam.backend.dto.ExamLeaderboard;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.PaperQuestion;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Live ranks of running exams. A board is loaded from the stored totals on first use (so also after a restart),
+ * then every graded submission is added to it. Boards are dropped once the exam closes, closed exams are ranked
+ * from the stored totals on each request.
+ */
+@Service
+public class LeaderboardServiceImpl implements LeaderboardService {
+    private static final String TOTALS_SQL = "SELECT eu.id, u.username, eu.total_point FROM exam_user eu JOIN users u ON u.id = eu.user_id " +
+            "WHERE eu.exam_id = ? AND eu.is_finished = 1 AND eu.total_point IS NOT NULL";
+
+    private ExamPaperService examPaperService;
+    private JdbcTemplate jdbcTemplate;
+    private long deadlineGraceMillis;
+    private ConcurrentMap<Long, ScoreBoard> boards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LeaderboardServiceImpl(ExamPaperService examPaperService, JdbcTemplate jdbcTemplate, @Value("${isc.exam.deadline-grace-seconds:15}") long deadlineGraceSeconds) {
+        this.examPaperService = examPaperService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.deadlineGraceMillis = deadlineGraceSeconds * 1000;
+    }
+
+    @Override
+    public void record(ExamUser examUser) {
+        if (examUser.getTotalPoint() == null) {
+            return;
+        }
+//        Waits for a board being loaded, so a submission is never lost between the read and the install
+        boards.computeIfPresent(examUser.getExam().getId(), (id, board) -> {
+            board.record(examUser.getId(), examUser.getUser() != null ? examUser.getUser().getUsername() : null, examUser.getTotalPoint());
+            return board;
+        });
+    }
+
+    @Override
+    public void evict(Long examId) {
+        boards.remove(examId);
+    }
+
+    @Override
+    public ExamLeaderboard getLeaderboard(Exam exam, int top, int bucketSize) {
+        ScoreBoard board = getBoard(exam);
+        return new ExamLeaderboard(exam.getId(), board.size(), board.top(top), board.histogram(bucketSize));
+    }
+
+    @Override
+    public CandidateRank getRank(Exam exam, ExamUser examUser) {
+        ScoreBoard board = getBoard(exam);
+        Double score = board.getScore(examUser.getId());
+        if (score == null) {
+            return null;
+        }
+        return new CandidateRank(examUser.getUser().getUsername(), score, board.rankOf(examUser.getId()), board.size(), board.percentileOf(examUser.getId()));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${isc.exam.sweep-interval-ms:5000}")
+    public void evictClosedExams() {
+        long now = System.currentTimeMillis();
+        boards.values().removeIf(board -> isClosed(board.getFinishExam(), now));
+    }
+
+    private ScoreBoard getBoard(Exam exam) {
+        if (exam.isCanceled() || isClosed(exam.getFinishExam(), System.currentTimeMillis())) {
+            return load(exam);
+        }
+        return boards.computeIfAbsent(exam.getId(), id -> load(exam));
+    }
+
+    //    Forced submissions of the sweeper land within the grace period after the end
+    private boolean isClosed(Date finishExam, long now) {
+        return finishExam != null && finishExam.getTime() + deadlineGraceMillis < now;
+    }
+
+    private ScoreBoard load(Exam exam) {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        int maxScore = 0;
+        for (PaperQuestion question : paper.getQuestions()) {
+            maxScore += question.getPoint() == null ? 0 : question.getPoint();
+        }
+        ScoreBoard board = new ScoreBoard(maxScore, exam.getFinishExam());
+        jdbcTemplate.query(TOTALS_SQL, (RowCallbackHandler) rs -> board.record(rs.getLong("id"), rs.getString("username"), rs.getDouble("total_point")), exam.getId());
+        return board;
+    }
+}
@@ -0,0 +1,15 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.QuestionChangedEvent;
+
+public interface QuestionRegradeService {
+    /**
+     * Rebuilds the cached papers of every exam that uses the question, then queues a regrade of their finished sheets.
+     */
+    void onQuestionChanged(QuestionChangedEvent event);
+
+    /**
+     * Rebuilds the papers of the exams using the question and regrades them now, returns the number of sheets whose grade changed.
+     */
+    int regradeQuestion(Long questionId);
+}
@@ -0,0 +1,204 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.QuestionChangedEvent;
+import com.thanhtam.backend.dto.QuestionStatsDelta;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.repository.ExamRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Regrades the exams using an edited question, found through exam_question. Their cached papers are rebuilt first,
+ * on the thread that committed the edit, so neither the regrade nor a new sheet sees the old points or choices.
+ * Sheets graded with the key the edit replaced only get the changed questions graded again, their other outcome bits are kept.
+ * Each row is written only if its grade_key is still the one read, so a sheet regraded meanwhile
+ * by a result page or a submission is left alone; open sheets are graded with the new key on submit.
+ */
+@Service
+public class QuestionRegradeServiceImpl implements QuestionRegradeService {
+    private static final String SHEETS_PAGE_SQL = "SELECT id, is_started, shuffle_seed, answer_sheet, answer_data, total_point, grade_data, grade_key FROM exam_user WHERE exam_id = ? AND is_finished = 1 AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL = "UPDATE exam_user SET total_point = ?, grade_data = ?, grade_key = ? WHERE id = ? AND is_finished = 1 AND grade_key <=> ?";
+    private static final int[] UPDATE_TYPES = {Types.DOUBLE, Types.VARBINARY, Types.BIGINT, Types.BIGINT, Types.BIGINT};
+
+    private Logger logger = LoggerFactory.getLogger(QuestionRegradeServiceImpl.class);
+
+    private ExamQuestionIndexService examQuestionIndexService;
+    private ExamRepository examRepository;
+    private ExamPaperService examPaperService;
+    private GradingService gradingService;
+    private AnswerSheetService answerSheetService;
+    private QuestionStatsService questionStatsService;
+    private LeaderboardService leaderboardService;
+    private CourseProgressService courseProgressService;
+    private JdbcTemplate jdbcTemplate;
+    private int batchSize;
+    //    One job at a time, so two edits of a question never regrade the same exam concurrently
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Autowired
+    public QuestionRegradeServiceImpl(ExamQuestionIndexService examQuestionIndexService, ExamRepository examRepository, ExamPaperService examPaperService, GradingService gradingService,
+                                      AnswerSheetService answerSheetService, QuestionStatsService questionStatsService, LeaderboardService leaderboardService, CourseProgressService courseProgressService, JdbcTemplate jdbcTemplate,
+                                      @Value("${isc.exam.grading.rebuild-batch-size:1000}") int batchSize) {
+        this.examQuestionIndexService = examQuestionIndexService;
+        this.examRepository = examRepository;
+        this.examPaperService = examPaperService;
+        this.gradingService = gradingService;
+        this.answerSheetService = answerSheetService;
+        this.questionStatsService = questionStatsService;
+        this.leaderboardService = leaderboardService;
+        this.courseProgressService = courseProgressService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionChanged(QuestionChangedEvent event) {
+        List<Exam> exams = rebuildPapers(event.getQuestionId());
+        executor.execute(() -> {
+            try {
+                regradeExams(exams, event.getQuestionId());
+            } catch (RuntimeException e) {
+                logger.error("Regrading exams of question {} failed", event.getQuestionId(), e);
+            }
+        });
+    }
+
+    @Override
+    public int regradeQuestion(Long questionId) {
+        return regradeExams(rebuildPapers(questionId), questionId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Exam> rebuildPapers(Long questionId) {
+        List<Exam> exams = new ArrayList<>();
+        for (Long examId : examQuestionIndexService.getExamIds(questionId)) {
+            Optional<Exam> exam = examRepository.findById(examId);
+            if (exam.isPresent() && !exam.get().isCanceled()) {
+                try {
+                    examPaperService.rebuildPaper(exam.get());
+                } catch (RuntimeException e) {
+//                    The stale paper must not outlive the edit, the next read builds it again
+                    examPaperService.evictPaper(examId);
+                    logger.error("Rebuilding paper of exam {} failed", examId, e);
+                }
+                exams.add(exam.get());
+            }
+        }
+        return exams;
+    }
+
+    private int regradeExams(List<Exam> exams, Long questionId) {
+        int changed = 0;
+        for (Exam exam : exams) {
+            changed += regradeExam(exam, questionId);
+        }
+        logger.info("Regraded {} sheets after question {} changed", changed, questionId);
+        return changed;
+    }
+
+    private int regradeExam(Exam exam, Long questionId) {
+        ExamPaper paper = examPaperService.getPaper(exam);
+        if (paper.getQuestionIndex(questionId) < 0) {
+            return 0;
+        }
+        CompiledExamKey key = gradingService.getCompiledKey(paper);
+        long[] masks = new long[key.getQuestionCount()];
+        long[] outcomeWords = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+        int changed = 0;
+        long lastId = 0;
+        List<ExamUser> sheets;
+        do {
+            sheets = jdbcTemplate.query(SHEETS_PAGE_SQL, (rs, rowNum) -> BulkGradingServiceImpl.toSheet(rs), exam.getId(), lastId, batchSize);
+            List<Object[]> rows = new ArrayList<>();
+            List<ExamUser> regraded = new ArrayList<>();
+            List<byte[]> previousOutcomes = new ArrayList<>();
+            for (ExamUser sheet : sheets) {
+                Long gradeKey = sheet.getGradeKey();
+                byte[] previous = sheet.getGradeData();
+                if (previous != null && gradeKey != null && gradeKey == key.getFingerprint()) {
+                    continue;
+                }
+                try {
+                    answerSheetService.fillSelectionMasks(sheet, paper, masks);
+                } catch (IllegalArgumentException e) {
+//                    Keeps its stored grade, the rest of the exam is still regraded
+                    logger.warn("Could not read answers of exam user {}, not regraded", sheet.getId(), e);
+                    continue;
+                }
+                byte[] outcome;
+                int total;
+                if (previous != null && gradeKey != null && gradeKey == key.getPreviousFingerprint() && key.getChangedQuestions() != null) {
+                    outcome = previous.clone();
+                    for (int index : key.getChangedQuestions()) {
+                        CompiledExamKey.setCorrect(outcome, index, key.isCorrect(index, masks[index]));
+                    }
+                    total = key.getTotal(outcome);
+                } else {
+//                    Graded with an older key or never stored, every question is graded again
+                    total = key.grade(masks, outcomeWords);
+                    outcome = CompiledExamKey.toOutcomeBytes(outcomeWords, key.getQuestionCount());
+                }
+                sheet.setTotalPoint((double) total);
+                sheet.setGradeData(outcome);
+                sheet.setGradeKey(key.getFingerprint());
+                rows.add(new Object[]{(double) total, outcome, key.getFingerprint(), sheet.getId(), gradeKey});
+                regraded.add(sheet);
+                previousOutcomes.add(previous);
+            }
+            if (!rows.isEmpty()) {
+                changed += write(paper, rows, regraded, previousOutcomes);
+            }
+            if (!sheets.isEmpty()) {
+                lastId = sheets.get(sheets.size() - 1).getId();
+            }
+        } while (sheets.size() == batchSize);
+        if (changed > 0) {
+            leaderboardService.evict(exam.getId());
+            courseProgressService.refreshExam(exam.getId());
+        }
+        return changed;
+    }
+
+    private int write(ExamPaper paper, List<Object[]> rows, List<ExamUser> regraded, List<byte[]> previousOutcomes) {
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, rows, UPDATE_TYPES);
+        QuestionStatsDelta delta = new QuestionStatsDelta(paper);
+        long[] masks = new long[paper.getQuestions().size()];
+        int written = 0;
+        for (int i = 0; i < counts.length; i++) {
+//            0 means the row was regraded or reopened meanwhile, its counters were moved by whoever did it
+            if (counts[i] == 0) {
+                continue;
+            }
+            written++;
+            if (previousOutcomes.get(i) == null) {
+                answerSheetService.fillSelectionMasks(regraded.get(i), paper, masks);
+                delta.addSheet(masks, regraded.get(i).getGradeData());
+            } else {
+                delta.addRegrade(previousOutcomes.get(i), regraded.get(i).getGradeData());
+            }
+        }
+        questionStatsService.apply(paper, delta);
+        return written;
+    }
+}
@@ -9,12 +9,15 @@ import com.thanhtam.backend.entity.QuestionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface QuestionService {
     Optional<Question> getQuestionById(Long id);
 
+    List<Question> getQuestionsByIds(Collection<Long> ids);
+
     List<Question> getQuestionByPart(Part part);
 
     List<Question> getQuestionByQuestionType(QuestionType questionType);
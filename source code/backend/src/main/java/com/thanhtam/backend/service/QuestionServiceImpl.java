@@ -3,28 +3,36 @@ package com.thanhtam.backend.service;
 import com.thanhtam.backend.controller.ExamController;
 import com.thanhtam.backend.dto.AnswerSheet;
 import com.thanhtam.backend.dto.ExamQuestionPoint;
+import com.thanhtam.backend.dto.QuestionChangedEvent;
 import com.thanhtam.backend.entity.*;
 import com.thanhtam.backend.repository.QuestionRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class QuestionServiceImpl implements QuestionService {
     Logger logger = LoggerFactory.getLogger(QuestionServiceImpl.class);
     private QuestionRepository questionRepository;
+    private AnswerKeyService answerKeyService;
+    private ApplicationEventPublisher eventPublisher;
+    private DailyStatsService dailyStatsService;
 
     @Autowired
-    public QuestionServiceImpl(QuestionRepository questionRepository) {
+    public QuestionServiceImpl(QuestionRepository questionRepository, AnswerKeyService answerKeyService, ApplicationEventPublisher eventPublisher, DailyStatsService dailyStatsService) {
         this.questionRepository = questionRepository;
+        this.answerKeyService = answerKeyService;
+        this.eventPublisher = eventPublisher;
+        this.dailyStatsService = dailyStatsService;
     }
 
     @Override
@@ -32,6 +40,24 @@ public class QuestionServiceImpl implements QuestionService {
         return questionRepository.findById(id);
     }
 
+    @Override
+    public List<Question> getQuestionsByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+//        One query for questions, types and choices, then put them back in the caller's order
+        Map<Long, Question> questionMap = new HashMap<>();
+        questionRepository.findAllWithChoicesByIdIn(new HashSet<>(ids)).forEach(question -> questionMap.put(question.getId(), question));
+        List<Question> questions = new ArrayList<>();
+        ids.forEach(id -> {
+            Question question = questionMap.get(id);
+            if (question != null) {
+                questions.add(question);
+            }
+        });
+        return questions;
+    }
+
     @Override
     public List<Question> getQuestionByPart(Part part) {
         return questionRepository.findByPart(part);
@@ -44,12 +70,8 @@ public class QuestionServiceImpl implements QuestionService {
 
     @Override
     public List<Question> getQuestionPointList(List<ExamQuestionPoint> examQuestionPoints) {
-        List<Question> questions = new ArrayList<>();
-        examQuestionPoints.forEach(examQuestionPoint -> {
-            Optional<Question> question = questionRepository.findById(examQuestionPoint.getQuestionId());
-            questions.add(question.get());
-        });
-        return questions;
+        List<Long> questionIds = examQuestionPoints.stream().map(ExamQuestionPoint::getQuestionId).collect(Collectors.toList());
+        return getQuestionsByIds(questionIds);
     }
 
     @Override
@@ -109,6 +131,7 @@ public class QuestionServiceImpl implements QuestionService {
 
 
     @Override
+    @Transactional
     public void save(Question question) {
         int point;
         switch (question.getDifficultyLevel()) {
@@ -128,17 +151,29 @@ public class QuestionServiceImpl implements QuestionService {
                 point = 0;
         }
         question.setPoint(point);
+        boolean existing = question.getId() != null;
         questionRepository.save(question);
+        if (question.getId() != null) {
+            answerKeyService.invalidateQuestion(question.getId());
+        }
+//        Exams already graded with the old key are regraded in the background
+        if (existing) {
+            eventPublisher.publishEvent(new QuestionChangedEvent(question.getId()));
+        } else {
+            dailyStatsService.increment(question.getCreatedDate(), EDailyCounter.QUESTIONS_CREATED, 1);
+        }
     }
 
     @Override
     public void update(Question question) {
         questionRepository.save(question);
+        answerKeyService.invalidateQuestion(question.getId());
     }
 
     @Override
     public void delete(Long id) {
         questionRepository.deleteById(id);
+        answerKeyService.invalidateQuestion(id);
     }
 
 }
@@ -0,0 +1,59 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.repository.ExamRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One-off backfill of the question counters, run by starting the application with --rebuild-question-stats.
+ * Only exams that have ended are rebuilt, their sheets can no longer change while being recounted.
+ */
+@Component
+public class QuestionStatsRebuildRunner implements ApplicationRunner {
+    private static final String OPTION = "rebuild-question-stats";
+
+    private Logger logger = LoggerFactory.getLogger(QuestionStatsRebuildRunner.class);
+
+    private BulkGradingService bulkGradingService;
+    private ExamRepository examRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public QuestionStatsRebuildRunner(BulkGradingService bulkGradingService, ExamRepository examRepository, JdbcTemplate jdbcTemplate) {
+        this.bulkGradingService = bulkGradingService;
+        this.examRepository = examRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        List<Long> examIds = jdbcTemplate.queryForList("SELECT DISTINCT eu.exam_id FROM exam_user eu JOIN exam e ON e.id = eu.exam_id WHERE eu.is_finished = 1 AND e.finish_exam < ? ORDER BY eu.exam_id",
+                Long.class, new Date());
+        logger.info("Rebuilding question counters of {} exams", examIds.size());
+        for (Long examId : examIds) {
+            Optional<Exam> exam = examRepository.findById(examId);
+            if (!exam.isPresent()) {
+                continue;
+            }
+            try {
+                int counted = bulkGradingService.rebuildQuestionStats(exam.get());
+                logger.info("Rebuilt question counters of exam {} from {} sheets", examId, counted);
+            } catch (RuntimeException e) {
+                logger.error("Cannot rebuild question counters of exam {}", examId, e);
+            }
+        }
+    }
+}
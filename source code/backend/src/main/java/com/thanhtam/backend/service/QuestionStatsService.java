@@ -0,0 +1,26 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.QuestionExamReport;
+import com.thanhtam.backend.dto.QuestionStatsDelta;
+import com.thanhtam.backend.entity.ExamUser;
+
+import java.util.List;
+
+public interface QuestionStatsService {
+    /**
+     * Counts sheets whose first grade was just stored.
+     */
+    void recordSheets(ExamPaper paper, List<ExamUser> examUsers);
+
+    /**
+     * Counts a stored grade that replaced the previous outcome, or a first grade when there was none.
+     */
+    void recordRegrade(ExamPaper paper, ExamUser examUser, byte[] previousOutcome);
+
+    void apply(ExamPaper paper, QuestionStatsDelta delta);
+
+    void reset(Long examId);
+
+    List<QuestionExamReport> getReport(ExamPaper paper);
+}
@@ -0,0 +1,135 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.Question;
+import com.thanhtam.backend.repository.ExamChoiceStatRepository;
+import com.thanhtam.backend.repository.ExamQuestionStatRepository;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Per-question counters of each exam. Increments are summed per batch and applied as atomic upserts,
+ * so concurrent submissions never overwrite each other and the report is a single read.
+ */
+@Service
+public class QuestionStatsServiceImpl implements QuestionStatsService {
+    private static final String QUESTION_UPSERT_SQL = "INSERT INTO exam_question_stat (exam_id, question_id, attempted, correct) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE attempted = attempted + VALUES(attempted), correct = correct + VALUES(correct)";
+    private static final String CHOICE_UPSERT_SQL = "INSERT INTO exam_choice_stat (exam_id, question_id, choice_index, selected) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE selected = selected + VALUES(selected)";
+    private static final String REPORT_SQL = "SELECT q.question_id, q.attempted, q.correct, c.choice_index, c.selected FROM exam_question_stat q " +
+            "LEFT JOIN exam_choice_stat c ON c.exam_id = q.exam_id AND c.question_id = q.question_id WHERE q.exam_id = ?";
+
+    private AnswerSheetService answerSheetService;
+    private ExamPaperService examPaperService;
+    private ExamQuestionStatRepository examQuestionStatRepository;
+    private ExamChoiceStatRepository examChoiceStatRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public QuestionStatsServiceImpl(AnswerSheetService answerSheetService, ExamPaperService examPaperService, ExamQuestionStatRepository examQuestionStatRepository,
+                                    ExamChoiceStatRepository examChoiceStatRepository, JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.answerSheetService = answerSheetService;
+        this.examPaperService = examPaperService;
+        this.examQuestionStatRepository = examQuestionStatRepository;
+        this.examChoiceStatRepository = examChoiceStatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void recordSheets(ExamPaper paper, List<ExamUser> examUsers) {
+        QuestionStatsDelta delta = new QuestionStatsDelta(paper);
+        long[] masks = new long[paper.getQuestions().size()];
+        for (ExamUser examUser : examUsers) {
+            answerSheetService.fillSelectionMasks(examUser, paper, masks);
+            delta.addSheet(masks, examUser.getGradeData());
+        }
+        apply(paper, delta);
+    }
+
+    @Override
+    public void recordRegrade(ExamPaper paper, ExamUser examUser, byte[] previousOutcome) {
+        if (previousOutcome == null) {
+            recordSheets(paper, Collections.singletonList(examUser));
+            return;
+        }
+        QuestionStatsDelta delta = new QuestionStatsDelta(paper);
+        delta.addRegrade(previousOutcome, examUser.getGradeData());
+        apply(paper, delta);
+    }
+
+    @Override
+    public void apply(ExamPaper paper, QuestionStatsDelta delta) {
+//        Every stored grade passes through here, even one that moves no counter
+        eventPublisher.publishEvent(new ExamGradedEvent(paper.getExamId()));
+        if (delta.isEmpty()) {
+            return;
+        }
+        List<Object[]> questionRows = new ArrayList<>();
+        List<Object[]> choiceRows = new ArrayList<>();
+        for (int i = 0; i < delta.getQuestionCount(); i++) {
+            Long questionId = paper.getQuestions().get(i).getQuestionId();
+            if (delta.getAttempted(i) != 0 || delta.getCorrect(i) != 0) {
+                questionRows.add(new Object[]{paper.getExamId(), questionId, delta.getAttempted(i), delta.getCorrect(i)});
+            }
+            for (int c = 0; c < delta.getChoiceCount(i); c++) {
+                if (delta.getSelected(i, c) != 0) {
+                    choiceRows.add(new Object[]{paper.getExamId(), questionId, c, delta.getSelected(i, c)});
+                }
+            }
+        }
+        if (!questionRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(QUESTION_UPSERT_SQL, questionRows);
+        }
+        if (!choiceRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(CHOICE_UPSERT_SQL, choiceRows);
+        }
+    }
+
+    @Override
+    public void reset(Long examId) {
+        examQuestionStatRepository.deleteAllByExamId(examId);
+        examChoiceStatRepository.deleteAllByExamId(examId);
+    }
+
+    @Override
+    public List<QuestionExamReport> getReport(ExamPaper paper) {
+        Map<Long, QuestionExamReport> reports = new LinkedHashMap<>();
+        List<Question> questions = examPaperService.toQuestions(paper, examPaperService.createAnswerSheets(paper));
+        questions.forEach(question -> reports.put(question.getId(), new QuestionExamReport(question, 0, 0, choiceCounts(paper.getQuestion(question.getId())))));
+        jdbcTemplate.query(REPORT_SQL, (RowCallbackHandler) rs -> {
+            QuestionExamReport report = reports.get(rs.getLong("question_id"));
+            if (report == null) {
+                return;
+            }
+            report.setAttemptedTotal(rs.getInt("attempted"));
+            report.setCorrectTotal(rs.getInt("correct"));
+            int choiceIndex = rs.getInt("choice_index");
+            if (!rs.wasNull() && choiceIndex < report.getChoiceCounts().size()) {
+                report.getChoiceCounts().get(choiceIndex).setSelectedTotal(rs.getLong("selected"));
+            }
+        }, paper.getExamId());
+        return new ArrayList<>(reports.values());
+    }
+
+    private List<ChoiceCount> choiceCounts(PaperQuestion question) {
+        List<ChoiceCount> choiceCounts = new ArrayList<>();
+        if (question.getTypeCode() == EQTypeCode.TF) {
+            Long choiceId = question.getChoices().isEmpty() ? null : question.getChoices().get(0).getId();
+            choiceCounts.add(new ChoiceCount(choiceId, "True", 0));
+            choiceCounts.add(new ChoiceCount(choiceId, "False", 0));
+            return choiceCounts;
+        }
+        question.getChoices().forEach(choice -> choiceCounts.add(new ChoiceCount(choice.getId(), choice.getChoiceText(), 0)));
+        return choiceCounts;
+    }
+}
@@ -0,0 +1,143 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.LeaderboardEntry;
+import com.thanhtam.backend.dto.ScoreBucket;
+
+import java.util.*;
+
+/**
+ * Ordered scores of one exam. Totals are whole points, so a Fenwick tree over the score range answers
+ * "how many scored at most s" in O(log maxScore), and a sorted set keeps the entries for top-N.
+ */
+class ScoreBoard {
+    private final Date finishExam;
+    private long[] tree;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> ordered = new TreeSet<>(Comparator.comparingInt((Entry entry) -> entry.score).reversed()
+            .thenComparing(entry -> entry.username == null ? "" : entry.username).thenComparingLong(entry -> entry.examUserId));
+
+    ScoreBoard(int maxScore, Date finishExam) {
+        this.tree = new long[Math.max(maxScore, 0) + 2];
+        this.finishExam = finishExam;
+    }
+
+    Date getFinishExam() {
+        return finishExam;
+    }
+
+    synchronized void record(long examUserId, String username, double totalPoint) {
+        int score = Math.max(0, (int) Math.round(totalPoint));
+        Entry previous = entries.get(examUserId);
+        if (previous != null) {
+            if (previous.score == score) {
+                return;
+            }
+            ordered.remove(previous);
+            add(previous.score, -1);
+        }
+        if (score + 1 >= tree.length) {
+            grow(score);
+        }
+        Entry entry = new Entry(examUserId, username != null ? username : previous != null ? previous.username : null, score);
+        entries.put(examUserId, entry);
+        ordered.add(entry);
+        add(score, 1);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized Double getScore(long examUserId) {
+        Entry entry = entries.get(examUserId);
+        return entry == null ? null : (double) entry.score;
+    }
+
+    /**
+     * 1 + the number of candidates with a strictly higher score, ties share a rank. 0 if not on the board.
+     */
+    synchronized int rankOf(long examUserId) {
+        Entry entry = entries.get(examUserId);
+        if (entry == null) {
+            return 0;
+        }
+        return 1 + (int) (entries.size() - countAtMost(entry.score));
+    }
+
+    /**
+     * Percentile rank: candidates scoring below plus half of those tied, over all candidates.
+     */
+    synchronized double percentileOf(long examUserId) {
+        Entry entry = entries.get(examUserId);
+        if (entry == null) {
+            return 0;
+        }
+        long below = countAtMost(entry.score - 1);
+        long tied = countAtMost(entry.score) - below;
+        return 100.0 * (below + tied / 2.0) / entries.size();
+    }
+
+    synchronized List<LeaderboardEntry> top(int n) {
+        List<LeaderboardEntry> top = new ArrayList<>(Math.min(n, entries.size()));
+        int rank = 0;
+        int position = 0;
+        int lastScore = Integer.MIN_VALUE;
+        for (Entry entry : ordered) {
+            if (position == n) {
+                break;
+            }
+            position++;
+            if (entry.score != lastScore) {
+                rank = position;
+                lastScore = entry.score;
+            }
+            top.add(new LeaderboardEntry(rank, entry.username, (double) entry.score));
+        }
+        return top;
+    }
+
+    synchronized List<ScoreBucket> histogram(int bucketSize) {
+        int width = Math.max(1, bucketSize);
+        int maxScore = tree.length - 2;
+        List<ScoreBucket> buckets = new ArrayList<>(maxScore / width + 1);
+        for (int from = 0; from <= maxScore; from += width) {
+            int to = Math.min(from + width - 1, maxScore);
+            buckets.add(new ScoreBucket(from, to, countAtMost(to) - countAtMost(from - 1)));
+        }
+        return buckets;
+    }
+
+    private long countAtMost(int score) {
+        long count = 0;
+        for (int i = Math.min(score, tree.length - 2) + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    private void add(int score, long delta) {
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    //    A key edit can raise the maximum, the tree is rebuilt with room to spare
+    private void grow(int score) {
+        tree = new long[Math.max(score + 2, tree.length * 2)];
+        for (Entry entry : entries.values()) {
+            add(entry.score, 1);
+        }
+    }
+
+    private static final class Entry {
+        private final long examUserId;
+        private final String username;
+        private final int score;
+
+        private Entry(long examUserId, String username, int score) {
+            this.examUserId = examUserId;
+            this.username = username;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CompiledExamKey;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.QuestionStatsDelta;
+import com.thanhtam.backend.entity.ExamUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grades a range of finished sheets against one shared compiled key, splitting the range until it is small enough.
+ * Totals go into the shared map, the result holds the update rows of sheets whose stored grade is out of date,
+ * each guarded by the grade_key it was read with, and the question counter changes those updates bring.
+ * The change of a row is only counted once its update is known to have written it.
+ */
+class SheetGradingTask extends RecursiveTask<SheetGradingTask.Result> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SheetGradingTask.class);
+
+    private final List<ExamUser> sheets;
+    private final int from;
+    private final int to;
+    private final Context context;
+
+    SheetGradingTask(List<ExamUser> sheets, CompiledExamKey key, ExamPaper paper, AnswerSheetService answerSheetService,
+                     int leafSize, Map<Long, Double> totals, AtomicInteger graded, boolean countAll) {
+        this(sheets, 0, sheets.size(), new Context(key, paper, answerSheetService, Math.max(1, leafSize), totals, graded, countAll));
+    }
+
+    private SheetGradingTask(List<ExamUser> sheets, int from, int to, Context context) {
+        this.sheets = sheets;
+        this.from = from;
+        this.to = to;
+        this.context = context;
+    }
+
+    @Override
+    protected Result compute() {
+        if (to - from <= context.leafSize) {
+            return gradeRange();
+        }
+        int middle = (from + to) >>> 1;
+        SheetGradingTask left = new SheetGradingTask(sheets, from, middle, context);
+        left.fork();
+        Result result = new SheetGradingTask(sheets, middle, to, context).compute();
+        return result.merge(left.join());
+    }
+
+    private Result gradeRange() {
+        CompiledExamKey key = context.key;
+        long[] masks = new long[key.getQuestionCount()];
+        long[] outcome = new long[CompiledExamKey.outcomeWords(key.getQuestionCount())];
+        List<Object[]> rows = new ArrayList<>();
+        List<byte[]> previousOutcomes = new ArrayList<>();
+        List<long[]> rowMasks = new ArrayList<>();
+        QuestionStatsDelta statsDelta = new QuestionStatsDelta(context.paper);
+        for (int i = from; i < to; i++) {
+            ExamUser examUser = sheets.get(i);
+            try {
+                context.answerSheetService.fillSelectionMasks(examUser, context.paper, masks);
+            } catch (IllegalArgumentException e) {
+//                An unreadable sheet keeps its stored grade instead of failing the whole run
+                LOGGER.warn("Could not read answers of exam user {}, not graded", examUser.getId(), e);
+                if (examUser.getTotalPoint() != null) {
+                    context.totals.put(examUser.getId(), examUser.getTotalPoint());
+                }
+                context.graded.incrementAndGet();
+                continue;
+            }
+            double totalPoint = key.grade(masks, outcome);
+            context.totals.put(examUser.getId(), totalPoint);
+            boolean changed = examUser.getGradeData() == null || examUser.getGradeKey() == null || examUser.getGradeKey() != key.getFingerprint()
+                    || examUser.getTotalPoint() == null || examUser.getTotalPoint() != totalPoint;
+            if (changed || context.countAll) {
+                byte[] gradeData = CompiledExamKey.toOutcomeBytes(outcome, key.getQuestionCount());
+                if (changed) {
+                    rows.add(new Object[]{totalPoint, gradeData, key.getFingerprint(), examUser.getId(), examUser.getGradeKey()});
+                    boolean whole = context.countAll || examUser.getGradeData() == null;
+                    previousOutcomes.add(whole ? null : examUser.getGradeData());
+                    rowMasks.add(whole ? masks.clone() : null);
+                } else {
+                    statsDelta.addSheet(masks, gradeData);
+                }
+            }
+            context.graded.incrementAndGet();
+        }
+        return new Result(context.paper, rows, previousOutcomes, rowMasks, statsDelta);
+    }
+
+    static class Result {
+        private final ExamPaper paper;
+        private final List<Object[]> rows;
+        //        Per row, the outcome it replaces, or the selections when the sheet is counted whole
+        private final List<byte[]> previousOutcomes;
+        private final List<long[]> masks;
+        //        Changes of sheets that need no write, only ever set when counting all
+        private final QuestionStatsDelta statsDelta;
+
+        private Result(ExamPaper paper, List<Object[]> rows, List<byte[]> previousOutcomes, List<long[]> masks, QuestionStatsDelta statsDelta) {
+            this.paper = paper;
+            this.rows = rows;
+            this.previousOutcomes = previousOutcomes;
+            this.masks = masks;
+            this.statsDelta = statsDelta;
+        }
+
+        private Result merge(Result other) {
+            rows.addAll(other.rows);
+            previousOutcomes.addAll(other.previousOutcomes);
+            masks.addAll(other.masks);
+            statsDelta.merge(other.statsDelta);
+            return this;
+        }
+
+        List<Object[]> getRows() {
+            return rows;
+        }
+
+        /**
+         * The counter changes of the sheets that need no write and of the rows whose update count is 1,
+         * a row regraded or reopened meanwhile had its counters moved by whoever did it.
+         */
+        QuestionStatsDelta getStatsDelta(int[] counts) {
+            QuestionStatsDelta delta = new QuestionStatsDelta(paper).merge(statsDelta);
+            for (int i = 0; i < rows.size(); i++) {
+                if (counts[i] != 1) {
+                    continue;
+                }
+                byte[] outcome = (byte[]) rows.get(i)[1];
+                if (previousOutcomes.get(i) == null) {
+                    delta.addSheet(masks.get(i), outcome);
+                } else {
+                    delta.addRegrade(previousOutcomes.get(i), outcome);
+                }
+            }
+            return delta;
+        }
+
+        static int written(int[] counts) {
+            int written = 0;
+            for (int count : counts) {
+                if (count == 1) {
+                    written++;
+                }
+            }
+            return written;
+        }
+    }
+
+    private static class Context {
+        private final CompiledExamKey key;
+        private final ExamPaper paper;
+        private final AnswerSheetService answerSheetService;
+        private final int leafSize;
+        private final Map<Long, Double> totals;
+        private final AtomicInteger graded;
+        //        Counters are being rebuilt from zero, every sheet counts as new
+        private final boolean countAll;
+
+        private Context(CompiledExamKey key, ExamPaper paper, AnswerSheetService answerSheetService, int leafSize, Map<Long, Double> totals, AtomicInteger graded, boolean countAll) {
+            this.key = key;
+            this.paper = paper;
+            this.answerSheetService = answerSheetService;
+            this.leafSize = leafSize;
+            this.totals = totals;
+            this.graded = graded;
+            this.countAll = countAll;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.StatisticsDashboard;
+
+public interface StatisticsDashboardService {
+    /**
+     * The latest snapshot, recomputed first if it is older than the staleness bound.
+     */
+    StatisticsDashboard getDashboard();
+
+    void refresh();
+}
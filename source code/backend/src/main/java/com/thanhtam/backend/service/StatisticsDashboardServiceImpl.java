@@ -0,0 +1,133 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.StatisticsDashboard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Serves the admin dashboard from a snapshot refreshed in the background. The parts of a snapshot are
+ * computed in parallel, and only one refresh runs at a time: callers arriving during a refresh wait for it.
+ */
+@Service
+public class StatisticsDashboardServiceImpl implements StatisticsDashboardService {
+    private Logger logger = LoggerFactory.getLogger(StatisticsDashboardServiceImpl.class);
+
+    private StatisticsService statisticsService;
+    private long maxStalenessMillis;
+    private ExecutorService executor;
+    private volatile StatisticsDashboard snapshot;
+    private AtomicReference<CompletableFuture<StatisticsDashboard>> inFlight = new AtomicReference<>();
+
+    @Autowired
+    public StatisticsDashboardServiceImpl(StatisticsService statisticsService, @Value("${isc.statistics.max-staleness-ms:60000}") long maxStalenessMillis,
+                                          @Value("${isc.statistics.parallelism:4}") int parallelism) {
+        this.statisticsService = statisticsService;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    @Override
+    public StatisticsDashboard getDashboard() {
+        StatisticsDashboard current = snapshot;
+        if (current == null || age(current) > maxStalenessMillis) {
+            current = awaitRefresh();
+        }
+        return withAge(current);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${isc.statistics.refresh-interval-ms:30000}")
+    public void refresh() {
+        try {
+            awaitRefresh();
+        } catch (RuntimeException e) {
+            logger.error("Cannot refresh the statistics dashboard", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private StatisticsDashboard awaitRefresh() {
+        CompletableFuture<StatisticsDashboard> created = new CompletableFuture<>();
+        while (!inFlight.compareAndSet(null, created)) {
+            CompletableFuture<StatisticsDashboard> running = inFlight.get();
+            if (running != null) {
+                return join(running);
+            }
+        }
+        try {
+            StatisticsDashboard computed = compute();
+            snapshot = computed;
+            created.complete(computed);
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+        } finally {
+            inFlight.set(null);
+        }
+        return join(created);
+    }
+
+    private StatisticsDashboard compute() {
+        CompletableFuture<Long> accountTotal = submit(statisticsService::countAccountTotal);
+        CompletableFuture<Long> examTotal = submit(statisticsService::countExamTotal);
+        CompletableFuture<Long> examUserTotal = submit(statisticsService::countExamUserTotal);
+        CompletableFuture<Long> questionTotal = submit(statisticsService::countQuestionTotal);
+        CompletableFuture<Double> changeQuestion = submit(statisticsService::getChangeQuestion);
+        CompletableFuture<Double> changeExam = submit(statisticsService::getChangeExam);
+        CompletableFuture<Double> changeAccount = submit(statisticsService::getChangeAccount);
+        CompletableFuture<Double> changeExamUser = submit(statisticsService::getChangeExamUser);
+        CompletableFuture<List<Long>> lastSevenDays = submit(statisticsService::countExamUserLastedSevenDaysTotal);
+        StatisticsDashboard dashboard = new StatisticsDashboard();
+        dashboard.setExamTotal(join(examTotal));
+        dashboard.setAccountTotal(join(accountTotal));
+        dashboard.setQuestionTotal(join(questionTotal));
+        dashboard.setExamUserTotal(join(examUserTotal));
+        dashboard.setChangeExam(join(changeExam));
+        dashboard.setChangeAccount(join(changeAccount));
+        dashboard.setChangeQuestion(join(changeQuestion));
+        dashboard.setChangeExamUser(join(changeExamUser));
+        dashboard.setExamUserLastedSevenDaysTotal(join(lastSevenDays));
+        dashboard.setGeneratedAt(new Date());
+        return dashboard;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> part) {
+        return CompletableFuture.supplyAsync(part, executor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private static long age(StatisticsDashboard dashboard) {
+        return System.currentTimeMillis() - dashboard.getGeneratedAt().getTime();
+    }
+
+    //    The snapshot is shared, each response gets its own copy carrying its age
+    private static StatisticsDashboard withAge(StatisticsDashboard dashboard) {
+        return new StatisticsDashboard(dashboard.getExamTotal(), dashboard.getAccountTotal(), dashboard.getQuestionTotal(), dashboard.getExamUserTotal(),
+                dashboard.getChangeExam(), dashboard.getChangeAccount(), dashboard.getChangeQuestion(), dashboard.getChangeExamUser(),
+                dashboard.getExamUserLastedSevenDaysTotal(), dashboard.getGeneratedAt(), age(dashboard));
+    }
+}
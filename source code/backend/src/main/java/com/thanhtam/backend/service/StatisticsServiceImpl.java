@@ -1,6 +1,6 @@
 package com.thanhtam.backend.service;
 
-import com.thanhtam.backend.entity.*;
+import com.thanhtam.backend.entity.DailyStats;
 import com.thanhtam.backend.repository.*;
 import org.decimal4j.util.DoubleRounder;
 import org.joda.time.DateTime;
@@ -9,10 +9,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
 import java.util.List;
+import java.util.function.ToLongFunction;
 
 @Service
 public class StatisticsServiceImpl implements StatisticsService {
@@ -20,15 +22,17 @@ public class StatisticsServiceImpl implements StatisticsService {
     private ExamUserRepository examUserRepository;
     private QuestionRepository questionRepository;
     private UserRepository userRepository;
+    private DailyStatsService dailyStatsService;
 
     private Logger logger = LoggerFactory.getLogger(StatisticsServiceImpl.class);
 
     @Autowired
-    public StatisticsServiceImpl(ExamRepository examRepository, ExamUserRepository examUserRepository, QuestionRepository questionRepository, UserRepository userRepository) {
+    public StatisticsServiceImpl(ExamRepository examRepository, ExamUserRepository examUserRepository, QuestionRepository questionRepository, UserRepository userRepository, DailyStatsService dailyStatsService) {
         this.examRepository = examRepository;
         this.examUserRepository = examUserRepository;
         this.questionRepository = questionRepository;
         this.userRepository = userRepository;
+        this.dailyStatsService = dailyStatsService;
     }
 
     @Override
@@ -54,142 +58,76 @@ public class StatisticsServiceImpl implements StatisticsService {
 
     @Override
     public Double getChangeExamUser() {
-        int countExamNow = 0;
-        int countExamLastWeek = 0;
-        List<ExamUser> examUsers = examUserRepository.findExamUsersByOrderByTimeFinish();
-        for (ExamUser examUser :
-                examUsers) {
-            if (isSameWeek(new DateTime(), new DateTime(examUser.getTimeFinish()))) {
-                countExamNow++;
-            } else if (isLastWeek(new DateTime(), new DateTime(examUser.getTimeFinish()))) {
-                countExamLastWeek++;
-            } else break;
-        }
-        if (countExamNow == 0 && countExamLastWeek == 0) {
-            return 0.00;
-        }
-        if (countExamNow == 0 && countExamLastWeek != 0) {
-            return countExamLastWeek * -100.00;
-        }
-        if (countExamNow != 0 && countExamLastWeek == 0) {
-            return countExamNow * 100.00;
-        }
-        Double result = (double) countExamNow - countExamLastWeek;
-        result = DoubleRounder.round(result / countExamLastWeek, 2);
-
-        return result * 100;
+        return getChange(DailyStats::getAttemptsFinished);
     }
 
     @Override
     public List<Long> countExamUserLastedSevenDaysTotal() {
-        List<Long> days = new ArrayList<>();
-        List<ExamUser> examUserList = examUserRepository.findExamUsersByOrderByTimeFinish();
-        long countDate = 0;
-        for (ExamUser examUser :
-                examUserList) {
-            int day = 0;
-            if (isSameDay(new DateTime(new Date()).minusDays(day), new DateTime(examUser.getTimeFinish()))) {
-                countDate++;
-            } else {
-                day++;
-                days.add(countDate);
-                countDate = 0;
-                if (day == 7) {
-                    break;
-                }
-            }
-            logger.error(days.toString());
+        LocalDate from = LocalDate.now().minusDays(6);
+        long[] days = countByDay(dailyStatsService.getDays(from, from.plusDays(7)), from, 7, DailyStats::getAttemptsFinished);
+        List<Long> counts = new ArrayList<>(days.length);
+        for (long day : days) {
+            counts.add(day);
         }
-        Collections.reverse(days);
-        return days;
+        return counts;
     }
 
     @Override
     public Double getChangeQuestion() {
-        int countQuestionNow = 0;
-        int countQuestionLastWeek = 0;
-        List<Question> questions = questionRepository.findByOrderByCreatedDateDesc();
-        for (Question question :
-                questions) {
-            if (isSameWeek(new DateTime(), new DateTime(question.getCreatedDate()))) {
-                countQuestionNow++;
-            } else if (isLastWeek(new DateTime(), new DateTime(question.getCreatedDate()))) {
-                countQuestionLastWeek++;
-            } else break;
-        }
-        if (countQuestionNow == 0 && countQuestionLastWeek == 0) {
-            return 0.00;
-        }
-        if (countQuestionNow == 0 && countQuestionLastWeek != 0) {
-            return countQuestionLastWeek * -100.00;
-        }
-        if (countQuestionNow != 0 && countQuestionLastWeek == 0) {
-            return countQuestionNow * 100.00;
-        }
-        Double result = (double) countQuestionNow - countQuestionLastWeek;
-        result = DoubleRounder.round(result / countQuestionLastWeek, 2);
-
-        return result * 100;
+        return getChange(DailyStats::getQuestionsCreated);
     }
 
     @Override
     public Double getChangeAccount() {
-        int countAccountNow = 0;
-        int countAccountLastWeek = 0;
-        List<User> users = userRepository.findByDeletedIsFalseOrderByCreatedDateDesc();
-        for (User user :
-                users) {
-            if (isSameWeek(new DateTime(), new DateTime(user.getCreatedDate()))) {
-                countAccountNow++;
-            } else if (isLastWeek(new DateTime(), new DateTime(user.getCreatedDate()))) {
-                countAccountLastWeek++;
-            } else break;
-        }
-        logger.error("account now: "+ countAccountNow);
-        logger.error("account last: "+ countAccountLastWeek);
-        if (countAccountNow == 0 && countAccountLastWeek == 0) {
-            return 0.00;
-        }
-        if (countAccountNow == 0 && countAccountLastWeek != 0) {
-            return countAccountLastWeek * -100.00;
-        }
-        if (countAccountNow != 0 && countAccountLastWeek == 0) {
-            return countAccountNow * 100.00;
-        }
-        Double result = (double) countAccountNow - countAccountLastWeek;
-        result = DoubleRounder.round(result / countAccountLastWeek, 2);
-
-        return result * 100;
-
+        return getChange(DailyStats::getAccountsCreated);
     }
 
     @Override
     public Double getChangeExam() {
-        int countExamNow = 0;
-        int countExamLastWeek = 0;
-        List<Exam> exams = examRepository.findByCanceledIsTrueOrderByCreatedDateDesc();
-        for (Exam exam :
-                exams) {
-            if (isSameWeek(new DateTime(), new DateTime(exam.getCreatedDate()))) {
-                countExamNow++;
-            } else if (isLastWeek(new DateTime(), new DateTime(exam.getCreatedDate()))) {
-                countExamLastWeek++;
-            } else break;
+        return getChange(DailyStats::getExamsCanceled);
+    }
+
+    //    Reads the 14 rollup rows from the Monday of last week: 0-6 are last week, 7-13 this week
+    private Double getChange(ToLongFunction<DailyStats> counter) {
+        LocalDate lastWeek = startOfWeek().minusWeeks(1);
+        long[] days = countByDay(dailyStatsService.getDays(lastWeek, lastWeek.plusWeeks(2)), lastWeek, 14, counter);
+        long countLastWeek = 0;
+        long countNow = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (i < 7) {
+                countLastWeek += days[i];
+            } else {
+                countNow += days[i];
+            }
         }
-        if (countExamNow == 0 && countExamLastWeek == 0) {
+        if (countNow == 0 && countLastWeek == 0) {
             return 0.00;
         }
-        if (countExamNow == 0 && countExamLastWeek != 0) {
-            return countExamLastWeek * -100.00;
+        if (countNow == 0 && countLastWeek != 0) {
+            return countLastWeek * -100.00;
         }
-        if (countExamNow != 0 && countExamLastWeek == 0) {
-            return countExamNow * 100.00;
+        if (countNow != 0 && countLastWeek == 0) {
+            return countNow * 100.00;
         }
-        Double result = (double) countExamNow - countExamLastWeek;
-        result = DoubleRounder.round(result / countExamLastWeek, 2);
+        Double result = (double) countNow - countLastWeek;
+        result = DoubleRounder.round(result / countLastWeek, 2);
 
         return result * 100;
+    }
+
+    private static long[] countByDay(List<DailyStats> dailyStats, LocalDate from, int days, ToLongFunction<DailyStats> counter) {
+        long[] counts = new long[days];
+        for (DailyStats day : dailyStats) {
+            long index = ChronoUnit.DAYS.between(from, new java.sql.Date(day.getDay().getTime()).toLocalDate());
+            if (index >= 0 && index < days) {
+                counts[(int) index] += counter.applyAsLong(day);
+            }
+        }
+        return counts;
+    }
 
+    private static LocalDate startOfWeek() {
+        return LocalDate.now().with(DayOfWeek.MONDAY);
     }
 
     public static boolean isSameDay(final DateTime d1, final DateTime d2) {
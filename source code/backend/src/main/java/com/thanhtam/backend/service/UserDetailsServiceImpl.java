@@ -1,20 +1,44 @@
 package com.thanhtam.backend.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.thanhtam.backend.dto.CacheHitStats;
 import com.thanhtam.backend.entity.User;
 import com.thanhtam.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Value("${isc.auth.user-cache-size:10000}")
+    private long userCacheSize;
+
+    @Value("${isc.auth.user-cache-ttl-seconds:300}")
+    private long userCacheTtlSeconds;
+
+    //    Only used for requests that already carry a valid token, logins always read the user from the database
+    private Cache<String, UserDetails> tokenUserCache;
+
+    @PostConstruct
+    public void initCache() {
+        tokenUserCache = CacheBuilder.newBuilder().maximumSize(userCacheSize)
+                .expireAfterWrite(userCacheTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+    }
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -24,4 +48,28 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return UserDetailsImpl.build(user);
     }
 
+    public UserDetails loadTokenUserByUsername(String username) throws UsernameNotFoundException {
+        try {
+            return tokenUserCache.get(username, () -> loadUserByUsername(username));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UsernameNotFoundException) {
+                throw (UsernameNotFoundException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void cacheUsers(Collection<User> users) {
+        users.forEach(user -> tokenUserCache.put(user.getUsername(), UserDetailsImpl.build(user)));
+    }
+
+    public void evictUser(String username) {
+        tokenUserCache.invalidate(username);
+    }
+
+    public CacheHitStats getCacheStats() {
+        CacheStats stats = tokenUserCache.stats();
+        return new CacheHitStats(tokenUserCache.size(), stats.hitCount(), stats.missCount(), stats.hitRate());
+    }
+
 }
@@ -7,6 +7,7 @@ import com.thanhtam.backend.entity.Role;
 import com.thanhtam.backend.entity.User;
 import com.thanhtam.backend.repository.PasswordResetTokenRepository;
 import com.thanhtam.backend.repository.UserRepository;
+import com.thanhtam.backend.ultilities.EDailyCounter;
 import com.thanhtam.backend.ultilities.ERole;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +18,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.mail.MessagingException;
 import java.util.*;
@@ -30,14 +32,18 @@ private Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     private PasswordEncoder passwordEncoder;
     private PasswordResetTokenRepository passwordResetTokenRepository;
     private EmailService emailService;
+    private UserDetailsServiceImpl userDetailsService;
+    private DailyStatsService dailyStatsService;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, RoleService roleService, PasswordEncoder passwordEncoder, PasswordResetTokenRepository passwordResetTokenRepository, EmailService emailService) {
+    public UserServiceImpl(UserRepository userRepository, RoleService roleService, PasswordEncoder passwordEncoder, PasswordResetTokenRepository passwordResetTokenRepository, EmailService emailService, UserDetailsServiceImpl userDetailsService, DailyStatsService dailyStatsService) {
         this.userRepository = userRepository;
         this.roleService = roleService;
         this.passwordEncoder = passwordEncoder;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
         this.emailService = emailService;
+        this.userDetailsService = userDetailsService;
+        this.dailyStatsService = dailyStatsService;
     }
 
 
@@ -79,6 +85,7 @@ private Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     }
 
     @Override
+    @Transactional
     public User createUser(User user) {
 //        Create new user
         User newUser = new User(user.getUsername(), passwordEncoder.encode(user.getUsername()), user.getEmail(), user.getProfile());
@@ -108,7 +115,9 @@ private Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
         }
 
         newUser.setRoles(roles);
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        dailyStatsService.increment(savedUser.getCreatedDate(), EDailyCounter.ACCOUNTS_CREATED, 1);
+        return savedUser;
     }
 
     @Override
@@ -129,6 +138,7 @@ private Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
     @Override
     public void updateUser(User user) {
         userRepository.save(user);
+        userDetailsService.evictUser(user.getUsername());
     }
 
     @Override
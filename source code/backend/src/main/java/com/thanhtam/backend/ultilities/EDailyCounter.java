@@ -0,0 +1,19 @@
+package com.thanhtam.backend.ultilities;
+
+public enum EDailyCounter {
+    EXAMS_CREATED("exams_created"),
+    EXAMS_CANCELED("exams_canceled"),
+    QUESTIONS_CREATED("questions_created"),
+    ACCOUNTS_CREATED("accounts_created"),
+    ATTEMPTS_STARTED("attempts_started");
+
+    private final String column;
+
+    EDailyCounter(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+}
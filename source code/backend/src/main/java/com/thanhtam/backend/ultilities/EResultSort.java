@@ -0,0 +1,5 @@
+package com.thanhtam.backend.ultilities;
+
+public enum EResultSort {
+    POINT, FINISH, USERNAME
+}
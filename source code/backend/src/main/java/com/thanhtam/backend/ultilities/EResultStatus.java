@@ -0,0 +1,5 @@
+package com.thanhtam.backend.ultilities;
+
+public enum EResultStatus {
+    MISSED, NOT_STARTED, DOING, COMPLETED
+}
@@ -0,0 +1,38 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerKey;
+import com.thanhtam.backend.entity.Choice;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AnswerKey lookups.
+ */
+public class AnswerKeyTest {
+
+    @Test
+    public void testMerge_LooksUpEveryQuestion() {
+        AnswerKey first = AnswerKey.of(Arrays.asList(new Choice(30L, "C", 0), new Choice(10L, "A", 1)));
+        AnswerKey second = AnswerKey.of(Arrays.asList(new Choice(20L, "True", 1)));
+
+        AnswerKey merged = AnswerKey.merge(Arrays.asList(first, second));
+
+        assertEquals(3, merged.size());
+        assertEquals(Integer.valueOf(1), merged.isCorrected(10L));
+        assertEquals(Integer.valueOf(0), merged.isCorrected(30L));
+        assertEquals("True", merged.getChoiceText(20L));
+        assertEquals("C", merged.getChoiceText(30L));
+    }
+
+    @Test
+    public void testIsCorrected_UnknownChoice() {
+        AnswerKey key = AnswerKey.of(Arrays.asList(new Choice(10L, "A", 1)));
+
+        assertNull(key.isCorrected(11L));
+        assertNull(key.getChoiceText(9L));
+        assertFalse(key.contains(11L));
+    }
+}
@@ -0,0 +1,166 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AnswerSheetCodec, including its size against the legacy JSON answer sheet.
+ */
+public class AnswerSheetCodecTest {
+
+    private ExamPaper paper;
+
+    @Before
+    public void setUp() {
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "TF", DifficultyLevel.EASY, 1L, EQTypeCode.TF, "TF", 5,
+                Collections.singletonList(new PaperChoice(11L, ""))));
+        for (long i = 2; i <= 50; i++) {
+            questions.add(new PaperQuestion(i, "MS " + i, DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                    Arrays.asList(new PaperChoice(i * 10 + 1, "A"), new PaperChoice(i * 10 + 2, "B"),
+                            new PaperChoice(i * 10 + 3, "C"), new PaperChoice(i * 10 + 4, "D"))));
+        }
+        paper = new ExamPaper(1L, null, questions);
+    }
+
+    @Test
+    public void testEncodeDecode_RoundTrip() {
+        List<AnswerSelection> selections = Arrays.asList(
+                new AnswerSelection(1L, null, "False"),
+                new AnswerSelection(7L, Arrays.asList(71L, 74L), null),
+                new AnswerSelection(50L, Collections.singletonList(502L), null));
+
+        byte[] data = AnswerSheetCodec.encode(paper, selections);
+        List<AnswerSelection> decoded = AnswerSheetCodec.decode(paper, data);
+
+        assertEquals(AnswerSheetCodec.VERSION, data[0]);
+        assertEquals(selections, decoded);
+    }
+
+    @Test
+    public void testEncode_SkipsUnknownAndEmptySelections() {
+        List<AnswerSelection> selections = Arrays.asList(
+                new AnswerSelection(999L, Collections.singletonList(1L), null),
+                new AnswerSelection(3L, Collections.emptyList(), null));
+
+        assertTrue(AnswerSheetCodec.decode(paper, AnswerSheetCodec.encode(paper, selections)).isEmpty());
+    }
+
+    /**
+     * Selections are matched by id, so a paper without some of the questions keeps the answers of the others.
+     */
+    @Test
+    public void testDecode_SkipsQuestionsNotOnPaper() {
+        byte[] data = AnswerSheetCodec.encode(paper, Arrays.asList(new AnswerSelection(1L, null, "True"),
+                new AnswerSelection(30L, Collections.singletonList(303L), null)));
+        ExamPaper other = new ExamPaper(2L, null, paper.getQuestions().subList(0, 10));
+
+        assertEquals(Collections.singletonList(new AnswerSelection(1L, null, "True")), AnswerSheetCodec.decode(other, data));
+        long[] masks = new long[10];
+        AnswerSheetCodec.decodeMasks(other, data, masks);
+        assertEquals(CompiledExamKey.TF_TRUE, masks[0]);
+    }
+
+    /**
+     * A question edited after the answer was stored keeps the selected choices it still has, wherever they moved,
+     * and drops the one it lost.
+     */
+    @Test
+    public void testDecode_TranslatesEditedChoices() {
+        byte[] data = AnswerSheetCodec.encode(paper, Collections.singletonList(new AnswerSelection(2L, Arrays.asList(22L, 24L), null)));
+        List<PaperQuestion> questions = new ArrayList<>(paper.getQuestions());
+        questions.set(1, new PaperQuestion(2L, "MS 2", DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                Arrays.asList(new PaperChoice(24L, "D"), new PaperChoice(21L, "A"), new PaperChoice(25L, "E"), new PaperChoice(23L, "C"))));
+        ExamPaper edited = new ExamPaper(1L, null, questions);
+
+        assertEquals(Collections.singletonList(new AnswerSelection(2L, Collections.singletonList(24L), null)), AnswerSheetCodec.decode(edited, data));
+        long[] masks = new long[questions.size()];
+        AnswerSheetCodec.decodeMasks(edited, data, masks);
+        assertEquals(0b0001, masks[1]);
+        AnswerSheetCodec.decodeMasks(paper, data, masks);
+        assertEquals(0b1010, masks[1]);
+    }
+
+    /**
+     * Positional data of version 2 is still read against its own paper, and rejected once a choice was replaced.
+     */
+    @Test
+    public void testDecode_RejectsPositionalDataOfChangedPaper() {
+        byte[] data = positional(paper, 1, 0b0010);
+        assertEquals(Collections.singletonList(new AnswerSelection(2L, Collections.singletonList(22L), null)), AnswerSheetCodec.decode(paper, data));
+
+        List<PaperQuestion> questions = new ArrayList<>(paper.getQuestions());
+        questions.set(1, new PaperQuestion(2L, "MS 2", DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                Arrays.asList(new PaperChoice(21L, "A"), new PaperChoice(25L, "E"), new PaperChoice(23L, "C"), new PaperChoice(24L, "D"))));
+        ExamPaper edited = new ExamPaper(1L, null, questions);
+        try {
+            AnswerSheetCodec.decode(edited, data);
+            fail("Decoded answer data against a different choice order");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("does not match"));
+        }
+        try {
+            AnswerSheetCodec.decodeMasks(edited, data, new long[questions.size()]);
+            fail("Decoded answer masks against a different choice order");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("does not match"));
+        }
+//        Rebuilding the same paper keeps the fingerprint
+        assertEquals(paper.getFingerprint(), new ExamPaper(1L, null, paper.getQuestions()).getFingerprint());
+    }
+
+    /**
+     * The binary form of a fully answered sheet is a fraction of the legacy full JSON answer sheet.
+     */
+    @Test
+    public void testEncode_SmallerThanJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<AnswerSheet> answerSheets = new ExamPaperServiceImpl(null, mapper, 10, 10).createAnswerSheets(paper);
+        List<AnswerSelection> selections = new ArrayList<>();
+        for (AnswerSheet answerSheet : answerSheets) {
+            answerSheet.setPoint(5);
+            Choice choice = answerSheet.getChoices().get(0);
+            choice.setIsCorrected(1);
+            if (answerSheet.getQuestionId() == 1L) {
+                choice.setChoiceText("True");
+                selections.add(new AnswerSelection(1L, null, "True"));
+            } else {
+                selections.add(new AnswerSelection(answerSheet.getQuestionId(), Collections.singletonList(choice.getId()), null));
+            }
+        }
+        String json = mapper.writeValueAsString(answerSheets);
+        byte[] data = AnswerSheetCodec.encode(paper, selections);
+
+        assertEquals(selections, AnswerSheetCodec.decode(paper, data));
+        assertTrue(data.length * 10 < json.length());
+    }
+
+    /**
+     * Version 2 data with one answered question: the paper fingerprint, then question index and choice mask.
+     */
+    private static byte[] positional(ExamPaper paper, int index, long mask) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(2);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (paper.getFingerprint() >>> shift));
+        }
+        out.write(paper.getQuestions().size());
+        out.write(1);
+        out.write(index);
+        out.write((int) mask);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thanhtam.backend.dto.AnswerSheet;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.dto.PaperChoice;
+import com.thanhtam.backend.dto.PaperQuestion;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AnswerSheetServiceImpl.
+ * The service only works on the shared paper and the stored selections, so no database is needed.
+ */
+public class AnswerSheetServiceImplTest {
+
+    private AnswerSheetServiceImpl answerSheetService;
+    private ExamPaper paper;
+
+    @Before
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        answerSheetService = new AnswerSheetServiceImpl(new ExamPaperServiceImpl(null, mapper, 10, 10), mapper, false);
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "TF", DifficultyLevel.EASY, 1L, EQTypeCode.TF, "TF", 5,
+                Arrays.asList(new PaperChoice(11L, ""))));
+        for (long i = 2; i <= 20; i++) {
+            questions.add(new PaperQuestion(i, "MC " + i, DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 5,
+                    Arrays.asList(new PaperChoice(i * 10 + 1, "A"), new PaperChoice(i * 10 + 2, "B"))));
+        }
+        paper = new ExamPaper(1L, null, questions);
+    }
+
+    /**
+     * The same seed always gives the same order, and the order is a permutation of the paper.
+     */
+    @Test
+    public void testGetAnswerSheets_SeedGivesStableOrder() {
+        ExamUser examUser = startedExamUser(42L);
+
+        List<Long> first = questionIds(answerSheetService.getAnswerSheets(examUser, paper));
+        List<Long> second = questionIds(answerSheetService.getAnswerSheets(examUser, paper));
+
+        assertEquals(first, second);
+        assertEquals(20, first.size());
+        assertNotEquals(questionIds(answerSheetService.getAnswerSheets(startedExamUser(null), paper)), first);
+    }
+
+    /**
+     * Only the selections are stored, and they come back on the rebuilt sheet.
+     */
+    @Test
+    public void testSetAnswerSheets_StoresOnlySelections() {
+        ExamUser examUser = startedExamUser(7L);
+        List<AnswerSheet> answerSheets = answerSheetService.getAnswerSheets(examUser, paper);
+        AnswerSheet tf = answerSheets.stream().filter(sheet -> sheet.getQuestionId() == 1L).findFirst().get();
+        tf.getChoices().get(0).setChoiceText("False");
+        tf.getChoices().get(0).setIsCorrected(1);
+        AnswerSheet mc = answerSheets.stream().filter(sheet -> sheet.getQuestionId() == 5L).findFirst().get();
+        mc.getChoices().get(1).setIsCorrected(1);
+
+        answerSheetService.setAnswerSheets(examUser, paper, answerSheets);
+
+        assertNull(examUser.getAnswerSheet());
+        assertNotNull(examUser.getAnswerData());
+        List<AnswerSheet> reloaded = answerSheetService.getAnswerSheets(examUser, paper);
+        assertEquals(questionIds(answerSheets), questionIds(reloaded));
+        AnswerSheet reloadedTf = reloaded.stream().filter(sheet -> sheet.getQuestionId() == 1L).findFirst().get();
+        assertEquals("False", reloadedTf.getChoices().get(0).getChoiceText());
+        AnswerSheet reloadedMc = reloaded.stream().filter(sheet -> sheet.getQuestionId() == 5L).findFirst().get();
+        assertEquals(0, reloadedMc.getChoices().get(0).getIsCorrected());
+        assertEquals(1, reloadedMc.getChoices().get(1).getIsCorrected());
+    }
+
+    /**
+     * A delta only touches the questions it names; a question sent without a selection is cleared.
+     */
+    @Test
+    public void testApplyAnswerSheets_MergesChangedQuestions() {
+        ExamUser examUser = startedExamUser(7L);
+        List<AnswerSheet> answerSheets = answerSheetService.getAnswerSheets(examUser, paper);
+        answerSheets.stream().filter(sheet -> sheet.getQuestionId() == 3L).findFirst().get().getChoices().get(0).setIsCorrected(1);
+        answerSheets.stream().filter(sheet -> sheet.getQuestionId() == 4L).findFirst().get().getChoices().get(0).setIsCorrected(1);
+        answerSheetService.setAnswerSheets(examUser, paper, answerSheets);
+
+        List<AnswerSheet> delta = answerSheetService.getAnswerSheets(examUser, paper).stream()
+                .filter(sheet -> sheet.getQuestionId() == 3L || sheet.getQuestionId() == 6L)
+                .collect(Collectors.toList());
+        delta.forEach(sheet -> sheet.getChoices().forEach(choice -> choice.setIsCorrected(0)));
+        delta.stream().filter(sheet -> sheet.getQuestionId() == 6L).findFirst().get().getChoices().get(1).setIsCorrected(1);
+        answerSheetService.applyAnswerSheets(examUser, paper, delta);
+
+        List<AnswerSheet> reloaded = answerSheetService.getAnswerSheets(examUser, paper);
+        assertEquals(0, selectedCount(reloaded, 3L));
+        assertEquals(1, selectedCount(reloaded, 4L));
+        assertEquals(1, selectedCount(reloaded, 6L));
+    }
+
+    /**
+     * Selections stored as JSON are still read, and move to the binary column on the next write.
+     */
+    @Test
+    public void testSetAnswerSheets_MigratesSelectionJson() {
+        ExamUser examUser = startedExamUser(7L);
+        examUser.setAnswerSheet("[{\"questionId\":1,\"answerText\":\"True\"},{\"questionId\":5,\"choiceIds\":[52]}]");
+
+        List<AnswerSheet> answerSheets = answerSheetService.getAnswerSheets(examUser, paper);
+        assertEquals(1, selectedCount(answerSheets, 5L));
+        answerSheetService.setAnswerSheets(examUser, paper, answerSheets);
+
+        assertNull(examUser.getAnswerSheet());
+        List<AnswerSheet> reloaded = answerSheetService.getAnswerSheets(examUser, paper);
+        assertEquals("True", reloaded.stream().filter(sheet -> sheet.getQuestionId() == 1L).findFirst().get().getChoices().get(0).getChoiceText());
+        assertEquals(1, selectedCount(reloaded, 5L));
+    }
+
+    /**
+     * A candidate who has not started yet has no answer sheet.
+     */
+    @Test
+    public void testGetAnswerSheets_NotStarted() {
+        ExamUser examUser = new ExamUser();
+
+        assertTrue(answerSheetService.getAnswerSheets(examUser, paper).isEmpty());
+    }
+
+    private ExamUser startedExamUser(Long seed) {
+        ExamUser examUser = new ExamUser();
+        examUser.setIsStarted(true);
+        examUser.setShuffleSeed(seed);
+        return examUser;
+    }
+
+    private long selectedCount(List<AnswerSheet> answerSheets, Long questionId) {
+        return answerSheets.stream().filter(sheet -> sheet.getQuestionId().equals(questionId)).findFirst().get()
+                .getChoices().stream().filter(choice -> choice.getIsCorrected() == 1).count();
+    }
+
+    private List<Long> questionIds(List<AnswerSheet> answerSheets) {
+        return answerSheets.stream().map(AnswerSheet::getQuestionId).collect(Collectors.toList());
+    }
+}
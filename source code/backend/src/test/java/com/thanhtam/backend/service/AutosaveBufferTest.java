@@ -0,0 +1,158 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.ExamUser;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for AutosaveBuffer.
+ * The in-memory coalescing, and when a flushed entry leaves the buffer; the flush itself is not sent to a database.
+ */
+public class AutosaveBufferTest {
+
+    private AutosaveBuffer autosaveBuffer;
+
+    @Before
+    public void setUp() {
+        autosaveBuffer = new AutosaveBuffer(null, true, 500);
+    }
+
+    /**
+     * Only the newest autosave of an exam user is kept.
+     */
+    @Test
+    public void testOffer_KeepsNewestSequence() {
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[1]", 100, 0), 2));
+        assertFalse(autosaveBuffer.offer(examUser(1L, "[old]", 110, 0), 1));
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[3]", 90, 0), 3));
+        assertEquals(1, autosaveBuffer.getStats().getBufferDepth());
+
+        ExamUser stored = examUser(1L, "[db]", 120, 0);
+        autosaveBuffer.overlay(stored);
+
+        assertEquals("[3]", stored.getAnswerSheet());
+        assertEquals(90, stored.getRemainingTime());
+        assertEquals(3, stored.getAnswerSequence());
+    }
+
+    /**
+     * A synchronous save takes the buffered state unless it already carries a newer one.
+     */
+    @Test
+    public void testDrain_EmptiesBuffer() {
+        autosaveBuffer.offer(examUser(1L, "[buffered]", 100, 0), 4);
+        ExamUser stale = examUser(1L, "[db]", 120, 2);
+        autosaveBuffer.drain(stale);
+        assertEquals("[buffered]", stale.getAnswerSheet());
+        assertEquals(0, autosaveBuffer.getStats().getBufferDepth());
+
+        autosaveBuffer.offer(examUser(2L, "[buffered]", 100, 0), 4);
+        ExamUser submitted = examUser(2L, "[final]", 80, 4);
+        autosaveBuffer.drain(submitted);
+        assertEquals("[final]", submitted.getAnswerSheet());
+        assertEquals(0, autosaveBuffer.getStats().getBufferDepth());
+    }
+
+    /**
+     * Two deltas applied on the same buffered sheet, only the first is kept and the second conflicts.
+     */
+    @Test
+    public void testOffer_OverlappingDeltas() {
+        autosaveBuffer = new AutosaveBuffer(storedSequences(Collections.singletonMap(1L, 0L), null), true, 500);
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[1]", 100, 0), 0, 1));
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[1,2]", 95, 1), 1, 2));
+        assertFalse(autosaveBuffer.offer(examUser(1L, "[1,3]", 95, 1), 1, 3));
+
+        ExamUser stored = examUser(1L, "[db]", 120, 0);
+        autosaveBuffer.overlay(stored);
+
+        assertEquals("[1,2]", stored.getAnswerSheet());
+        assertEquals(2, stored.getAnswerSequence());
+    }
+
+    /**
+     * With nothing buffered a delta is checked against the stored sequence, so a delta built before a flush
+     * cannot follow the one that flush wrote.
+     */
+    @Test
+    public void testOffer_DeltaAfterFlushChecksStoredSequence() {
+        Map<Long, Long> stored = new HashMap<>();
+        stored.put(1L, 4L);
+        autosaveBuffer = new AutosaveBuffer(storedSequences(stored, () -> stored.put(1L, 5L)), true, 500);
+        assertFalse(autosaveBuffer.offer(examUser(1L, "[stale]", 100, 3), 3, 4));
+        assertEquals(0, autosaveBuffer.getStats().getBufferDepth());
+
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[1]", 100, 4), 4, 5));
+        autosaveBuffer.flushAll();
+        assertEquals(0, autosaveBuffer.getStats().getBufferDepth());
+
+        assertFalse(autosaveBuffer.offer(examUser(1L, "[2]", 95, 4), 4, 5));
+        assertEquals(0, autosaveBuffer.getStats().getBufferDepth());
+        assertTrue(autosaveBuffer.offer(examUser(1L, "[1,2]", 95, 5), 5, 6));
+    }
+
+    /**
+     * While a batch is being written its entries stay readable, and an autosave that arrives meanwhile is kept.
+     */
+    @Test
+    public void testFlushAll_RemovesOnlyWrittenEntries() {
+        ExamUser[] readDuringWrite = new ExamUser[1];
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+                readDuringWrite[0] = examUser(1L, "[db]", 120, 0);
+                autosaveBuffer.overlay(readDuringWrite[0]);
+                autosaveBuffer.offer(examUser(2L, "[newer]", 80, 0), 6);
+                return new int[][]{{1, 1}};
+            }
+        };
+        autosaveBuffer = new AutosaveBuffer(jdbcTemplate, true, 500);
+        autosaveBuffer.offer(examUser(1L, "[1]", 100, 0), 3);
+        autosaveBuffer.offer(examUser(2L, "[2]", 100, 0), 5);
+
+        autosaveBuffer.flushAll();
+
+        assertEquals("[1]", readDuringWrite[0].getAnswerSheet());
+        assertEquals(1, autosaveBuffer.getStats().getBufferDepth());
+        ExamUser stored = examUser(2L, "[db]", 120, 5);
+        autosaveBuffer.overlay(stored);
+        assertEquals("[newer]", stored.getAnswerSheet());
+        assertEquals(6, stored.getAnswerSequence());
+    }
+
+    /**
+     * Answers the stored sequence read from the given map, and runs onFlush for each flushed batch.
+     */
+    private JdbcTemplate storedSequences(Map<Long, Long> stored, Runnable onFlush) {
+        return new JdbcTemplate() {
+            @Override
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                Long sequence = stored.get((Long) args[0]);
+                return sequence == null ? Collections.emptyList() : Collections.singletonList(elementType.cast(sequence));
+            }
+
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+                onFlush.run();
+                int[] counts = new int[batchArgs.size()];
+                Arrays.fill(counts, 1);
+                return new int[][]{counts};
+            }
+        };
+    }
+
+    private ExamUser examUser(Long id, String answerSheet, int remainingTime, long sequence) {
+        ExamUser examUser = new ExamUser();
+        examUser.setId(id);
+        examUser.setAnswerSheet(answerSheet);
+        examUser.setRemainingTime(remainingTime);
+        examUser.setAnswerSequence(sequence);
+        return examUser;
+    }
+}
@@ -0,0 +1,138 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CompiledExamKey: the TF/MC/MS rules of ExamServiceImpl.getChoiceList.
+ */
+public class CompiledExamKeyTest {
+
+    private ExamPaper paper;
+    private CompiledExamKey key;
+
+    /**
+     * Question 1 is TF ("True"), 2 is MC (choice 22 correct), 3 is MS (31 and 33 correct), each worth 5 points.
+     */
+    @Before
+    public void setUp() {
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "TF", DifficultyLevel.EASY, 1L, EQTypeCode.TF, "TF", 5,
+                Collections.singletonList(new PaperChoice(11L, ""))));
+        questions.add(new PaperQuestion(2L, "MC", DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 5,
+                Arrays.asList(new PaperChoice(21L, "A"), new PaperChoice(22L, "B"), new PaperChoice(23L, "C"))));
+        questions.add(new PaperQuestion(3L, "MS", DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                Arrays.asList(new PaperChoice(31L, "A"), new PaperChoice(32L, "B"), new PaperChoice(33L, "C"))));
+        paper = new ExamPaper(1L, null, questions);
+        AnswerKey answerKey = AnswerKey.of(Arrays.asList(new Choice(11L, "True", 1),
+                new Choice(21L, "A", 0), new Choice(22L, "B", 1), new Choice(23L, "C", 0),
+                new Choice(31L, "A", 1), new Choice(32L, "B", 0), new Choice(33L, "C", 1)));
+        key = CompiledExamKey.compile(paper, answerKey, 0);
+    }
+
+    @Test
+    public void testGrade_AllCorrect() {
+        long[] outcome = new long[CompiledExamKey.outcomeWords(3)];
+
+        assertEquals(15, key.grade(new long[]{CompiledExamKey.TF_TRUE, 0b010, 0b101}, outcome));
+        assertEquals(0b111, outcome[0]);
+    }
+
+    /**
+     * TF: the wrong answer or no answer scores nothing. MC: any correct choice is enough, even with
+     * wrong ones selected. MS: an extra wrong choice is allowed, a missing correct one is not.
+     */
+    @Test
+    public void testGrade_SameRulesAsChoiceList() {
+        long[] outcome = new long[1];
+
+        assertEquals(0, key.grade(new long[]{CompiledExamKey.TF_FALSE, 0, 0}, outcome));
+        assertEquals(0, key.grade(new long[]{0, 0, 0}, outcome));
+        assertEquals(0, outcome[0]);
+        assertEquals(10, key.grade(new long[]{0, 0b011, 0b111}, outcome));
+        assertEquals(0b110, outcome[0]);
+        assertEquals(0, key.grade(new long[]{0, 0b101, 0b001}, outcome));
+        assertEquals(0, outcome[0]);
+    }
+
+    @Test
+    public void testMatches_StaleVersionOrPaper() {
+        assertTrue(key.matches(paper, 0));
+        assertFalse(key.matches(paper, 1));
+        assertFalse(key.matches(new ExamPaper(1L, null, paper.getQuestions().subList(0, 2)), 0));
+    }
+
+    @Test
+    public void testOutcomeBytes_KeepQuestionOrder() {
+        long[] outcome = new long[CompiledExamKey.outcomeWords(70)];
+        outcome[0] = 1L | 1L << 9;
+        outcome[1] = 1L << 5;
+
+        byte[] data = CompiledExamKey.toOutcomeBytes(outcome, 70);
+
+        assertEquals(9, data.length);
+        assertTrue(CompiledExamKey.isCorrect(data, 0));
+        assertTrue(CompiledExamKey.isCorrect(data, 9));
+        assertTrue(CompiledExamKey.isCorrect(data, 69));
+        assertFalse(CompiledExamKey.isCorrect(data, 1));
+        assertFalse(CompiledExamKey.isCorrect(data, -1));
+        assertFalse(CompiledExamKey.isCorrect(data, 72));
+    }
+
+    /**
+     * The stored fingerprint survives restarts, unlike the key version, and only changes with the grading rules.
+     */
+    @Test
+    public void testFingerprint_ChangesWithAnswerKey() {
+        AnswerKey same = AnswerKey.of(Arrays.asList(new Choice(11L, "True", 1),
+                new Choice(21L, "A", 0), new Choice(22L, "B", 1), new Choice(23L, "C", 0),
+                new Choice(31L, "A", 1), new Choice(32L, "B", 0), new Choice(33L, "C", 1)));
+        AnswerKey edited = AnswerKey.of(Arrays.asList(new Choice(11L, "True", 1),
+                new Choice(21L, "A", 1), new Choice(22L, "B", 0), new Choice(23L, "C", 0),
+                new Choice(31L, "A", 1), new Choice(32L, "B", 0), new Choice(33L, "C", 1)));
+
+        assertEquals(key.getFingerprint(), CompiledExamKey.compile(paper, same, 7).getFingerprint());
+        assertNotEquals(key.getFingerprint(), CompiledExamKey.compile(paper, edited, 7).getFingerprint());
+    }
+
+    /**
+     * A key edit remembers the key it replaced and the changed question, so regrading that question alone
+     * on a sheet graded with the old key gives the same result as grading the whole sheet.
+     */
+    @Test
+    public void testSince_RegradesChangedQuestionOnly() {
+        AnswerKey edited = AnswerKey.of(Arrays.asList(new Choice(11L, "True", 1),
+                new Choice(21L, "A", 1), new Choice(22L, "B", 0), new Choice(23L, "C", 0),
+                new Choice(31L, "A", 1), new Choice(32L, "B", 0), new Choice(33L, "C", 1)));
+        CompiledExamKey next = CompiledExamKey.compile(paper, edited, 1).since(key);
+        CompiledExamKey recompiled = CompiledExamKey.compile(paper, edited, 2).since(next);
+
+        assertEquals(key.getFingerprint(), next.getPreviousFingerprint());
+        assertArrayEquals(new int[]{1}, next.getChangedQuestions());
+        assertEquals(key.getFingerprint(), recompiled.getPreviousFingerprint());
+        assertArrayEquals(new int[]{1}, recompiled.getChangedQuestions());
+
+        long[] selected = {CompiledExamKey.TF_TRUE, 0b001, 0b101};
+        long[] outcome = new long[1];
+        key.grade(selected, outcome);
+        byte[] stored = CompiledExamKey.toOutcomeBytes(outcome, 3);
+        for (int index : next.getChangedQuestions()) {
+            CompiledExamKey.setCorrect(stored, index, next.isCorrect(index, selected[index]));
+        }
+        long[] full = new long[1];
+        assertEquals(next.grade(selected, full), next.getTotal(stored));
+        assertArrayEquals(CompiledExamKey.toOutcomeBytes(full, 3), stored);
+        assertEquals(15, next.getTotal(stored));
+    }
+}
@@ -0,0 +1,107 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.CourseChart;
+import com.thanhtam.backend.entity.CourseProgress;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for CourseChartServiceImpl: week-over-week comparison, weeks read from course progress and the per-user cache.
+ */
+public class CourseChartServiceImplTest {
+
+    /**
+     * Counts the chart queries, every query returns one course.
+     */
+    private static class CountingJdbcTemplate extends JdbcTemplate {
+        private final AtomicInteger queries = new AtomicInteger();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            queries.incrementAndGet();
+            return (List<T>) Collections.singletonList(CourseChartServiceImpl.toChart("C1", "Course", 1, 8.0, 1, 0));
+        }
+    }
+
+    @Test
+    public void testToChart_ComparesWithLastWeek() {
+        CourseChart more = CourseChartServiceImpl.toChart("C1", "Course", 6, 7.456, 3, 2);
+        assertEquals(7.46, more.getTotalPoint(), 1e-9);
+        assertEquals(6, more.getCountExam());
+        assertEquals(1, more.getCompareLastWeek());
+        assertEquals(50.0, more.getChangeRating(), 1e-9);
+
+        CourseChart fewer = CourseChartServiceImpl.toChart("C1", "Course", 3, 5.0, 1, 2);
+        assertEquals(-1, fewer.getCompareLastWeek());
+        assertEquals(-50.0, fewer.getChangeRating(), 1e-9);
+
+        CourseChart same = CourseChartServiceImpl.toChart("C1", "Course", 4, 5.0, 2, 2);
+        assertEquals(0, same.getCompareLastWeek());
+        assertEquals(0.0, same.getChangeRating(), 1e-9);
+    }
+
+    @Test
+    public void testToChart_EmptyWeeks() {
+        CourseChart none = CourseChartServiceImpl.toChart("C1", "Course", 0, 0.0, 0, 0);
+        assertEquals(0, none.getCompareLastWeek());
+        assertEquals(0.0, none.getChangeRating(), 1e-9);
+        assertEquals(0.0, none.getTotalPoint(), 1e-9);
+
+        CourseChart onlyThisWeek = CourseChartServiceImpl.toChart("C1", "Course", 2, 6.0, 2, 0);
+        assertEquals(1, onlyThisWeek.getCompareLastWeek());
+        assertEquals(200.0, onlyThisWeek.getChangeRating(), 1e-9);
+
+        CourseChart onlyLastWeek = CourseChartServiceImpl.toChart("C1", "Course", 3, 6.0, 0, 3);
+        assertEquals(-1, onlyLastWeek.getCompareLastWeek());
+        assertEquals(300.0, onlyLastWeek.getChangeRating(), 1e-9);
+    }
+
+    @Test
+    public void testCountInWeek_LatestTwoWeeksOnly() {
+        LocalDate monday = LocalDate.of(2026, 10, 12);
+        CourseProgress progress = new CourseProgress();
+        progress.setCompletedExams(9);
+        progress.setScoreTotal(45.0);
+        progress.setWeekStart(java.sql.Date.valueOf(monday));
+        progress.setWeekCount(3);
+        progress.setPreviousWeekCount(2);
+
+        assertEquals(5.0, progress.getAverageScore(), 1e-9);
+        assertEquals(3, progress.countInWeek(monday));
+        assertEquals(2, progress.countInWeek(monday.minusWeeks(1)));
+        assertEquals(0, progress.countInWeek(monday.minusWeeks(2)));
+//        A week later the latest counted week has become last week
+        assertEquals(0, progress.countInWeek(monday.plusWeeks(1)));
+
+        assertNull(new CourseProgress().getAverageScore());
+        assertEquals(0, new CourseProgress().countInWeek(monday));
+    }
+
+    @Test
+    public void testGetCourseCharts_CachedPerUserUntilEvicted() {
+        CountingJdbcTemplate jdbcTemplate = new CountingJdbcTemplate();
+        CourseChartService service = new CourseChartServiceImpl(jdbcTemplate, 100, 300);
+
+        List<CourseChart> first = service.getCourseCharts("student");
+        assertEquals(1, first.size());
+        assertSame(first, service.getCourseCharts("student"));
+        assertEquals(1, jdbcTemplate.queries.get());
+
+        service.getCourseCharts("other");
+        assertEquals(2, jdbcTemplate.queries.get());
+
+        service.evict("student");
+        service.getCourseCharts("student");
+        service.getCourseCharts("other");
+        assertEquals(3, jdbcTemplate.queries.get());
+    }
+}
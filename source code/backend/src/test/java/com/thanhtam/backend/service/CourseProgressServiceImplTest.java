@@ -0,0 +1,232 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.*;
+import com.thanhtam.backend.repository.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for CourseProgressService.
+ * Checks how the upsert moves the week counters for attempts of the same week, the next one, a later one and an
+ * earlier one recorded late, and that a recount from exam_user ends where the recorded attempts did.
+ * Every test runs in a transaction that is rolled back.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CourseProgressServiceImplTest {
+
+    @Autowired
+    private CourseProgressService courseProgressService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private PartRepository partRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamUserRepository examUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // A Monday far in the past, no real progress row has its week
+    private static final LocalDate MONDAY = LocalDate.of(2001, 1, 15);
+    // Ids no real user or course has, course_progress keeps them as plain columns
+    private static final long USER_ID = -1L;
+    private static final long COURSE_ID = -2L;
+
+    @Test
+    public void testRecordGraded_SameWeek() {
+        record(MONDAY, 6);
+        record(MONDAY.plusDays(4), 8);
+
+        CourseProgress progress = progress(USER_ID, COURSE_ID);
+        assertEquals(MONDAY, toLocalDate(progress.getWeekStart()));
+        assertEquals(2, progress.getWeekCount());
+        assertEquals(0, progress.getPreviousWeekCount());
+        assertEquals(2, progress.getCompletedExams());
+        assertEquals(14.0, progress.getScoreTotal(), 1e-9);
+        assertEquals(8.0, progress.getBestScore(), 1e-9);
+    }
+
+    @Test
+    public void testRecordGraded_NextWeekMovesCountToPreviousWeek() {
+        record(MONDAY, 6);
+        record(MONDAY.plusDays(2), 7);
+        record(MONDAY.plusWeeks(1).plusDays(1), 5);
+
+        CourseProgress progress = progress(USER_ID, COURSE_ID);
+        assertEquals(MONDAY.plusWeeks(1), toLocalDate(progress.getWeekStart()));
+        assertEquals(1, progress.getWeekCount());
+        assertEquals(2, progress.getPreviousWeekCount());
+        assertEquals(3, progress.getCompletedExams());
+    }
+
+    @Test
+    public void testRecordGraded_GapOfWeeksClearsBothCounters() {
+        record(MONDAY, 6);
+        record(MONDAY.plusDays(1), 6);
+        record(MONDAY.plusWeeks(3), 9);
+
+        CourseProgress progress = progress(USER_ID, COURSE_ID);
+        assertEquals(MONDAY.plusWeeks(3), toLocalDate(progress.getWeekStart()));
+        assertEquals(1, progress.getWeekCount());
+        assertEquals(0, progress.getPreviousWeekCount());
+        assertEquals(3, progress.getCompletedExams());
+    }
+
+    @Test
+    public void testRecordGraded_LateAttemptOfLastWeek() {
+        record(MONDAY.plusWeeks(1), 6);
+        record(MONDAY.plusDays(3), 4);
+
+        CourseProgress progress = progress(USER_ID, COURSE_ID);
+        assertEquals(MONDAY.plusWeeks(1), toLocalDate(progress.getWeekStart()));
+        assertEquals(1, progress.getWeekCount());
+        assertEquals(1, progress.getPreviousWeekCount());
+//        Older than the two known weeks, only the totals move
+        record(MONDAY.minusWeeks(2), 3);
+
+        progress = progress(USER_ID, COURSE_ID);
+        assertEquals(MONDAY.plusWeeks(1), toLocalDate(progress.getWeekStart()));
+        assertEquals(1, progress.getWeekCount());
+        assertEquals(1, progress.getPreviousWeekCount());
+        assertEquals(3, progress.getCompletedExams());
+        assertEquals(13.0, progress.getScoreTotal(), 1e-9);
+        assertEquals(atTen(MONDAY.plusWeeks(1)), progress.getLastActivity().getTime());
+    }
+
+    @Test
+    public void testRefresh_MatchesRecordedAttempts() {
+        LocalDate monday = CourseProgressServiceImpl.toMonday(LocalDate.now());
+        Course course = new Course();
+        course.setCourseCode("CP" + System.nanoTime());
+        course.setName("Progress course");
+        course = courseRepository.save(course);
+        Part part = new Part();
+        part.setName("Progress part");
+        part.setCourse(course);
+        part = partRepository.save(part);
+        User user = new User();
+        user.setUsername("progress_" + System.nanoTime());
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setPassword("password");
+        user = userRepository.save(user);
+        Exam exam = new Exam();
+        exam.setTitle("Progress exam");
+        exam.setDurationExam(60);
+        exam.setShuffle(false);
+        exam.setCanceled(false);
+        exam.setBeginExam(new Date());
+        exam.setFinishExam(new Date(System.currentTimeMillis() + 3600000));
+        exam.setQuestionData("[]");
+        exam.setCreatedBy(user);
+        exam.setPart(part);
+        exam = examRepository.save(exam);
+
+//        Recorded in the order they were graded: three weeks ago, last week, then twice this week
+        List<ExamUser> attempts = Arrays.asList(
+                finishedAttempt(user, exam, monday.minusWeeks(3), 4),
+                finishedAttempt(user, exam, monday.minusWeeks(1), 7),
+                finishedAttempt(user, exam, monday, 9),
+                finishedAttempt(user, exam, monday, 6));
+        for (ExamUser attempt : attempts) {
+            courseProgressService.recordGraded(Collections.singletonList(attempt));
+        }
+        CourseProgress recorded = progress(user.getId(), course.getId());
+        assertEquals(monday, toLocalDate(recorded.getWeekStart()));
+        assertEquals(2, recorded.getWeekCount());
+        assertEquals(1, recorded.getPreviousWeekCount());
+
+        courseProgressService.refresh(user.getId(), course.getId());
+        assertSameProgress(recorded, progress(user.getId(), course.getId()));
+
+        courseProgressService.refreshExam(exam.getId());
+        assertSameProgress(recorded, progress(user.getId(), course.getId()));
+    }
+
+    private void record(LocalDate day, double totalPoint) {
+        User user = new User();
+        user.setId(USER_ID);
+        Course course = new Course();
+        course.setId(COURSE_ID);
+        Part part = new Part();
+        part.setCourse(course);
+        Exam exam = new Exam();
+        exam.setPart(part);
+        ExamUser examUser = new ExamUser();
+        examUser.setUser(user);
+        examUser.setExam(exam);
+        examUser.setTotalPoint(totalPoint);
+        examUser.setTimeFinish(new Date(atTen(day)));
+        courseProgressService.recordGraded(Collections.singletonList(examUser));
+    }
+
+    private ExamUser finishedAttempt(User user, Exam exam, LocalDate day, double totalPoint) {
+        ExamUser examUser = new ExamUser();
+        examUser.setUser(user);
+        examUser.setExam(exam);
+        examUser.setIsStarted(true);
+        examUser.setIsFinished(true);
+        examUser.setRemainingTime(0);
+        examUser.setTimeStart(new Date(atTen(day) - 1800000));
+        examUser.setTimeFinish(new Date(atTen(day)));
+        examUser.setTotalPoint(totalPoint);
+        return examUserRepository.saveAndFlush(examUser);
+    }
+
+    private void assertSameProgress(CourseProgress expected, CourseProgress actual) {
+        assertEquals(expected.getCompletedExams(), actual.getCompletedExams());
+        assertEquals(expected.getScoreTotal(), actual.getScoreTotal(), 1e-9);
+        assertEquals(expected.getBestScore(), actual.getBestScore(), 1e-9);
+        assertEquals(expected.getLastActivity().getTime(), actual.getLastActivity().getTime());
+        assertEquals(toLocalDate(expected.getWeekStart()), toLocalDate(actual.getWeekStart()));
+        assertEquals(expected.getWeekCount(), actual.getWeekCount());
+        assertEquals(expected.getPreviousWeekCount(), actual.getPreviousWeekCount());
+    }
+
+    // Read over JDBC, the upserts bypass the persistence context
+    private CourseProgress progress(long userId, long courseId) {
+        return jdbcTemplate.queryForObject("SELECT * FROM course_progress WHERE user_id = ? AND course_id = ?", (rs, rowNum) -> {
+            CourseProgress progress = new CourseProgress();
+            progress.setCompletedExams(rs.getLong("completed_exams"));
+            progress.setScoreTotal(rs.getDouble("score_total"));
+            progress.setBestScore(rs.getDouble("best_score"));
+            progress.setLastActivity(rs.getTimestamp("last_activity"));
+            progress.setWeekStart(rs.getDate("week_start"));
+            progress.setWeekCount(rs.getLong("week_count"));
+            progress.setPreviousWeekCount(rs.getLong("previous_week_count"));
+            return progress;
+        }, userId, courseId);
+    }
+
+    private static long atTen(LocalDate day) {
+        return day.atTime(10, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return ((java.sql.Date) date).toLocalDate();
+    }
+}
@@ -0,0 +1,60 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.DailyStats;
+import com.thanhtam.backend.ultilities.EDailyCounter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for DailyStatsService.
+ * Checks that counters are added to the row of their day and that a rebuild recounts from the tables.
+ * Every test runs in a transaction that is rolled back.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class DailyStatsServiceImplTest {
+
+    @Autowired
+    private DailyStatsService dailyStatsService;
+
+    // A day far in the past, no real activity is counted on it
+    private static final LocalDate DAY = LocalDate.of(2001, 1, 15);
+
+    @Test
+    public void testIncrement_AddsToTheRowOfTheDay() {
+        Date morning = Date.from(DAY.atTime(8, 0).atZone(ZoneId.systemDefault()).toInstant());
+        Date evening = Date.from(DAY.atTime(20, 0).atZone(ZoneId.systemDefault()).toInstant());
+
+        dailyStatsService.increment(morning, EDailyCounter.QUESTIONS_CREATED, 1);
+        dailyStatsService.increment(evening, EDailyCounter.QUESTIONS_CREATED, 2);
+        dailyStatsService.recordFinished(morning, 1, 10);
+        dailyStatsService.recordFinished(evening, 3, 20);
+
+        List<DailyStats> days = dailyStatsService.getDays(DAY, DAY.plusDays(1));
+        assertEquals(1, days.size());
+        assertEquals(3, days.get(0).getQuestionsCreated());
+        assertEquals(4, days.get(0).getAttemptsFinished());
+        assertEquals(7.5, days.get(0).getAverageScore(), 1e-9);
+    }
+
+    @Test
+    public void testRebuild_DropsCountersWithoutRows() {
+        dailyStatsService.increment(Date.from(DAY.atStartOfDay(ZoneId.systemDefault()).toInstant()), EDailyCounter.EXAMS_CREATED, 5);
+
+        dailyStatsService.rebuild();
+
+        assertTrue(dailyStatsService.getDays(DAY, DAY.plusDays(1)).isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.exception.ExamBusyException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ExamAdmissionServiceImpl, which only keeps in-memory state.
+ */
+public class ExamAdmissionServiceImplTest {
+
+    private ExamAdmissionServiceImpl examAdmissionService;
+
+    @Before
+    public void setUp() {
+        examAdmissionService = new ExamAdmissionServiceImpl(1, 1, 50, 30);
+    }
+
+    /**
+     * A request that cannot get a permit in time is rejected with a retry-after hint.
+     */
+    @Test
+    public void testAdmit_RejectsWhenFull() {
+        ExamAdmission first = examAdmissionService.admit(1L);
+        try {
+            examAdmissionService.admit(1L);
+            fail("Expected ExamBusyException");
+        } catch (ExamBusyException e) {
+            assertTrue(e.getRetryAfterSeconds() >= 1);
+            assertTrue(e.getRetryAfterSeconds() <= 30);
+        }
+//        Other exams have their own limit
+        examAdmissionService.admit(2L).close();
+        first.close();
+        examAdmissionService.admit(1L).close();
+
+        assertEquals(3, examAdmissionService.getStats().getAdmitted());
+        assertEquals(1, examAdmissionService.getStats().getRejected());
+        assertEquals(0, examAdmissionService.getStats().getInFlight());
+        assertTrue(examAdmissionService.getStats().getMaxWaitMillis() >= 50);
+    }
+
+    /**
+     * Closing an admission twice releases its permit only once.
+     */
+    @Test
+    public void testClose_ReleasesOnce() {
+        ExamAdmission admission = examAdmissionService.admit(1L);
+        admission.close();
+        admission.close();
+
+        ExamAdmission next = examAdmissionService.admit(1L);
+        assertEquals(1, examAdmissionService.getStats().getInFlight());
+        next.close();
+    }
+}
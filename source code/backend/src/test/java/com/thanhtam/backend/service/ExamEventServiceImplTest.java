@@ -0,0 +1,61 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Date;
+
+/**
+ * Tests for ExamEventServiceImpl. Emitters are not attached to a response here,
+ * a completed emitter rejects further events.
+ */
+public class ExamEventServiceImplTest {
+
+    private ExamEventServiceImpl examEventService;
+    private ExamUser examUser;
+
+    @Before
+    public void setUp() {
+        examEventService = new ExamEventServiceImpl(60000);
+        Exam exam = new Exam();
+        exam.setId(1L);
+        User user = new User();
+        user.setUsername("candidate");
+        examUser = new ExamUser();
+        examUser.setExam(exam);
+        examUser.setUser(user);
+        examUser.setDeadline(new Date(System.currentTimeMillis() + 60000));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPublishCanceled_ClosesCandidateChannel() throws Exception {
+        SseEmitter emitter = examEventService.subscribeCandidate(examUser);
+        examEventService.publishCanceled(1L);
+
+        emitter.send("late");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubscribeCandidate_ReplacesPreviousChannel() throws Exception {
+        SseEmitter first = examEventService.subscribeCandidate(examUser);
+        SseEmitter second = examEventService.subscribeCandidate(examUser);
+        examEventService.tick();
+        second.send("still open");
+
+        first.send("late");
+    }
+
+    @Test
+    public void testPublishSubmitted_KeepsLecturerFeedOpen() throws Exception {
+        SseEmitter lecturer = examEventService.subscribeLecturer(1L);
+        examEventService.subscribeCandidate(examUser);
+        examEventService.publishStarted(examUser);
+        examEventService.publishSubmitted(examUser);
+
+        lecturer.send("still open");
+    }
+}
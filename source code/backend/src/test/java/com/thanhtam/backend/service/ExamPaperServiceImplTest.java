@@ -0,0 +1,139 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.AnswerSheet;
+import com.thanhtam.backend.dto.ExamPaper;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.Question;
+import com.thanhtam.backend.entity.QuestionType;
+import com.thanhtam.backend.repository.ExamRepository;
+import com.thanhtam.backend.repository.QuestionRepository;
+import com.thanhtam.backend.repository.QuestionTypeRepository;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ExamPaperServiceImpl using the MySQL test database.
+ * Verifies that the shared paper keeps the exam order and never exposes correct answers.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ExamPaperServiceImplTest {
+
+    @Autowired
+    private ExamPaperServiceImpl examPaperService;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private QuestionTypeRepository questionTypeRepository;
+
+    private Exam testExam;
+    private Question tfQuestion;
+    private Question mcQuestion;
+
+    @Before
+    public void setUp() {
+        QuestionType tf = questionTypeRepository.save(new QuestionType(null, EQTypeCode.TF, "True/False"));
+        QuestionType mc = questionTypeRepository.save(new QuestionType(null, EQTypeCode.MC, "Multiple choice"));
+
+        tfQuestion = questionRepository.save(createQuestion(tf, "Java is a language", "True"));
+        mcQuestion = questionRepository.save(createQuestion(mc, "Pick one", "A", "B"));
+
+        testExam = new Exam();
+        testExam.setTitle("Paper Exam");
+        testExam.setDurationExam(60);
+        testExam.setCanceled(false);
+        testExam.setBeginExam(new Date());
+        testExam.setFinishExam(new Date(System.currentTimeMillis() + 3600000));
+        testExam.setQuestionData("[{\"questionId\":" + mcQuestion.getId() + ",\"point\":5},{\"questionId\":" + tfQuestion.getId() + ",\"point\":5}]");
+        testExam = examRepository.save(testExam);
+    }
+
+    /**
+     * The paper follows the question order of the exam and is shared between calls.
+     */
+    @Test
+    public void testGetPaper_KeepsExamOrderAndIsCached() {
+        ExamPaper paper = examPaperService.getPaper(testExam);
+
+        assertEquals(2, paper.getQuestions().size());
+        assertEquals(mcQuestion.getId(), paper.getQuestions().get(0).getQuestionId());
+        assertEquals(tfQuestion.getId(), paper.getQuestions().get(1).getQuestionId());
+        assertSame(paper, examPaperService.getPaper(testExam));
+    }
+
+    /**
+     * Answer sheets built from the paper carry no correctness, and TF choices do not leak their answer text.
+     */
+    @Test
+    public void testCreateAnswerSheets_StripsCorrectness() {
+        ExamPaper paper = examPaperService.getPaper(testExam);
+        List<AnswerSheet> answerSheets = examPaperService.createAnswerSheets(paper);
+
+        answerSheets.forEach(answerSheet -> answerSheet.getChoices().forEach(choice -> assertEquals(0, choice.getIsCorrected())));
+        assertEquals("", answerSheets.get(1).getChoices().get(0).getChoiceText());
+        assertEquals("A", answerSheets.get(0).getChoices().get(0).getChoiceText());
+    }
+
+    /**
+     * Evicting a paper forces the next call to build a new one.
+     */
+    @Test
+    public void testEvictPaper() {
+        ExamPaper paper = examPaperService.getPaper(testExam);
+        examPaperService.evictPaper(testExam.getId());
+
+        assertNotSame(paper, examPaperService.getPaper(testExam));
+    }
+
+    /**
+     * Papers of finished exams are cached too, in their own expiring cache, and evicted like the others.
+     */
+    @Test
+    public void testGetPaper_CachesFinishedExam() {
+        testExam.setFinishExam(new Date(System.currentTimeMillis() - 60000));
+        testExam = examRepository.save(testExam);
+
+        ExamPaper paper = examPaperService.getPaper(testExam);
+        assertSame(paper, examPaperService.getPaper(testExam));
+
+        examPaperService.evictPaper(testExam.getId());
+        assertNotSame(paper, examPaperService.getPaper(testExam));
+    }
+
+    private Question createQuestion(QuestionType questionType, String text, String... choiceTexts) {
+        List<Choice> choices = new ArrayList<>();
+        for (int i = 0; i < choiceTexts.length; i++) {
+            Choice choice = new Choice();
+            choice.setChoiceText(choiceTexts[i]);
+            choice.setIsCorrected(i == 0 ? 1 : 0);
+            choices.add(choice);
+        }
+        Question question = new Question();
+        question.setQuestionText(text);
+        question.setDifficultyLevel(DifficultyLevel.EASY);
+        question.setQuestionType(questionType);
+        question.setChoices(choices);
+        question.setPoint(5);
+        return question;
+    }
+}
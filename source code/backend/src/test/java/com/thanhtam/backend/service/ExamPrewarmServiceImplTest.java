@@ -0,0 +1,87 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamWarmup;
+import com.thanhtam.backend.dto.PrewarmStats;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.User;
+import com.thanhtam.backend.repository.ExamRepository;
+import com.thanhtam.backend.repository.ExamUserRepository;
+import com.thanhtam.backend.repository.UserRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+/**
+ * Tests for ExamPrewarmServiceImpl against the MySQL database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ExamPrewarmServiceImplTest {
+
+    @Autowired
+    private ExamPrewarmService examPrewarmService;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamUserRepository examUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Exam upcomingExam;
+    private User testUser;
+
+    @Before
+    public void setUp() {
+        testUser = new User();
+        testUser.setUsername("prewarm_" + System.currentTimeMillis());
+        testUser.setEmail("prewarm_" + System.currentTimeMillis() + "@example.com");
+        testUser.setPassword("password");
+        testUser = userRepository.save(testUser);
+
+        upcomingExam = new Exam();
+        upcomingExam.setTitle("Upcoming Exam");
+        upcomingExam.setDurationExam(60);
+        upcomingExam.setCanceled(false);
+        upcomingExam.setBeginExam(new Date(System.currentTimeMillis() + 5 * 60 * 1000L));
+        upcomingExam.setFinishExam(new Date(System.currentTimeMillis() + 2 * 60 * 60 * 1000L));
+        upcomingExam.setQuestionData("[]");
+        upcomingExam.setCreatedBy(testUser);
+        upcomingExam = examRepository.save(upcomingExam);
+
+        ExamUser examUser = new ExamUser();
+        examUser.setUser(testUser);
+        examUser.setExam(upcomingExam);
+        examUser.setRemainingTime(60 * 60);
+        examUser.setTotalPoint(-1.0);
+        examUserRepository.save(examUser);
+    }
+
+    /**
+     * An exam starting within the lead time is warmed, including its participants.
+     */
+    @Test
+    public void testPrewarmUpcomingExams() {
+        examPrewarmService.prewarmUpcomingExams();
+
+        PrewarmStats stats = examPrewarmService.getStats();
+        ExamWarmup warmup = stats.getExams().stream()
+                .filter(exam -> exam.getExamId().equals(upcomingExam.getId())).findFirst().orElse(null);
+        Assert.assertNotNull(warmup);
+        Assert.assertEquals("DONE", warmup.getStatus());
+        Assert.assertEquals(1, warmup.getParticipants());
+        Assert.assertEquals(1, warmup.getWarmedParticipants());
+        Assert.assertTrue(stats.getUserDetailsCache().getSize() >= 1);
+    }
+}
@@ -0,0 +1,38 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.ultilities.EResultSort;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the keyset cursor of the paged result listing.
+ */
+public class ExamResultCursorTest {
+
+    @Test
+    public void roundTripsEachSortKey() {
+        ExamResultServiceImpl.Cursor point = ExamResultServiceImpl.Cursor.decode(
+                new ExamResultServiceImpl.Cursor(7L, 8.5).encode(EResultSort.POINT), EResultSort.POINT);
+        assertEquals(7L, point.id);
+        assertEquals(8.5, (Double) point.value, 0.0);
+
+        Timestamp finished = new Timestamp(1600000000000L);
+        ExamResultServiceImpl.Cursor finish = ExamResultServiceImpl.Cursor.decode(
+                new ExamResultServiceImpl.Cursor(9L, finished).encode(EResultSort.FINISH), EResultSort.FINISH);
+        assertEquals(9L, finish.id);
+        assertEquals(finished, finish.value);
+
+        ExamResultServiceImpl.Cursor username = ExamResultServiceImpl.Cursor.decode(
+                new ExamResultServiceImpl.Cursor(3L, "user:1").encode(EResultSort.USERNAME), EResultSort.USERNAME);
+        assertEquals(3L, username.id);
+        assertEquals("user:1", username.value);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedCursor() {
+        ExamResultServiceImpl.Cursor.decode("not-a-cursor", EResultSort.POINT);
+    }
+}
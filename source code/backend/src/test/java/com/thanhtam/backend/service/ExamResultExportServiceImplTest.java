@@ -0,0 +1,292 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ExamResultExportServiceImpl.
+ * The cursor is served from rows held in memory, so no database is needed; the statement it is opened with is recorded.
+ */
+public class ExamResultExportServiceImplTest {
+
+    private ExamPaper paper;
+    private CompiledExamKey key;
+    private AnswerSheetServiceImpl answerSheetService;
+    private List<Map<String, Object>> rows;
+    private int fetchSize;
+    private ExamResultExportServiceImpl exportService;
+    private Timestamp started;
+    private Timestamp finished;
+
+    /**
+     * Question 1 is TF ("True"), 2 is MC (choice 22 correct), 3 is MS (31 and 33 correct), each worth 5 points.
+     * The candidates, in username order: alice finished and graded with the current key, bob finished but graded
+     * with an older key, carol still doing the exam and dave not started.
+     */
+    @Before
+    public void setUp() {
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "TF", DifficultyLevel.EASY, 1L, EQTypeCode.TF, "TF", 5,
+                Collections.singletonList(new PaperChoice(11L, ""))));
+        questions.add(new PaperQuestion(2L, "MC", DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 5,
+                Arrays.asList(new PaperChoice(21L, "A"), new PaperChoice(22L, "B"), new PaperChoice(23L, "C"))));
+        questions.add(new PaperQuestion(3L, "MS", DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                Arrays.asList(new PaperChoice(31L, "A"), new PaperChoice(32L, "B"), new PaperChoice(33L, "C"))));
+        paper = new ExamPaper(1L, null, questions);
+        key = CompiledExamKey.compile(paper, AnswerKey.of(Arrays.asList(new Choice(11L, "True", 1),
+                new Choice(21L, "A", 0), new Choice(22L, "B", 1), new Choice(23L, "C", 0),
+                new Choice(31L, "A", 1), new Choice(32L, "B", 0), new Choice(33L, "C", 1))), 0);
+        ObjectMapper mapper = new ObjectMapper();
+        answerSheetService = new AnswerSheetServiceImpl(new ExamPaperServiceImpl(null, mapper, 10, 10), mapper, false);
+
+        started = new Timestamp(System.currentTimeMillis() / 1000 * 1000 - 3600000);
+        finished = new Timestamp(started.getTime() + 1800000);
+//        Stored outcome and total with no selections behind them, regrading would give 0
+        rows = new ArrayList<>();
+        rows.add(row("alice", "Alice", "Nguyen", true, true, 10.0,
+                CompiledExamKey.toOutcomeBytes(new long[]{0b101}, 3), key.getFingerprint(), null));
+        rows.add(row("bob", "Bob", "Tran", true, true, 0.0,
+                CompiledExamKey.toOutcomeBytes(new long[]{0}, 3), key.getFingerprint() + 1, selections(true, 22L, 31L, 33L)));
+        rows.add(row("carol", "Carol", "Le", true, false, -1.0, null, null, selections(false, 22L)));
+        rows.add(row("dave", null, null, false, false, -1.0, null, null, null));
+
+        ExamPaperService examPaperService = new ExamPaperServiceImpl(null, mapper, 10, 10) {
+            @Override
+            public ExamPaper getPaper(Exam exam) {
+                return paper;
+            }
+        };
+        exportService = new ExamResultExportServiceImpl(examPaperService, answerSheetService, gradingService(), jdbcTemplate(), 2);
+    }
+
+    /**
+     * Stored outcomes are used as they are, stale and open sheets are graded with the current key,
+     * and a candidate who has not started has no point or outcome.
+     */
+    @Test
+    public void testWriteCsv_GradesStaleAndOpenSheets() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        exportService.writeCsv(exam(true), writer);
+
+        List<String[]> lines = new CSVReader(new StringReader(writer.toString())).readAll();
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        assertEquals(5, lines.size());
+        assertArrayEquals(new String[]{"Username", "First name", "Last name", "Status", "Time start", "Time finish", "Total point", "Q1", "Q2", "Q3"},
+                lines.get(0));
+        assertArrayEquals(new String[]{"alice", "Alice", "Nguyen", "FINISHED", dateFormat.format(started), dateFormat.format(finished), "10.0", "1", "0", "1"},
+                lines.get(1));
+        assertArrayEquals(new String[]{"bob", "Bob", "Tran", "FINISHED", dateFormat.format(started), dateFormat.format(finished), "15.0", "1", "1", "1"},
+                lines.get(2));
+        assertArrayEquals(new String[]{"carol", "Carol", "Le", "IN_PROGRESS", dateFormat.format(started), "", "5.0", "0", "1", "0"},
+                lines.get(3));
+        assertArrayEquals(new String[]{"dave", "", "", "NOT_STARTED", "", "", "", "", "", ""}, lines.get(4));
+        assertEquals(Integer.MIN_VALUE, fetchSize);
+    }
+
+    /**
+     * The workbook keeps a window of 2 rows, so earlier rows are already flushed when the last ones are written.
+     */
+    @Test
+    public void testWriteXlsx_WritesEveryRow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeXlsx(exam(false), out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheet("Results");
+            assertEquals(4, sheet.getLastRowNum());
+            assertEquals("Q3", sheet.getRow(0).getCell(9).getStringCellValue());
+
+            Row alice = sheet.getRow(1);
+            assertEquals("alice", alice.getCell(0).getStringCellValue());
+            assertEquals(started.getTime(), alice.getCell(4).getDateCellValue().getTime(), 1000);
+            assertEquals(10.0, alice.getCell(6).getNumericCellValue(), 1e-9);
+            assertEquals(0.0, alice.getCell(8).getNumericCellValue(), 1e-9);
+
+            Row bob = sheet.getRow(2);
+            assertEquals(15.0, bob.getCell(6).getNumericCellValue(), 1e-9);
+            assertEquals(1.0, bob.getCell(8).getNumericCellValue(), 1e-9);
+
+            Row carol = sheet.getRow(3);
+            assertEquals("IN_PROGRESS", carol.getCell(3).getStringCellValue());
+            assertEquals(5.0, carol.getCell(6).getNumericCellValue(), 1e-9);
+
+            Row dave = sheet.getRow(4);
+            assertEquals("dave", dave.getCell(0).getStringCellValue());
+            assertEquals("MISSED", dave.getCell(3).getStringCellValue());
+            assertNull(dave.getCell(6));
+            assertNull(dave.getCell(7));
+        }
+        assertEquals(Integer.MIN_VALUE, fetchSize);
+    }
+
+    private Exam exam(boolean open) {
+        Exam exam = new Exam();
+        exam.setId(1L);
+        exam.setFinishExam(new Date(System.currentTimeMillis() + (open ? 3600000 : -60000)));
+        return exam;
+    }
+
+    private Map<String, Object> row(String username, String firstName, String lastName, boolean isStarted, boolean isFinished,
+                                    double totalPoint, byte[] gradeData, Long gradeKey, byte[] answerData) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("username", username);
+        row.put("first_name", firstName);
+        row.put("last_name", lastName);
+        row.put("is_started", isStarted ? 1 : 0);
+        row.put("is_finished", isFinished ? 1 : 0);
+        row.put("time_start", isStarted ? started : null);
+        row.put("time_finish", isFinished ? finished : null);
+        row.put("total_point", totalPoint);
+        row.put("grade_data", gradeData);
+        row.put("grade_key", gradeKey);
+        row.put("answer_sheet", null);
+        row.put("answer_data", answerData);
+        row.put("shuffle_seed", null);
+        return row;
+    }
+
+    /**
+     * Stored answer data with the TF answer and the given choices selected.
+     */
+    private byte[] selections(boolean tfTrue, Long... choiceIds) {
+        ExamUser examUser = new ExamUser();
+        examUser.setIsStarted(true);
+        List<AnswerSheet> answerSheets = answerSheetService.getAnswerSheets(examUser, paper);
+        List<Long> selected = Arrays.asList(choiceIds);
+        for (AnswerSheet answerSheet : answerSheets) {
+            for (Choice choice : answerSheet.getChoices()) {
+                if (answerSheet.getQuestionId() == 1L) {
+                    choice.setChoiceText(tfTrue ? "True" : "False");
+                    choice.setIsCorrected(1);
+                } else {
+                    choice.setIsCorrected(selected.contains(choice.getId()) ? 1 : 0);
+                }
+            }
+        }
+        answerSheetService.setAnswerSheets(examUser, paper, answerSheets);
+        return examUser.getAnswerData();
+    }
+
+    private GradingService gradingService() {
+        return new GradingService() {
+            @Override
+            public CompiledExamKey getCompiledKey(ExamPaper paper) {
+                return key;
+            }
+
+            @Override
+            public int grade(ExamUser examUser, ExamPaper paper, long[] outcome) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void recordGrade(ExamUser examUser, ExamPaper paper) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public double getTotalPoint(ExamUser examUser, ExamPaper paper) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<ChoiceList> getChoiceList(ExamUser examUser, ExamPaper paper) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Opens the statement on a connection that only records the fetch size, then feeds the rows to the handler.
+     */
+    private JdbcTemplate jdbcTemplate() {
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("setFetchSize")) {
+                        fetchSize = (Integer) args[0];
+                    }
+                    return null;
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> method.getName().equals("prepareStatement") ? statement : null);
+        return new JdbcTemplate() {
+            @Override
+            public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+                try {
+                    psc.createPreparedStatement(connection);
+                    ResultSet rs = resultSet(rows);
+                    while (rs.next()) {
+                        rch.processRow(rs);
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * A forward-only result set over the rows, read by column label like the service does.
+     */
+    private static ResultSet resultSet(List<Map<String, Object>> rows) {
+        int[] position = {-1};
+        Object[] lastValue = {null};
+        return (ResultSet) Proxy.newProxyInstance(ExamResultExportServiceImplTest.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++position[0] < rows.size();
+                        case "wasNull":
+                            return lastValue[0] == null;
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    Object value = rows.get(position[0]).get((String) args[0]);
+                    lastValue[0] = value;
+                    switch (method.getName()) {
+                        case "getInt":
+                            return value == null ? 0 : ((Number) value).intValue();
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getDouble":
+                            return value == null ? 0.0 : ((Number) value).doubleValue();
+                        default:
+                            return value;
+                    }
+                });
+    }
+}
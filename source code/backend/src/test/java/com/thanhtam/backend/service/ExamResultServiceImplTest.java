@@ -0,0 +1,157 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.ExamResultSummary;
+import com.thanhtam.backend.dto.KeysetPage;
+import com.thanhtam.backend.entity.Exam;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.entity.User;
+import com.thanhtam.backend.repository.ExamRepository;
+import com.thanhtam.backend.repository.ExamUserRepository;
+import com.thanhtam.backend.repository.UserRepository;
+import com.thanhtam.backend.ultilities.EResultSort;
+import com.thanhtam.backend.ultilities.EResultStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for ExamResultService.
+ * Pages through the listing of one exam in small pages, for every sort in both directions and with status filters,
+ * and checks the pages put together are the whole filtered listing in order, without gaps or duplicates.
+ * Every test runs in a transaction that is rolled back.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class ExamResultServiceImplTest {
+
+    @Autowired
+    private ExamResultService examResultService;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamUserRepository examUserRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Exam exam;
+    private List<ExamUser> examUsers;
+
+    /**
+     * 13 candidates: 3 not started, 2 doing and 8 finished, with tied points and finish times.
+     */
+    @Before
+    public void setUp() {
+        String suffix = "_" + System.nanoTime();
+        User creator = userRepository.save(user("creator" + suffix));
+        exam = new Exam();
+        exam.setTitle("Paged Exam");
+        exam.setDurationExam(60);
+        exam.setShuffle(false);
+        exam.setCanceled(false);
+        exam.setBeginExam(new Date());
+        exam.setFinishExam(new Date(System.currentTimeMillis() + 3600000));
+        exam.setQuestionData("[]");
+        exam.setCreatedBy(creator);
+        exam = examRepository.save(exam);
+
+        long base = System.currentTimeMillis() / 1000 * 1000;
+        double[] points = {5, 10, 10, 10, 0, 5, 15, 10};
+        long[] finishOffsets = {0, 60, 60, 120, 60, 0, 180, 120};
+        examUsers = new ArrayList<>();
+        for (int i = 0; i < 13; i++) {
+            ExamUser examUser = new ExamUser();
+//            Usernames in the opposite order of the ids, so the username sort differs from the id order
+            examUser.setUser(userRepository.save(user("u" + (20 - i) + suffix)));
+            examUser.setExam(exam);
+            examUser.setRemainingTime(3600);
+            examUser.setTotalPoint(-1.0);
+            if (i >= 3) {
+                examUser.setIsStarted(true);
+                examUser.setTimeStart(new Date(base - 3600000));
+            }
+            if (i >= 5) {
+                examUser.setIsFinished(true);
+                examUser.setTotalPoint(points[i - 5]);
+                examUser.setTimeFinish(new Date(base + finishOffsets[i - 5] * 1000));
+            }
+            examUsers.add(examUserRepository.saveAndFlush(examUser));
+        }
+    }
+
+    @Test
+    public void testGetResultPage_PointsWithTies() {
+        for (boolean ascending : new boolean[]{true, false}) {
+            assertPagesCover(EResultSort.POINT, ascending, null, examUser -> examUser.getTotalPoint(), examUser -> true);
+            assertPagesCover(EResultSort.POINT, ascending, EResultStatus.COMPLETED, examUser -> examUser.getTotalPoint(), ExamUser::getIsFinished);
+        }
+    }
+
+    @Test
+    public void testGetResultPage_FinishTimesWithNulls() {
+        for (boolean ascending : new boolean[]{true, false}) {
+            assertPagesCover(EResultSort.FINISH, ascending, null, ExamUser::getTimeFinish, examUser -> true);
+            assertPagesCover(EResultSort.FINISH, ascending, EResultStatus.DOING, ExamUser::getTimeFinish,
+                    examUser -> examUser.getIsStarted() && !examUser.getIsFinished());
+            assertPagesCover(EResultSort.FINISH, ascending, EResultStatus.NOT_STARTED, ExamUser::getTimeFinish, examUser -> !examUser.getIsStarted());
+        }
+    }
+
+    @Test
+    public void testGetResultPage_Usernames() {
+        for (boolean ascending : new boolean[]{true, false}) {
+            assertPagesCover(EResultSort.USERNAME, ascending, null, examUser -> examUser.getUser().getUsername(), examUser -> true);
+        }
+        assertTrue(examResultService.getResultPage(exam, EResultSort.USERNAME, true, EResultStatus.MISSED, null, 5).getData().isEmpty());
+    }
+
+    /**
+     * Reads the listing two rows at a time and compares it with the expected order: NULLs first ascending and last
+     * descending, ties broken by id in the same direction.
+     */
+    @SuppressWarnings("unchecked")
+    private void assertPagesCover(EResultSort sort, boolean ascending, EResultStatus status, Function<ExamUser, Object> key, Predicate<ExamUser> filter) {
+        Comparator<Comparable<Object>> nullsFirst = Comparator.nullsFirst(Comparator.<Comparable<Object>>naturalOrder());
+        Comparator<ExamUser> order = Comparator.comparing((ExamUser examUser) -> (Comparable<Object>) key.apply(examUser), nullsFirst)
+                .thenComparing(ExamUser::getId);
+        List<String> expected = examUsers.stream().filter(filter).sorted(ascending ? order : order.reversed())
+                .map(examUser -> examUser.getUser().getUsername()).collect(Collectors.toList());
+
+        List<String> listed = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            KeysetPage<ExamResultSummary> page = examResultService.getResultPage(exam, sort, ascending, status, after, 2);
+            assertTrue(page.getData().size() <= 2);
+            page.getData().forEach(summary -> listed.add(summary.getUsername()));
+            after = page.getNextCursor();
+            assertTrue("Listing does not end", ++pages <= examUsers.size());
+        } while (after != null);
+
+        String context = sort + (ascending ? " asc " : " desc ") + status;
+        assertEquals(context, expected, listed);
+        assertEquals(context, listed.size(), new HashSet<>(listed).size());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password");
+        return user;
+    }
+}
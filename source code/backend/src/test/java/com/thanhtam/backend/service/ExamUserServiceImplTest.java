@@ -5,6 +5,7 @@ import com.thanhtam.backend.entity.ExamUser;
 import com.thanhtam.backend.entity.User;
 import com.thanhtam.backend.repository.ExamRepository;
 import com.thanhtam.backend.repository.ExamUserRepository;
+import com.thanhtam.backend.service.ExamExpiryService;
 import com.thanhtam.backend.service.ExamUserServiceImpl;
 import org.junit.Assert;
 import org.junit.Before;
@@ -15,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -42,6 +44,12 @@ public class ExamUserServiceImplTest {
     @Autowired
     private com.thanhtam.backend.repository.UserRepository userRepository;
 
+    @Autowired
+    private ExamExpiryService examExpiryService;
+
+    @Autowired
+    private EntityManager entityManager;
+
     private Exam testExam;
     private User testUser;
     private ExamUser testExamUser;
@@ -572,4 +580,89 @@ public class ExamUserServiceImplTest {
         Optional<ExamUser> updatedExamUser = examUserRepository.findById(999999L);
         Assert.assertFalse(updatedExamUser.isPresent());
     }
-}
\ No newline at end of file
+
+    /**
+     * Test two deltas applied on the same stored sheet.
+     * Expected output: the first is stored, the second conflicts instead of overwriting it
+     */
+    @Test
+    public void testUpdateAnswerSheet_OverlappingDeltas() {
+        testExamUser.setAnswerSheet("[\"first\"]");
+        Assert.assertTrue(examUserService.updateAnswerSheet(testExamUser, 0, 1));
+        entityManager.clear();
+
+        ExamUser second = examUserRepository.findById(testExamUser.getId()).get();
+        entityManager.detach(second);
+        second.setAnswerSheet("[\"second\"]");
+        Assert.assertTrue(examUserService.updateAnswerSheet(second, 1, 2));
+
+//        Read at sequence 1 as well, but the sheet it was applied to no longer holds
+        testExamUser.setAnswerSheet("[\"third\"]");
+        Assert.assertFalse(examUserService.updateAnswerSheet(testExamUser, 1, 3));
+        entityManager.clear();
+
+        ExamUser stored = examUserRepository.findById(testExamUser.getId()).get();
+        Assert.assertEquals("[\"second\"]", stored.getAnswerSheet());
+        Assert.assertEquals(2, stored.getAnswerSequence());
+    }
+
+    /**
+     * Test the deadline of a session.
+     * Expected output: start + duration, but never after the exam's finish time
+     */
+    @Test
+    public void testComputeDeadline_CappedByFinishExam() {
+        Date start = new Date();
+        Assert.assertEquals(start.getTime() + 60 * 60 * 1000L, examUserService.computeDeadline(testExam, start).getTime());
+
+        Date lateStart = new Date(testExam.getFinishExam().getTime() - 10 * 60 * 1000L);
+        Assert.assertEquals(testExam.getFinishExam(), examUserService.computeDeadline(testExam, lateStart));
+    }
+
+    /**
+     * Test remaining time is computed from the server clock.
+     * Expected output: the value sent by the client is ignored, an expired session has 0 seconds left
+     */
+    @Test
+    public void testGetRemainingTime_FromServerClock() {
+        testExamUser.setIsStarted(true);
+        testExamUser.setTimeStart(new Date(System.currentTimeMillis() - 10 * 60 * 1000L));
+        testExamUser.setDeadline(examUserService.computeDeadline(testExamUser.getExam(), testExamUser.getTimeStart()));
+        testExamUser.setRemainingTime(99999);
+
+        int remaining = examUserService.getRemainingTime(testExamUser);
+        int expected = testExamUser.getExam().getDurationExam() * 60 - 10 * 60;
+        Assert.assertTrue(Math.abs(expected - remaining) <= 1);
+        Assert.assertFalse(examUserService.isExpired(testExamUser));
+
+        testExamUser.setDeadline(new Date(System.currentTimeMillis() - 60 * 60 * 1000L));
+        Assert.assertEquals(0, examUserService.getRemainingTime(testExamUser));
+        Assert.assertTrue(examUserService.isExpired(testExamUser));
+    }
+
+    /**
+     * Test the sweeper finishes sessions past their deadline.
+     * Expected output: only the expired session is finished and graded
+     */
+    @Test
+    public void testFinishExpiredSessions() {
+        ExamUser expired = testExamUsers.get(1);
+        expired.setIsStarted(true);
+        expired.setTimeStart(new Date(System.currentTimeMillis() - 2 * 60 * 60 * 1000L));
+        expired.setDeadline(new Date(System.currentTimeMillis() - 60 * 60 * 1000L));
+        examUserRepository.saveAndFlush(expired);
+        testExamUser.setIsStarted(true);
+        testExamUser.setTimeStart(new Date());
+        testExamUser.setDeadline(new Date(System.currentTimeMillis() + 60 * 60 * 1000L));
+        examUserRepository.saveAndFlush(testExamUser);
+
+        Assert.assertTrue(examExpiryService.finishExpiredSessions() >= 1);
+        entityManager.clear();
+
+        ExamUser finished = examUserRepository.findById(expired.getId()).get();
+        Assert.assertTrue(finished.getIsFinished());
+        Assert.assertEquals(0, finished.getRemainingTime());
+        Assert.assertEquals(0.0, finished.getTotalPoint(), 0.01);
+        Assert.assertFalse(examUserRepository.findById(testExamUser.getId()).get().getIsFinished());
+    }
+}
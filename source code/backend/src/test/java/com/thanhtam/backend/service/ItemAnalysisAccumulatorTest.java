@@ -0,0 +1,102 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ItemAnalysisAccumulator against statistics worked out by hand.
+ */
+public class ItemAnalysisAccumulatorTest {
+
+    private ExamPaper paper;
+    private CompiledExamKey key;
+
+    /**
+     * Two MC questions worth 1 point, choice A is correct in both.
+     */
+    @Before
+    public void setUp() {
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "Q1", DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 1,
+                Arrays.asList(new PaperChoice(11L, "A"), new PaperChoice(12L, "B"))));
+        questions.add(new PaperQuestion(2L, "Q2", DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 1,
+                Arrays.asList(new PaperChoice(21L, "A"), new PaperChoice(22L, "B"))));
+        paper = new ExamPaper(1L, null, questions);
+        key = CompiledExamKey.compile(paper, AnswerKey.of(Arrays.asList(new Choice(11L, "A", 1), new Choice(12L, "B", 0),
+                new Choice(21L, "A", 1), new Choice(22L, "B", 0))), 0);
+    }
+
+    /**
+     * Four candidates: both right, only Q1 right, only Q2 right, both wrong.
+     * Q1: p = 0.5, point-biserial = (1.5 - 0.5) / sqrt(0.5) * 0.5, and with 27% groups of 1.08 candidates
+     * the tied middle contributes 0.04 to each group: (1.04 - 0.04) / 1.08.
+     */
+    @Test
+    public void testStatistics_MatchHandComputedValues() {
+        ItemAnalysisAccumulator accumulator = new ItemAnalysisAccumulator(paper, key);
+        add(accumulator, 0b01, 0b01);
+        add(accumulator, 0b01, 0b10);
+        add(accumulator, 0b10, 0b01);
+        add(accumulator, 0b10, 0b10);
+
+        assertEquals(4, accumulator.getSheets());
+        assertEquals(1.0, accumulator.getMeanPoint(), 1e-9);
+        assertEquals(0.5, accumulator.getDifficulty(0), 1e-9);
+        assertEquals(Math.sqrt(0.5), accumulator.getPointBiserial(0), 1e-9);
+        assertEquals(1.0 / 1.08, accumulator.getDiscrimination(0), 1e-9);
+        assertEquals(0.5, accumulator.getSelectionRate(0, 1), 1e-9);
+    }
+
+    @Test
+    public void testMerge_SameAsOnePass() {
+        ItemAnalysisAccumulator whole = new ItemAnalysisAccumulator(paper, key);
+        ItemAnalysisAccumulator first = new ItemAnalysisAccumulator(paper, key);
+        ItemAnalysisAccumulator second = new ItemAnalysisAccumulator(paper, key);
+        long[][] sheets = {{0b01, 0b01}, {0b01, 0b10}, {0b10, 0b01}, {0b10, 0b10}, {0b11, 0b01}};
+        for (int i = 0; i < sheets.length; i++) {
+            add(whole, sheets[i][0], sheets[i][1]);
+            add(i % 2 == 0 ? first : second, sheets[i][0], sheets[i][1]);
+        }
+
+        first.merge(second);
+
+        assertEquals(whole.getSheets(), first.getSheets());
+        for (int q = 0; q < 2; q++) {
+            assertEquals(whole.getDifficulty(q), first.getDifficulty(q), 1e-9);
+            assertEquals(whole.getPointBiserial(q), first.getPointBiserial(q), 1e-9);
+            assertEquals(whole.getDiscrimination(q), first.getDiscrimination(q), 1e-9);
+            assertEquals(whole.getSelectionRate(q, 1), first.getSelectionRate(q, 1), 1e-9);
+        }
+    }
+
+    @Test
+    public void testToItemAnalysis_MarksCorrectChoices() {
+        ItemAnalysisAccumulator accumulator = new ItemAnalysisAccumulator(paper, key);
+        add(accumulator, 0b01, 0b10);
+
+        ItemAnalysis analysis = accumulator.toItemAnalysis(paper, key);
+
+        assertEquals(2, analysis.getItems().size());
+        ItemStatistics second = analysis.getItems().get(1);
+        assertEquals(Long.valueOf(2L), second.getQuestionId());
+        assertTrue(second.getChoices().get(0).isCorrected());
+        assertFalse(second.getChoices().get(1).isCorrected());
+        assertEquals(1.0, second.getChoices().get(1).getSelectionRate(), 1e-9);
+    }
+
+    private void add(ItemAnalysisAccumulator accumulator, long first, long second) {
+        long[] masks = {first, second};
+        long[] outcome = new long[1];
+        accumulator.add(masks, outcome, key.grade(masks, outcome));
+    }
+}
@@ -816,6 +816,44 @@ public class QuestionServiceImplTest {
         assertNull(questionText);
     }
 
+    /**
+     * Test case TC041: Lấy nhiều câu hỏi theo danh sách ID
+     * Mục đích: Kiểm tra service trả về câu hỏi kèm lựa chọn theo đúng thứ tự
+     * của danh sách ID truyền vào và bỏ qua ID không tồn tại
+     */
+    @Test
+    public void testGetQuestionsByIds_KeepsCallerOrder() {
+        // Cho
+        Question other = questionRepository.save(createTestQuestion(DifficultyLevel.HARD));
+        List<Long> ids = new ArrayList<>();
+        ids.add(other.getId());
+        ids.add(999L);
+        ids.add(savedQuestion.getId());
+
+        // Khi
+        List<Question> questions = questionService.getQuestionsByIds(ids);
+
+        // Thì
+        assertEquals(2, questions.size());
+        assertEquals(other.getId(), questions.get(0).getId());
+        assertEquals(savedQuestion.getId(), questions.get(1).getId());
+        assertEquals(2, questions.get(1).getChoices().size());
+        assertNotNull(questions.get(1).getQuestionType());
+    }
+
+    /**
+     * Test case TC042: Lấy nhiều câu hỏi với danh sách ID rỗng
+     * Mục đích: Kiểm tra service trả về danh sách rỗng mà không truy vấn
+     */
+    @Test
+    public void testGetQuestionsByIds_WithEmptyList() {
+        // Khi
+        List<Question> questions = questionService.getQuestionsByIds(new ArrayList<>());
+
+        // Thì
+        assertTrue(questions.isEmpty());
+    }
+
     /**
      * Phương thức hỗ trợ tạo câu hỏi test
      *
@@ -0,0 +1,73 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for QuestionStatsDelta, the counter increments written after sheets are graded.
+ */
+public class QuestionStatsDeltaTest {
+
+    private ExamPaper paper;
+
+    /**
+     * Question 1 is TF, question 2 is MS with three choices.
+     */
+    @Before
+    public void setUp() {
+        List<PaperQuestion> questions = new ArrayList<>();
+        questions.add(new PaperQuestion(1L, "TF", DifficultyLevel.EASY, 1L, EQTypeCode.TF, "TF", 5,
+                Collections.singletonList(new PaperChoice(11L, ""))));
+        questions.add(new PaperQuestion(2L, "MS", DifficultyLevel.EASY, 3L, EQTypeCode.MS, "MS", 5,
+                Arrays.asList(new PaperChoice(21L, "A"), new PaperChoice(22L, "B"), new PaperChoice(23L, "C"))));
+        paper = new ExamPaper(1L, null, questions);
+    }
+
+    @Test
+    public void testAddSheet_CountsAttemptsChoicesAndCorrect() {
+        QuestionStatsDelta delta = new QuestionStatsDelta(paper);
+
+        delta.addSheet(new long[]{CompiledExamKey.TF_FALSE, 0b101}, new byte[]{0b10});
+        delta.addSheet(new long[]{0, 0b001}, new byte[]{0});
+
+        assertEquals(2, delta.getChoiceCount(0));
+        assertEquals(3, delta.getChoiceCount(1));
+        assertEquals(1, delta.getAttempted(0));
+        assertEquals(0, delta.getCorrect(0));
+        assertEquals(1, delta.getSelected(0, 1));
+        assertEquals(2, delta.getAttempted(1));
+        assertEquals(1, delta.getCorrect(1));
+        assertEquals(2, delta.getSelected(1, 0));
+        assertEquals(0, delta.getSelected(1, 1));
+        assertEquals(1, delta.getSelected(1, 2));
+    }
+
+    /**
+     * A regrade moves only the correct counts, and merged deltas add up.
+     */
+    @Test
+    public void testAddRegrade_MergesOnlyCorrectChanges() {
+        QuestionStatsDelta delta = new QuestionStatsDelta(paper);
+        QuestionStatsDelta other = new QuestionStatsDelta(paper);
+
+        delta.addRegrade(new byte[]{0b01}, new byte[]{0b10});
+        other.addRegrade(new byte[]{0b00}, new byte[]{0b10});
+        delta.merge(other);
+
+        assertEquals(0, delta.getAttempted(0));
+        assertEquals(-1, delta.getCorrect(0));
+        assertEquals(2, delta.getCorrect(1));
+        assertFalse(delta.isEmpty());
+        assertTrue(new QuestionStatsDelta(paper).isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.LeaderboardEntry;
+import com.thanhtam.backend.dto.ScoreBucket;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for ScoreBoard, the ordered scores behind the live leaderboard.
+ */
+public class ScoreBoardTest {
+
+    private ScoreBoard board;
+
+    /**
+     * Scores 9, 7, 7, 3 out of 10.
+     */
+    @Before
+    public void setUp() {
+        board = new ScoreBoard(10, null);
+        board.record(1L, "a", 9);
+        board.record(2L, "b", 7);
+        board.record(3L, "c", 7);
+        board.record(4L, "d", 3);
+    }
+
+    @Test
+    public void ranksShareTies() {
+        assertEquals(1, board.rankOf(1L));
+        assertEquals(2, board.rankOf(2L));
+        assertEquals(2, board.rankOf(3L));
+        assertEquals(4, board.rankOf(4L));
+        assertEquals(0, board.rankOf(5L));
+    }
+
+    @Test
+    public void percentileCountsHalfOfTies() {
+        assertEquals(87.5, board.percentileOf(1L), 1e-9);
+        assertEquals(50.0, board.percentileOf(2L), 1e-9);
+        assertEquals(12.5, board.percentileOf(4L), 1e-9);
+    }
+
+    @Test
+    public void regradeMovesTheCandidate() {
+        board.record(4L, null, 10);
+        assertEquals(4, board.size());
+        assertEquals(1, board.rankOf(4L));
+        assertEquals(2, board.rankOf(1L));
+        List<LeaderboardEntry> top = board.top(2);
+        assertEquals("d", top.get(0).getUsername());
+        assertEquals("a", top.get(1).getUsername());
+    }
+
+    @Test
+    public void topListsTiesWithTheSameRank() {
+        List<LeaderboardEntry> top = board.top(3);
+        assertEquals(3, top.size());
+        assertEquals(1, top.get(0).getRank());
+        assertEquals(2, top.get(1).getRank());
+        assertEquals(2, top.get(2).getRank());
+    }
+
+    @Test
+    public void histogramAndGrowBeyondMaxScore() {
+        List<ScoreBucket> buckets = board.histogram(5);
+        assertEquals(3, buckets.size());
+        assertEquals(1, buckets.get(0).getCount());
+        assertEquals(3, buckets.get(1).getCount());
+        assertEquals(0, buckets.get(2).getCount());
+
+        board.record(5L, "e", 25);
+        assertEquals(1, board.rankOf(5L));
+        assertEquals(5, board.rankOf(4L));
+    }
+}
@@ -0,0 +1,135 @@
+package com.thanhtam.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thanhtam.backend.dto.*;
+import com.thanhtam.backend.entity.Choice;
+import com.thanhtam.backend.entity.ExamUser;
+import com.thanhtam.backend.ultilities.DifficultyLevel;
+import com.thanhtam.backend.ultilities.EQTypeCode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for SheetGradingTask: splitting across the pool gives the same totals as grading one by one,
+ * and only sheets with an out of date grade come back for the batch update and the question counters.
+ */
+public class SheetGradingTaskTest {
+
+    private AnswerSheetService answerSheetService;
+    private ExamPaper paper;
+    private CompiledExamKey key;
+
+    /**
+     * 20 MC questions worth 5 points, the first choice of each is correct.
+     */
+    @Before
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        answerSheetService = new AnswerSheetServiceImpl(new ExamPaperServiceImpl(null, mapper, 10, 10), mapper, false);
+        List<PaperQuestion> questions = new ArrayList<>();
+        List<Choice> choices = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            questions.add(new PaperQuestion(i, "MC " + i, DifficultyLevel.EASY, 2L, EQTypeCode.MC, "MC", 5,
+                    Arrays.asList(new PaperChoice(i * 10 + 1, "A"), new PaperChoice(i * 10 + 2, "B"))));
+            choices.add(new Choice(i * 10 + 1, "A", 1));
+            choices.add(new Choice(i * 10 + 2, "B", 0));
+        }
+        paper = new ExamPaper(1L, null, questions);
+        key = CompiledExamKey.compile(paper, AnswerKey.of(choices), 0);
+    }
+
+    @Test
+    public void testCompute_MatchesSequentialGrading() {
+        Random random = new Random(3);
+        List<ExamUser> sheets = new ArrayList<>();
+        Map<Long, Double> expected = new HashMap<>();
+        long[] masks = new long[20];
+        for (long id = 1; id <= 500; id++) {
+            List<AnswerSelection> selections = new ArrayList<>();
+            for (PaperQuestion question : paper.getQuestions()) {
+                selections.add(new AnswerSelection(question.getQuestionId(),
+                        Collections.singletonList(question.getChoices().get(random.nextInt(2)).getId()), null));
+            }
+            ExamUser examUser = finishedExamUser(id, AnswerSheetCodec.encode(paper, selections));
+            AnswerSheetCodec.decodeMasks(paper, examUser.getAnswerData(), masks);
+            expected.put(id, (double) key.grade(masks, null));
+//            Every other sheet already holds its current grade
+            if (id % 2 == 0) {
+                answerSheetService.fillSelectionMasks(examUser, paper, masks);
+                long[] outcome = new long[1];
+                examUser.setTotalPoint((double) key.grade(masks, outcome));
+                examUser.setGradeData(CompiledExamKey.toOutcomeBytes(outcome, 20));
+                examUser.setGradeKey(key.getFingerprint());
+            }
+            sheets.add(examUser);
+        }
+        Map<Long, Double> totals = new ConcurrentHashMap<>();
+        AtomicInteger graded = new AtomicInteger();
+
+        SheetGradingTask.Result result = new ForkJoinPool(4).invoke(new SheetGradingTask(sheets, key, paper, answerSheetService, 8, totals, graded, false));
+        List<Object[]> rows = result.getRows();
+
+        assertEquals(expected, totals);
+        assertEquals(500, graded.get());
+        assertEquals(250, rows.size());
+//        Sheets without a stored grade are counted whole, the others had not changed
+        int[] counts = new int[rows.size()];
+        Arrays.fill(counts, 1);
+        assertEquals(250, result.getStatsDelta(counts).getAttempted(0));
+        for (Object[] row : rows) {
+            assertEquals(1L, (Long) row[3] % 2);
+            assertEquals(expected.get(row[3]), row[0]);
+            assertEquals(key.getFingerprint(), row[2]);
+            assertNull(row[4]);
+        }
+    }
+
+    @Test
+    public void testStatsDelta_CountsOnlyWrittenRows() {
+        List<ExamUser> sheets = new ArrayList<>();
+        long[] outcome = new long[1];
+        for (long id = 1; id <= 10; id++) {
+            List<AnswerSelection> selections = new ArrayList<>();
+            for (PaperQuestion question : paper.getQuestions()) {
+                selections.add(new AnswerSelection(question.getQuestionId(), Collections.singletonList(question.getChoices().get(0).getId()), null));
+            }
+            ExamUser examUser = finishedExamUser(id, AnswerSheetCodec.encode(paper, selections));
+//            Graded with a key that marked every question wrong
+            examUser.setTotalPoint(0.0);
+            examUser.setGradeData(CompiledExamKey.toOutcomeBytes(outcome, 20));
+            examUser.setGradeKey(key.getFingerprint() + 1);
+            sheets.add(examUser);
+        }
+
+        SheetGradingTask.Result result = new ForkJoinPool(2).invoke(new SheetGradingTask(sheets, key, paper, answerSheetService, 2,
+                new ConcurrentHashMap<>(), new AtomicInteger(), false));
+        int[] counts = new int[result.getRows().size()];
+//        Four rows were regraded by someone else between the read and the write
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = i < 6 ? 1 : 0;
+        }
+
+        assertEquals(10, counts.length);
+        assertEquals(key.getFingerprint() + 1, result.getRows().get(0)[4]);
+        assertEquals(6, SheetGradingTask.Result.written(counts));
+        QuestionStatsDelta delta = result.getStatsDelta(counts);
+        assertEquals(0, delta.getAttempted(0));
+        assertEquals(6, delta.getCorrect(0));
+    }
+
+    private ExamUser finishedExamUser(long id, byte[] answerData) {
+        ExamUser examUser = new ExamUser();
+        examUser.setId(id);
+        examUser.setIsStarted(true);
+        examUser.setIsFinished(true);
+        examUser.setAnswerData(answerData);
+        return examUser;
+    }
+}
@@ -0,0 +1,126 @@
+package com.thanhtam.backend.service;
+
+import com.thanhtam.backend.dto.StatisticsDashboard;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for StatisticsDashboardServiceImpl: single-flight refreshes and the staleness bound.
+ */
+public class StatisticsDashboardServiceImplTest {
+
+    /**
+     * Counts how often the dashboard is computed, each computation blocks until released.
+     */
+    private static class CountingStatistics implements StatisticsService {
+        private final AtomicInteger computed = new AtomicInteger();
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        @Override
+        public long countExamTotal() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return computed.incrementAndGet();
+        }
+
+        @Override
+        public long countQuestionTotal() {
+            return 2;
+        }
+
+        @Override
+        public long countAccountTotal() {
+            return 3;
+        }
+
+        @Override
+        public long countExamUserTotal() {
+            return 4;
+        }
+
+        @Override
+        public Double getChangeExam() {
+            return 0.0;
+        }
+
+        @Override
+        public Double getChangeQuestion() {
+            return 0.0;
+        }
+
+        @Override
+        public Double getChangeAccount() {
+            return 0.0;
+        }
+
+        @Override
+        public Double getChangeExamUser() {
+            return 0.0;
+        }
+
+        @Override
+        public List<Long> countExamUserLastedSevenDaysTotal() {
+            return Arrays.asList(0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        }
+    }
+
+    @Test
+    public void testGetDashboard_ConcurrentCallersShareOneRefresh() throws InterruptedException {
+        CountingStatistics statistics = new CountingStatistics();
+        statistics.release = new CountDownLatch(1);
+        StatisticsDashboardServiceImpl service = new StatisticsDashboardServiceImpl(statistics, 60000, 4);
+        List<Thread> callers = new ArrayList<>();
+        List<StatisticsDashboard> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> {
+                StatisticsDashboard dashboard = service.getDashboard();
+                synchronized (results) {
+                    results.add(dashboard);
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        Thread.sleep(200);
+        statistics.release.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        service.shutdown();
+
+        assertEquals(1, statistics.computed.get());
+        assertEquals(8, results.size());
+        for (StatisticsDashboard dashboard : results) {
+            assertEquals(1, dashboard.getExamTotal());
+            assertNotNull(dashboard.getGeneratedAt());
+        }
+    }
+
+    @Test
+    public void testGetDashboard_RecomputesOnlyWhenStale() throws InterruptedException {
+        CountingStatistics statistics = new CountingStatistics();
+        StatisticsDashboardServiceImpl fresh = new StatisticsDashboardServiceImpl(statistics, 60000, 2);
+        fresh.getDashboard();
+        StatisticsDashboard cached = fresh.getDashboard();
+        fresh.shutdown();
+        assertEquals(1, statistics.computed.get());
+        assertTrue(cached.getAgeMillis() >= 0);
+
+        StatisticsDashboardServiceImpl stale = new StatisticsDashboardServiceImpl(statistics, 0, 2);
+        stale.getDashboard();
+        Thread.sleep(5);
+        stale.getDashboard();
+        stale.shutdown();
+        assertEquals(3, statistics.computed.get());
+    }
+}
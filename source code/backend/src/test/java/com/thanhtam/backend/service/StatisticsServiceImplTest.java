@@ -17,6 +17,7 @@ package com.thanhtam.backend.unittest;
  * 10 | IsSameDay | testIsSameDay | Kiểm tra cùng ngày | Kiểm tra chức năng so sánh ngày | StatisticsServiceImpl.isSameDay(now, now) | true nếu cùng ngày | | Pass
  * 11 | IsSameWeek | testIsSameWeek | Kiểm tra cùng tuần | Kiểm tra chức năng so sánh tuần | StatisticsServiceImpl.isSameWeek(now, now) | true nếu cùng tuần | | Pass
  * 12 | IsLastWeek | testIsLastWeek | Kiểm tra tuần trước | Kiểm tra chức năng xác định tuần trước | StatisticsServiceImpl.isLastWeek(now, lastWeek) | true nếu là tuần trước | | Pass
+ * 13 | Dashboard | testDashboard_QueryCountConstantAsDataGrows | Số câu truy vấn của bảng thống kê | Kiểm tra số câu truy vấn không tăng theo dữ liệu | Thêm 50 lượt làm bài, câu hỏi, tài khoản | Số câu truy vấn không đổi | | Pass
  */
 
 import com.thanhtam.backend.entity.Exam;
@@ -28,6 +29,8 @@ import com.thanhtam.backend.repository.ExamUserRepository;
 import com.thanhtam.backend.repository.QuestionRepository;
 import com.thanhtam.backend.repository.UserRepository;
 import com.thanhtam.backend.service.StatisticsServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +40,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -67,6 +71,9 @@ public class StatisticsServiceImplTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private User testUser;
     private Exam testExam;
     private Question testQuestion;
@@ -313,6 +320,63 @@ public class StatisticsServiceImplTest {
         assertNotNull("Change should not be null", change);
     }
 
+    /**
+     * Test số câu truy vấn của bảng thống kê.
+     * Mục đích: Các số liệu được đếm bằng truy vấn gom nhóm, không tải cả bảng
+     * Expected output: Số câu truy vấn trước và sau khi thêm dữ liệu bằng nhau
+     */
+    @Test
+    public void testDashboard_QueryCountConstantAsDataGrows() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        loadDashboard();
+        long queryCount = statistics.getPrepareStatementCount();
+
+        List<ExamUser> examUsers = new ArrayList<>();
+        List<Question> questions = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        DateTime now = new DateTime();
+        for (int i = 0; i < 50; i++) {
+            ExamUser examUser = new ExamUser();
+            examUser.setUser(testUser);
+            examUser.setExam(testExam);
+            examUser.setTimeFinish(now.minusDays(i % 14).toDate());
+            examUsers.add(examUser);
+
+            Question question = new Question();
+            question.setQuestionText("Question " + i);
+            questions.add(question);
+
+            User user = new User();
+            user.setUsername("grow_" + i + "_" + System.currentTimeMillis());
+            user.setEmail("grow_" + i + "_" + System.currentTimeMillis() + "@example.com");
+            user.setPassword("password");
+            users.add(user);
+        }
+        examUserRepository.saveAll(examUsers);
+        questionRepository.saveAll(questions);
+        userRepository.saveAll(users);
+        userRepository.flush();
+
+        statistics.clear();
+        loadDashboard();
+        assertEquals("Query count should not grow with data", queryCount, statistics.getPrepareStatementCount());
+        statistics.setStatisticsEnabled(false);
+    }
+
+    private void loadDashboard() {
+        statisticsService.countExamTotal();
+        statisticsService.countQuestionTotal();
+        statisticsService.countAccountTotal();
+        statisticsService.countExamUserTotal();
+        statisticsService.getChangeExam();
+        statisticsService.getChangeQuestion();
+        statisticsService.getChangeAccount();
+        statisticsService.getChangeExamUser();
+        statisticsService.countExamUserLastedSevenDaysTotal();
+    }
+
     /**
      * Test kiểm tra hai ngày có phải là cùng một ngày không.
      * Mục đích: Kiểm tra chức năng so sánh ngày